@@ -0,0 +1,39 @@
+-- Stores every customer phone number in the canonical form CustomerDAO
+-- writes and looks up (dao.CustomerDAO.canonicalPhone): digits only, or the
+-- trimmed value when it has no digits or more than 15. Customers whose
+-- numbers only differed in formatting collapse onto the same number; they
+-- are merged into the oldest of them, and their orders moved to it.
+--
+-- Run before deploying the build that stores canonical phone numbers, and
+-- before 002_unique_customer_phone.sql. Safe to run again.
+
+START TRANSACTION;
+
+UPDATE customers
+SET phone = CASE
+        WHEN CHAR_LENGTH(REGEXP_REPLACE(phone, '[^0-9]', '')) BETWEEN 1 AND 15
+            THEN REGEXP_REPLACE(phone, '[^0-9]', '')
+        ELSE TRIM(phone)
+    END
+WHERE phone IS NOT NULL;
+
+CREATE TEMPORARY TABLE customer_merge AS
+SELECT c.customer_id AS duplicate_id, k.keep_id
+FROM customers c
+JOIN (SELECT phone, MIN(customer_id) AS keep_id
+      FROM customers
+      WHERE phone IS NOT NULL
+      GROUP BY phone
+      HAVING COUNT(*) > 1) k ON c.phone = k.phone AND c.customer_id <> k.keep_id;
+
+UPDATE orders o
+JOIN customer_merge m ON o.customer_id = m.duplicate_id
+SET o.customer_id = m.keep_id;
+
+DELETE c
+FROM customers c
+JOIN customer_merge m ON c.customer_id = m.duplicate_id;
+
+DROP TEMPORARY TABLE customer_merge;
+
+COMMIT;
@@ -0,0 +1,9 @@
+-- Makes customers.phone unique, which CustomerDAO.upsertByPhone relies on to
+-- resolve or create a customer in one statement without racing. Until it
+-- exists the application falls back to a lookup followed by an insert, which
+-- can still create duplicate customers under concurrent orders.
+--
+-- Run after 001_canonical_customer_phones.sql, which removes the duplicates
+-- this key would reject, then restart the application so it picks up the key.
+
+ALTER TABLE customers ADD UNIQUE KEY uk_customers_phone (phone);
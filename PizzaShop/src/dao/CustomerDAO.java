@@ -4,16 +4,47 @@ import model.Customer;
 import java.sql.SQLException;
 import java.sql.*;
 import util.DBConnection;
+import util.JdbcTemplate;
+import util.LongIntCache;
 
 /**
  * Data Access Object (DAO) for handling customer-related database operations.
- * Provides methods for checking if a customer exists by phone number and for
- * inserting new customers into the database.
+ * Provides methods for checking if a customer exists by phone number, for
+ * inserting new customers, and for resolving or creating a customer by phone
+ * number in one statement.
+ *
+ * <p>
+ * Resolving in one statement needs the unique key on {@code customers.phone}
+ * added by {@code db/migrations/002_unique_customer_phone.sql}. The key is
+ * looked for once; without it customers are resolved by a lookup followed
+ * by an insert, as before, with a warning that concurrent orders may create
+ * duplicates.</p>
  */
 public class CustomerDAO {
 
     private static final String CHECK_CUSTOMER_EXISTS = "SELECT customer_id FROM customers WHERE phone = ?";
+    private static final String COUNT_BY_PHONE_QUERY = "SELECT COUNT(*) FROM customers WHERE phone = ?";
     private static final String INSERT_CUSTOMER_QUERY = "INSERT INTO customers (name, phone, address, email) VALUES (?, ?, ?, ?)";
+    // Only used once uk_customers_phone exists; on a duplicate,
+    // LAST_INSERT_ID(customer_id) makes the existing ID the generated key
+    private static final String UPSERT_CUSTOMER_QUERY = INSERT_CUSTOMER_QUERY
+            + " ON DUPLICATE KEY UPDATE customer_id = LAST_INSERT_ID(customer_id)";
+    // A unique index on phone alone; one that also covers other columns does not stop duplicates
+    private static final String UNIQUE_PHONE_KEY_QUERY = "SELECT COUNT(*) FROM information_schema.statistics s"
+            + " WHERE s.table_schema = DATABASE() AND s.table_name = 'customers' AND s.column_name = 'phone'"
+            + " AND s.non_unique = 0 AND NOT EXISTS (SELECT 1 FROM information_schema.statistics o"
+            + " WHERE o.table_schema = s.table_schema AND o.table_name = s.table_name"
+            + " AND o.index_name = s.index_name AND o.seq_in_index > 1)";
+
+    // Canonical phone number to committed customer_id, shared by every CustomerDAO
+    private static final LongIntCache PHONE_CACHE = new LongIntCache(
+            Integer.getInteger("pizzashop.customerCache.maxSize", 10_000),
+            Long.getLong("pizzashop.customerCache.ttlMillis", 3_600_000L));
+
+    private static final JdbcTemplate JDBC = JdbcTemplate.DEFAULT;
+
+    // Whether customers.phone is unique, looked up on first use; null until then
+    private static volatile Boolean uniquePhoneKey;
 
     /**
      * Checks if a customer exists in the database based on the phone number.
@@ -24,23 +55,57 @@ public class CustomerDAO {
      * @throws SQLException If a database error occurs.
      */
     public int customerExistsByPhone(String phone) throws SQLException {
-        int customerId = -1; // Default value if customer does not exist
-
-        try (Connection conn = DBConnection.getConnection(); PreparedStatement stmt = conn.prepareStatement(CHECK_CUSTOMER_EXISTS)) {
-            stmt.setString(1, phone);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (rs.next()) {
-                    // Retrieve customer ID
-                    customerId = rs.getInt("customer_id");
-                }
-            }
+        try (Connection conn = DBConnection.getConnection()) {
+            return customerExistsByPhone(conn, phone);
         } catch (SQLException e) {
             System.out.println(e);
             e.printStackTrace();
         }
+        return -1;
+    }
+
+    /**
+     * Checks if a customer exists based on the phone number, using a
+     * connection supplied by the caller so the lookup can take part in a
+     * larger transaction.
+     *
+     * @param conn The connection to run the query on.
+     * @param phone The phone number of the customer.
+     * @return The customer ID if the customer exists, or -1 if no customer is
+     * found.
+     * @throws SQLException If a database error occurs.
+     */
+    public int customerExistsByPhone(Connection conn, String phone) throws SQLException {
+        long phoneKey = normalizePhone(phone);
+        if (phoneKey >= 0) {
+            int cachedId = PHONE_CACHE.get(phoneKey);
+            if (cachedId != LongIntCache.MISSING) {
+                return cachedId;
+            }
+        }
+
+        Integer customerId = JDBC.queryFirst(conn, "CustomerDAO.customerExistsByPhone", CHECK_CUSTOMER_EXISTS,
+                stmt -> stmt.setString(1, canonicalPhone(phone)), rs -> rs.getInt(1));
+        if (customerId == null) {
+            return -1;
+        }
+        cacheIfCommitted(conn, phoneKey, customerId);
         return customerId;
     }
 
+    /**
+     * Counts the customers stored with a phone number, bypassing the cache.
+     * More than one means the phone number was registered twice.
+     *
+     * @param phone The phone number, in any format.
+     * @return The number of customers with that phone number.
+     * @throws SQLException If a database error occurs.
+     */
+    public int countByPhone(String phone) throws SQLException {
+        return JDBC.queryFirst("CustomerDAO.countByPhone", COUNT_BY_PHONE_QUERY,
+                stmt -> stmt.setString(1, canonicalPhone(phone)), rs -> rs.getInt(1));
+    }
+
     /**
      * Inserts a new customer into the database.
      *
@@ -50,30 +115,206 @@ public class CustomerDAO {
      * @throws SQLException If a database error occurs.
      */
     public int insertCustomer(Customer customer) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            return insertCustomer(conn, customer);
+        } catch (SQLException e) {
+            System.out.println(e);
+            e.printStackTrace();
+        }
+        return -1;
+    }
 
-        int generatedId = -1; // Default value if insertion fails
-
-        try (Connection conn = DBConnection.getConnection(); PreparedStatement stmt = conn.prepareStatement(INSERT_CUSTOMER_QUERY, Statement.RETURN_GENERATED_KEYS)) {
-
-            stmt.setString(1, customer.getName());
-            stmt.setString(2, customer.getPhone());
-            stmt.setString(3, customer.getAddress());
-            stmt.setString(4, customer.getEmail());
+    /**
+     * Inserts a new customer using a connection supplied by the caller, so the
+     * insert commits or rolls back together with the rest of the caller's
+     * transaction. Inside a transaction the new ID is only cached once the
+     * caller reports the commit with {@link #cacheCommitted}.
+     *
+     * @param conn The connection to run the insert on.
+     * @param customer The customer object containing customer details.
+     * @return The generated customer ID if the insertion is successful, or -1
+     * if no row was inserted.
+     * @throws SQLException If a database error occurs.
+     */
+    public int insertCustomer(Connection conn, Customer customer) throws SQLException {
+        int generatedId = JDBC.insert(conn, "CustomerDAO.insertCustomer", INSERT_CUSTOMER_QUERY,
+                stmt -> bindCustomer(stmt, customer));
+        if (generatedId != -1) {
+            cacheIfCommitted(conn, normalizePhone(customer.getPhone()), generatedId);
+        }
+        return generatedId;
+    }
 
-            int affectedRows = stmt.executeUpdate();
-            // Check if the insertion was successful
-            if (affectedRows > 0) {
-                try (ResultSet rs = stmt.getGeneratedKeys()) {
-                    if (rs.next()) {
-                        generatedId = rs.getInt(1); // Retrieve the generated customer_id
-                    }
-                }
-            }
+    /**
+     * Returns the ID of the customer with the given phone number, creating the
+     * customer if there is none, in one atomic statement. Two callers racing
+     * on the same new phone number get the same ID, provided
+     * {@code customers.phone} has its unique key. The details of an existing
+     * customer are left unchanged.
+     *
+     * @param customer The customer object containing customer details.
+     * @return The ID of the existing or newly created customer, or -1 if the
+     * statement fails.
+     * @throws SQLException If a database error occurs.
+     */
+    public int upsertByPhone(Customer customer) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            return upsertByPhone(conn, customer);
         } catch (SQLException e) {
             System.out.println(e);
             e.printStackTrace();
         }
-        return generatedId;
+        return -1;
+    }
+
+    /**
+     * Resolves or creates the customer with the given phone number in one
+     * atomic statement, using a connection supplied by the caller. Inside a
+     * transaction the ID is only cached once the caller reports the commit
+     * with {@link #cacheCommitted}, since a rollback may undo the insert.
+     *
+     * @param conn The connection to run the statement on.
+     * @param customer The customer object containing customer details.
+     * @return The ID of the existing or newly created customer, or -1 if no ID
+     * was returned.
+     * @throws SQLException If a database error occurs.
+     */
+    public int upsertByPhone(Connection conn, Customer customer) throws SQLException {
+        long phoneKey = normalizePhone(customer.getPhone());
+        if (phoneKey >= 0) {
+            int cachedId = PHONE_CACHE.get(phoneKey);
+            if (cachedId != LongIntCache.MISSING) {
+                return cachedId;
+            }
+        }
+
+        if (!hasUniquePhoneKey(conn)) {
+            // The upsert would insert a new row every time; look up first instead
+            int existingId = customerExistsByPhone(conn, customer.getPhone());
+            return existingId != -1 ? existingId : insertCustomer(conn, customer);
+        }
+
+        int customerId = JDBC.insert(conn, "CustomerDAO.upsertByPhone", UPSERT_CUSTOMER_QUERY,
+                stmt -> bindCustomer(stmt, customer));
+        if (customerId != -1) {
+            cacheIfCommitted(conn, phoneKey, customerId);
+        }
+        return customerId;
+    }
+
+    private static boolean hasUniquePhoneKey(Connection conn) throws SQLException {
+        Boolean present = uniquePhoneKey;
+        if (present == null) {
+            present = JDBC.queryFirst(conn, "CustomerDAO.hasUniquePhoneKey", UNIQUE_PHONE_KEY_QUERY,
+                    JdbcTemplate.Binder.NONE, rs -> rs.getInt(1) > 0);
+            if (!present) {
+                System.out.println("customers.phone has no unique key, so concurrent orders may create duplicate"
+                        + " customers; run db/migrations/002_unique_customer_phone.sql and restart");
+            }
+            uniquePhoneKey = present;
+        }
+        return present;
+    }
 
+    /**
+     * Caches a customer ID resolved inside a transaction, once that
+     * transaction has committed.
+     *
+     * @param phone The phone number of the customer.
+     * @param customerId The committed customer ID.
+     */
+    public void cacheCommitted(String phone, int customerId) {
+        long phoneKey = normalizePhone(phone);
+        if (phoneKey >= 0 && customerId > 0) {
+            PHONE_CACHE.put(phoneKey, customerId);
+        }
+    }
+
+    private static void cacheIfCommitted(Connection conn, long phoneKey, int customerId) throws SQLException {
+        // Outside autocommit the row may still be rolled back
+        if (phoneKey >= 0 && conn.getAutoCommit()) {
+            PHONE_CACHE.put(phoneKey, customerId);
+        }
+    }
+
+    private static void bindCustomer(PreparedStatement stmt, Customer customer) throws SQLException {
+        stmt.setString(1, customer.getName());
+        stmt.setString(2, canonicalPhone(customer.getPhone()));
+        stmt.setString(3, customer.getAddress());
+        stmt.setString(4, customer.getEmail());
+    }
+
+    /**
+     * Drops the cached customer ID for a phone number, e.g. after the customer
+     * row was changed or deleted elsewhere.
+     *
+     * @param phone The phone number of the customer.
+     */
+    public void evictCachedPhone(String phone) {
+        long phoneKey = normalizePhone(phone);
+        if (phoneKey >= 0) {
+            PHONE_CACHE.remove(phoneKey);
+        }
+    }
+
+    /**
+     * Returns the phone-to-customer cache, for hit rate and size reporting.
+     *
+     * @return The shared phone cache.
+     */
+    public static LongIntCache getPhoneCache() {
+        return PHONE_CACHE;
+    }
+
+    /**
+     * Returns the form a phone number is stored and looked up in: its digits
+     * only, so "(555) 123-4567" and "555-123-4567" are the same customer in
+     * the database just as they are in the cache. A number with no digits or
+     * more than 15 is only trimmed. Rows stored before phone numbers were
+     * canonical are converted by
+     * {@code db/migrations/001_canonical_customer_phones.sql}.
+     *
+     * @param phone The phone number as entered.
+     * @return The canonical phone number, or null if {@code phone} is null.
+     */
+    static String canonicalPhone(String phone) {
+        if (phone == null || normalizePhone(phone) < 0) {
+            return phone == null ? null : phone.trim();
+        }
+        StringBuilder digits = new StringBuilder(phone.length());
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                digits.append(c);
+            }
+        }
+        return digits.toString();
+    }
+
+    /**
+     * Reduces a phone number to its digits as a {@code long}, so formatting
+     * differences such as spaces or dashes map to the same cache key.
+     *
+     * @param phone The phone number as entered.
+     * @return The digits as a number, or -1 if the phone number has no digits
+     * or more than the 15 allowed in an international number.
+     */
+    static long normalizePhone(String phone) {
+        if (phone == null) {
+            return -1;
+        }
+        long key = 0;
+        int digits = 0;
+        for (int i = 0; i < phone.length(); i++) {
+            char c = phone.charAt(i);
+            if (c >= '0' && c <= '9') {
+                if (++digits > 15) {
+                    return -1;
+                }
+                key = key * 10 + (c - '0');
+            }
+        }
+        // Prefix the digit count so "0123" and "123" stay distinct keys
+        return digits == 0 ? -1 : key + digits * 10_000_000_000_000_000L;
     }
 }
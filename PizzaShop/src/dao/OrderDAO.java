@@ -1,13 +1,30 @@
 package dao;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import model.Order;
 import model.OrderItem;
 import java.sql.SQLException;
 
 import java.sql.*;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import model.OrderDetails;
+import model.OrderHistoryPage;
+import model.OrderLineItem;
+import model.OrderStatusUpdate;
+import model.OrderSummary;
+import util.ColumnList;
 import util.DBConnection;
+import util.JdbcTemplate;
+import util.OrderEvents;
+import util.ReadThroughCache;
+import util.RowMapper;
 
 /**
  * Data Access Object (DAO) for handling order-related database operations.
@@ -16,10 +33,69 @@ import util.DBConnection;
  */
 public class OrderDAO {
 
-    private static final String PLACE_ORDER_QUERY = "INSERT INTO orders (customer_id, order_date, status, special_instructions) VALUES (?, ?, ?, ?)";
+    private static final String PLACE_ORDER_QUERY = "INSERT INTO orders (customer_id, order_date, status, special_instructions, order_total) VALUES (?, ?, ?, ?, ?)";
     private static final String UPDATE_ORDER_TOTAL_QUERY = "UPDATE orders SET order_total = ? WHERE order_id = ?";
-    private static final String GET_ORDER_DETAILS_PROCEDURE = "{CALL GetOrderDetails(?)}";
+    private static final String UPDATE_ORDER_STATUS_QUERY = "UPDATE orders SET status = ? WHERE order_id = ?";
+    private static final String EXISTING_ORDER_IDS_QUERY = "SELECT order_id FROM orders WHERE order_id IN (?";
     private static final String INSERT_ORDER_ITEM_QUERY = "INSERT INTO order_items (order_id, pizza_id, size, quantity) VALUES (?, ?, ?, ?)";
+    private static final String INSERT_ORDER_WITH_ID_QUERY = "INSERT INTO orders (order_id, customer_id, order_date, status, special_instructions, order_total) VALUES (?, ?, ?, ?, ?, ?)";
+
+    // Order details are one row per line item; the mapper reads these columns by position
+    private static final String ORDER_DETAILS_COLUMNS = "SELECT o.order_id, o.order_date, o.status, o.order_total, o.special_instructions,"
+            + " c.customer_id, c.name, c.phone, c.address, c.email,"
+            + " p.name, oi.size, oi.quantity,"
+            + " CASE oi.size WHEN 'Small' THEN p.small_price WHEN 'Medium' THEN p.medium_price"
+            + " WHEN 'Large' THEN p.large_price WHEN 'Extra Large' THEN p.extra_large_price END * oi.quantity";
+    private static final String ORDER_DETAILS_JOINS = " JOIN customers c ON c.customer_id = o.customer_id"
+            + " LEFT JOIN order_items oi ON oi.order_id = o.order_id"
+            + " LEFT JOIN pizzas p ON p.pizza_id = oi.pizza_id";
+    private static final String GET_ORDER_DETAILS_QUERY = ORDER_DETAILS_COLUMNS + " FROM orders o" + ORDER_DETAILS_JOINS
+            + " WHERE o.order_id = ?"
+            + " ORDER BY oi.order_item_id";
+    private static final String GET_ORDERS_BY_STATUS_QUERY = ORDER_DETAILS_COLUMNS
+            + " FROM (SELECT order_id FROM orders WHERE status = ? ORDER BY order_date, order_id LIMIT ?) selected"
+            + " JOIN orders o ON o.order_id = selected.order_id" + ORDER_DETAILS_JOINS
+            + " ORDER BY o.order_date, o.order_id, oi.order_item_id";
+    // Keyset pagination, newest first; served by an index on (customer_id, order_date, order_id):
+    //   ALTER TABLE orders ADD INDEX idx_orders_customer_date (customer_id, order_date, order_id);
+    private static final ColumnList ORDER_SUMMARY_COLUMNS = new ColumnList("order_id", "order_date", "status", "order_total");
+    private static final String ORDER_HISTORY_COLUMNS = "SELECT " + ORDER_SUMMARY_COLUMNS + " FROM orders WHERE customer_id = ?";
+    private static final String ORDER_HISTORY_FIRST_PAGE_QUERY = ORDER_HISTORY_COLUMNS
+            + " ORDER BY order_date DESC, order_id DESC LIMIT ?";
+    private static final String ORDER_HISTORY_NEXT_PAGE_QUERY = ORDER_HISTORY_COLUMNS
+            + " AND (order_date < ? OR (order_date = ? AND order_id < ?))"
+            + " ORDER BY order_date DESC, order_id DESC LIMIT ?";
+    private static final int MAX_HISTORY_PAGE_SIZE = 100;
+    private static final String SCAN_ORDER_LINES_QUERY = "SELECT o.order_id, o.order_date, o.order_total, oi.pizza_id, oi.size, oi.quantity,"
+            + " CASE oi.size WHEN 'Small' THEN p.small_price WHEN 'Medium' THEN p.medium_price"
+            + " WHEN 'Large' THEN p.large_price WHEN 'Extra Large' THEN p.extra_large_price END * oi.quantity"
+            + " FROM orders o LEFT JOIN order_items oi ON oi.order_id = o.order_id"
+            + " LEFT JOIN pizzas p ON p.pizza_id = oi.pizza_id"
+            + " WHERE o.order_date >= ? ORDER BY o.order_id";
+    // Largest IN list per query; lists are padded to a power of two so few distinct statements get prepared
+    private static final int MAX_IN_LIST = 256;
+
+    private static final int SUMMARY_ORDER_ID = ORDER_SUMMARY_COLUMNS.index("order_id");
+    private static final int SUMMARY_ORDER_DATE = ORDER_SUMMARY_COLUMNS.index("order_date");
+    private static final int SUMMARY_STATUS = ORDER_SUMMARY_COLUMNS.index("status");
+    private static final int SUMMARY_ORDER_TOTAL = ORDER_SUMMARY_COLUMNS.index("order_total");
+    private static final RowMapper<OrderSummary> ORDER_SUMMARY_MAPPER = rs -> new OrderSummary(rs.getInt(SUMMARY_ORDER_ID),
+            rs.getTimestamp(SUMMARY_ORDER_DATE), rs.getString(SUMMARY_STATUS), rs.getBigDecimal(SUMMARY_ORDER_TOTAL));
+
+    private static final JdbcTemplate JDBC = JdbcTemplate.DEFAULT;
+    private static final JdbcTemplate STREAMING = JDBC.withFetchSize(JdbcTemplate.STREAMING);
+
+    // Order ID to details, shared by every OrderDAO; writes below invalidate it
+    private static final ReadThroughCache<Integer, OrderDetails> DETAILS_CACHE = new ReadThroughCache<>(
+            Integer.getInteger("pizzashop.orderDetailsCache.maxSize", 1_000),
+            Long.getLong("pizzashop.orderDetailsCache.ttlMillis", 2_000L));
+    // Single-order cache misses that arrive together are loaded with one query;
+    // a window of 0 turns coalescing off
+    private static final long LOOKUP_WINDOW_MILLIS = Long.getLong("pizzashop.orderDetails.coalesceWindowMillis", 2L);
+    private static final boolean LOOKUP_WINDOW_ENABLED = LOOKUP_WINDOW_MILLIS > 0;
+    private static final OrderDetailsCoalescer LOOKUP_COALESCER = LOOKUP_WINDOW_ENABLED
+            ? new OrderDetailsCoalescer(OrderDAO::queryOrderDetails, LOOKUP_WINDOW_MILLIS, MAX_IN_LIST)
+            : null;
 
     /**
      * Places a new order in the database and returns the generated order ID.
@@ -30,25 +106,214 @@ public class OrderDAO {
      * @throws SQLException If a database error occurs.
      */
     public int placeOrder(Order order) throws SQLException {
-        try (Connection conn = DBConnection.getConnection(); PreparedStatement stmt = conn.prepareStatement(PLACE_ORDER_QUERY, Statement.RETURN_GENERATED_KEYS)) {
-            stmt.setInt(1, order.getCustomerId());
-            stmt.setTimestamp(2, order.getOrderDate());
-            stmt.setString(3, order.getStatus());
-            stmt.setString(4, order.getSpecialInstructions());
+        try (Connection conn = DBConnection.getConnection()) {
+            return placeOrder(conn, order);
+        } catch (SQLException e) {
+            System.out.println(e);
+            e.printStackTrace();
+        }
+
+        return -1;
+    }
+
+    /**
+     * Places a new order using a connection supplied by the caller. The order
+     * total is written with the order row, so no follow-up update is needed.
+     *
+     * @param conn The connection to run the insert on.
+     * @param order The order object containing the details of the order. Its
+     * order ID is set to the generated key.
+     * @return The generated order ID, or -1 if no key was returned.
+     * @throws SQLException If a database error occurs.
+     */
+    public int placeOrder(Connection conn, Order order) throws SQLException {
+        OrderEvents.OrderInsert event = new OrderEvents.OrderInsert();
+        event.begin();
+        int orderId = -1;
+        try {
+            orderId = JDBC.insert(conn, "OrderDAO.placeOrder", PLACE_ORDER_QUERY, stmt -> {
+                stmt.setInt(1, order.getCustomerId());
+                stmt.setTimestamp(2, order.getOrderDate());
+                stmt.setString(3, order.getStatus());
+                stmt.setString(4, order.getSpecialInstructions());
+                stmt.setBigDecimal(5, order.getOrderTotal());
+            });
+        } finally {
+            event.complete(Math.max(orderId, 0), 0, 1, orderId != -1);
+        }
+        if (orderId != -1) {
+            order.setOrderId(orderId);
+        }
+        return orderId;
+    }
+
+    /**
+     * Inserts several orders with one multi-row INSERT on a connection
+     * supplied by the caller, and sets each order's generated ID.
+     *
+     * @param conn The connection to run the insert on.
+     * @param orders The orders to insert, in the order their IDs are returned.
+     * @return The generated order IDs, one per order.
+     * @throws SQLException If a database error occurs or fewer keys than
+     * orders are returned.
+     */
+    public int[] placeOrders(Connection conn, List<Order> orders) throws SQLException {
+        StringBuilder sql = new StringBuilder(PLACE_ORDER_QUERY);
+        for (int i = 1; i < orders.size(); i++) {
+            sql.append(", (?, ?, ?, ?, ?)");
+        }
+        int[] orderIds = new int[orders.size()];
+        OrderEvents.OrderInsert event = new OrderEvents.OrderInsert();
+        event.begin();
+        boolean inserted = false;
+        try {
+            insertOrders(conn, sql.toString(), orders, orderIds);
+            inserted = true;
+        } finally {
+            event.complete(orderIds.length > 0 ? orderIds[0] : 0, 0, orders.size(), inserted);
+        }
+        return orderIds;
+    }
+
+    private static void insertOrders(Connection conn, String sql, List<Order> orders, int[] orderIds) throws SQLException {
+        JDBC.execute(conn, "OrderDAO.placeOrders", sql, true, stmt -> {
+            int p = 1;
+            for (Order order : orders) {
+                stmt.setInt(p++, order.getCustomerId());
+                stmt.setTimestamp(p++, order.getOrderDate());
+                stmt.setString(p++, order.getStatus());
+                stmt.setString(p++, order.getSpecialInstructions());
+                stmt.setBigDecimal(p++, order.getOrderTotal());
+            }
             stmt.executeUpdate();
 
+            // Generated keys come back in the order the rows were listed
             try (ResultSet rs = stmt.getGeneratedKeys()) {
-                if (rs.next()) {
-                    order.setOrderId(rs.getInt(1));
-                    return order.getOrderId();
+                for (int i = 0; i < orderIds.length; i++) {
+                    if (!rs.next()) {
+                        throw new SQLException("Expected " + orderIds.length + " generated order IDs, got " + i);
+                    }
+                    orderIds[i] = rs.getInt(1);
+                    orders.get(i).setOrderId(orderIds[i]);
                 }
             }
-        } catch (SQLException e) {
-            System.out.println(e);
-            e.printStackTrace();
+            return null;
+        });
+    }
+
+    /**
+     * Inserts the items of several orders with one multi-row INSERT on a
+     * connection supplied by the caller.
+     *
+     * @param conn The connection to run the insert on.
+     * @param orderIds The order IDs, parallel to {@code orderItems}.
+     * @param orderItems The items of each order.
+     * @throws SQLException If a database error occurs.
+     */
+    public void insertOrderItems(Connection conn, int[] orderIds, List<OrderItem[]> orderItems) throws SQLException {
+        int rows = 0;
+        for (OrderItem[] items : orderItems) {
+            rows += items.length;
+        }
+        if (rows == 0) {
+            return;
+        }
+        StringBuilder sql = new StringBuilder(INSERT_ORDER_ITEM_QUERY);
+        for (int i = 1; i < rows; i++) {
+            sql.append(", (?, ?, ?, ?)");
+        }
+        OrderEvents.ItemsBatch event = new OrderEvents.ItemsBatch();
+        event.begin();
+        boolean inserted = false;
+        try {
+            JDBC.update(conn, "OrderDAO.insertOrderItems", sql.toString(), ps -> {
+                int p = 1;
+                for (int i = 0; i < orderIds.length; i++) {
+                    for (OrderItem item : orderItems.get(i)) {
+                        ps.setInt(p++, orderIds[i]);
+                        ps.setInt(p++, item.getPizzaId());
+                        ps.setString(p++, item.getSize());
+                        ps.setInt(p++, item.getQuantity());
+                    }
+                }
+            });
+            inserted = true;
+        } finally {
+            event.complete(orderIds[0], rows, orderIds.length, inserted);
         }
+    }
 
-        return -1;
+    /**
+     * Inserts orders whose IDs were assigned up front, together with their
+     * items, in two statements on the caller's connection: one multi-row
+     * {@code orders} INSERT and one multi-row {@code order_items} INSERT. No
+     * generated keys are fetched.
+     *
+     * @param conn The connection to run the inserts on.
+     * @param orders The orders to insert; each must already have its order ID.
+     * @param orderItems The items of each order, parallel to {@code orders}.
+     * @throws SQLException If a database error occurs.
+     */
+    public void insertOrdersWithItems(Connection conn, List<Order> orders, List<OrderItem[]> orderItems) throws SQLException {
+        StringBuilder sql = new StringBuilder(INSERT_ORDER_WITH_ID_QUERY);
+        for (int i = 1; i < orders.size(); i++) {
+            sql.append(", (?, ?, ?, ?, ?, ?)");
+        }
+
+        OrderEvents.OrderInsert event = new OrderEvents.OrderInsert();
+        event.begin();
+        boolean inserted = false;
+        try {
+            JDBC.update(conn, "OrderDAO.insertOrdersWithItems", sql.toString(), stmt -> {
+                int p = 1;
+                for (Order order : orders) {
+                    stmt.setInt(p++, order.getOrderId());
+                    stmt.setInt(p++, order.getCustomerId());
+                    stmt.setTimestamp(p++, order.getOrderDate());
+                    stmt.setString(p++, order.getStatus());
+                    stmt.setString(p++, order.getSpecialInstructions());
+                    stmt.setBigDecimal(p++, order.getOrderTotal());
+                }
+            });
+            inserted = true;
+        } finally {
+            event.complete(orders.isEmpty() ? 0 : orders.get(0).getOrderId(), 0, orders.size(), inserted);
+        }
+
+        int[] orderIds = new int[orders.size()];
+        for (int i = 0; i < orderIds.length; i++) {
+            orderIds[i] = orders.get(i).getOrderId();
+        }
+        insertOrderItems(conn, orderIds, orderItems);
+    }
+
+    /**
+     * Returns which of the given orders are stored, e.g. to learn whether a
+     * commit whose outcome was lost went through.
+     *
+     * @param orderIds The order IDs to look for.
+     * @return The IDs found.
+     * @throws SQLException If a database error occurs.
+     */
+    public Set<Integer> findExistingOrderIds(int[] orderIds) throws SQLException {
+        Set<Integer> found = new HashSet<>(orderIds.length * 2);
+        try (Connection conn = DBConnection.getConnection()) {
+            for (int from = 0; from < orderIds.length; from += MAX_IN_LIST) {
+                int count = Math.min(MAX_IN_LIST, orderIds.length - from);
+                StringBuilder sql = new StringBuilder(EXISTING_ORDER_IDS_QUERY);
+                for (int i = 1; i < count; i++) {
+                    sql.append(", ?");
+                }
+                sql.append(')');
+                int first = from;
+                found.addAll(JDBC.query(conn, "OrderDAO.findExistingOrderIds", sql.toString(), stmt -> {
+                    for (int i = 0; i < count; i++) {
+                        stmt.setInt(i + 1, orderIds[first + i]);
+                    }
+                }, rs -> rs.getInt(1)));
+            }
+        }
+        return found;
     }
 
     /**
@@ -60,18 +325,38 @@ public class OrderDAO {
      * @throws SQLException If a database error occurs.
      */
     public void insertOrderItems(int orderId, OrderItem[] orderItems) throws SQLException {
-        try (Connection conn = DBConnection.getConnection(); PreparedStatement ps = conn.prepareStatement(INSERT_ORDER_ITEM_QUERY)) {
-            for (OrderItem item : orderItems) {
+        try (Connection conn = DBConnection.getConnection()) {
+            insertOrderItems(conn, orderId, orderItems);
+        } catch (SQLException e) {
+            System.out.println(e);
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Inserts multiple order items as one batch using a connection supplied by
+     * the caller.
+     *
+     * @param conn The connection to run the batch on.
+     * @param orderId The order ID to which the items belong.
+     * @param orderItems An array of OrderItem objects containing the details of
+     * the items to insert.
+     * @throws SQLException If a database error occurs.
+     */
+    public void insertOrderItems(Connection conn, int orderId, OrderItem[] orderItems) throws SQLException {
+        OrderEvents.ItemsBatch event = new OrderEvents.ItemsBatch();
+        event.begin();
+        boolean inserted = false;
+        try {
+            JDBC.batch(conn, "OrderDAO.insertOrderItems", INSERT_ORDER_ITEM_QUERY, Arrays.asList(orderItems), (ps, item) -> {
                 ps.setInt(1, orderId);
                 ps.setInt(2, item.getPizzaId());
                 ps.setString(3, item.getSize());
                 ps.setInt(4, item.getQuantity());
-                ps.addBatch();
-            }
-            ps.executeBatch();
-        } catch (SQLException e) {
-            System.out.println(e);
-            e.printStackTrace();
+            });
+            inserted = true;
+        } finally {
+            event.complete(orderId, orderItems.length, 1, inserted);
         }
     }
 
@@ -83,10 +368,8 @@ public class OrderDAO {
      * @throws SQLException If a database error occurs.
      */
     public void updateOrderTotal(int orderId, BigDecimal total) throws SQLException {
-        try (Connection conn = DBConnection.getConnection(); PreparedStatement stmt = conn.prepareStatement(UPDATE_ORDER_TOTAL_QUERY)) {
-            stmt.setBigDecimal(1, total);
-            stmt.setInt(2, orderId);
-            stmt.executeUpdate();
+        try (Connection conn = DBConnection.getConnection()) {
+            updateOrderTotal(conn, orderId, total);
         } catch (SQLException e) {
             System.out.println(e);
             e.printStackTrace();
@@ -94,43 +377,354 @@ public class OrderDAO {
     }
 
     /**
-     * Retrieves the details of an order, including customer and order
-     * information.
+     * Updates the total amount for a specific order using a connection
+     * supplied by the caller.
+     *
+     * @param conn The connection to run the update on.
+     * @param orderId The ID of the order to update.
+     * @param total The new total amount for the order.
+     * @throws SQLException If a database error occurs.
+     */
+    public void updateOrderTotal(Connection conn, int orderId, BigDecimal total) throws SQLException {
+        OrderEvents.TotalUpdate event = new OrderEvents.TotalUpdate();
+        event.begin();
+        boolean updated = false;
+        try {
+            JDBC.update(conn, "OrderDAO.updateOrderTotal", UPDATE_ORDER_TOTAL_QUERY, stmt -> {
+                stmt.setBigDecimal(1, total);
+                stmt.setInt(2, orderId);
+            });
+            updated = true;
+        } finally {
+            DETAILS_CACHE.invalidate(orderId);
+            // The item count is not known here
+            event.complete(orderId, 0, 1, updated);
+        }
+    }
+
+    /**
+     * Updates the status of a specific order.
+     *
+     * @param orderId The ID of the order to update.
+     * @param status The new status.
+     * @return True if the order exists and was updated.
+     * @throws SQLException If a database error occurs.
+     */
+    public boolean updateOrderStatus(int orderId, String status) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            return updateOrderStatus(conn, orderId, status);
+        }
+    }
+
+    /**
+     * Updates the status of a specific order using a connection supplied by
+     * the caller.
+     *
+     * @param conn The connection to run the update on.
+     * @param orderId The ID of the order to update.
+     * @param status The new status.
+     * @return True if the order exists and was updated.
+     * @throws SQLException If a database error occurs.
+     */
+    public boolean updateOrderStatus(Connection conn, int orderId, String status) throws SQLException {
+        try {
+            return JDBC.update(conn, "OrderDAO.updateOrderStatus", UPDATE_ORDER_STATUS_QUERY, stmt -> {
+                stmt.setString(1, status);
+                stmt.setInt(2, orderId);
+            }) > 0;
+        } finally {
+            DETAILS_CACHE.invalidate(orderId);
+        }
+    }
+
+    /**
+     * Applies several status changes in one batched UPDATE, using a
+     * connection supplied by the caller. Changes are applied in list order, so
+     * the last change for an order wins.
+     *
+     * @param conn The connection to run the update on.
+     * @param updates The status changes to apply.
+     * @throws SQLException If a database error occurs.
+     */
+    public void updateOrderStatuses(Connection conn, List<OrderStatusUpdate> updates) throws SQLException {
+        if (updates.isEmpty()) {
+            return;
+        }
+        try {
+            JDBC.batch(conn, "OrderDAO.updateOrderStatuses", UPDATE_ORDER_STATUS_QUERY, updates, (stmt, update) -> {
+                stmt.setString(1, update.getNewStatus());
+                stmt.setInt(2, update.getOrderId());
+            });
+        } finally {
+            for (OrderStatusUpdate update : updates) {
+                DETAILS_CACHE.invalidate(update.getOrderId());
+            }
+        }
+    }
+
+    /**
+     * Retrieves the details of an order, including customer information and
+     * one structured line item per ordered pizza. Results are served from a
+     * short-lived cache shared by all DAOs, and concurrent lookups of the same
+     * order share one query. Misses for different orders that arrive within a
+     * couple of milliseconds of each other are loaded together with
+     * {@link #getOrderDetails(int[])}'s query.
      *
      * @param orderId The ID of the order to retrieve details for.
-     * @return A HashMap containing the order details, or null if no order is
-     * found.
+     * @return The order details, or null if no order is found.
      * @throws SQLException If a database error occurs.
      */
-    public HashMap<String, String> getOrderDetails(int orderId) throws SQLException {
-        HashMap<String, String> map = new HashMap<String, String>();
-        try (Connection conn = DBConnection.getConnection(); CallableStatement stmt = conn.prepareCall(GET_ORDER_DETAILS_PROCEDURE)) {
-            stmt.setInt(1, orderId);
-            try (ResultSet rs = stmt.executeQuery()) {
-                if (!rs.next()) {
-                    // No results found, return null
-                    return null;
+    public OrderDetails getOrderDetails(int orderId) throws SQLException {
+        // Timed here so cache hits and the coalescing wait are counted too
+        return JdbcTemplate.timed("OrderDAO.getOrderDetails", () -> DETAILS_CACHE.get(orderId, OrderDAO::loadOrderDetails));
+    }
+
+    /**
+     * Retrieves the details of several orders at once. Cached orders are
+     * served from memory and all others are read together, so a list of any
+     * length costs a constant number of queries (one per
+     * {@value #MAX_IN_LIST} uncached orders).
+     *
+     * @param orderIds The IDs of the orders to retrieve.
+     * @return The details of the orders found, keyed by order ID in the order
+     * requested. Unknown IDs are left out.
+     * @throws SQLException If a database error occurs.
+     */
+    public Map<Integer, OrderDetails> getOrderDetails(int[] orderIds) throws SQLException {
+        List<Integer> keys = new ArrayList<>(orderIds.length);
+        for (int orderId : orderIds) {
+            keys.add(orderId);
+        }
+        return DETAILS_CACHE.getAll(keys, missing -> {
+            int[] ids = new int[missing.size()];
+            int i = 0;
+            for (int orderId : missing) {
+                ids[i++] = orderId;
+            }
+            return queryOrderDetails(ids);
+        });
+    }
+
+    /**
+     * Retrieves the oldest orders with a given status, with their customers
+     * and line items, in one query.
+     *
+     * @param status The status to match, e.g. "Pending".
+     * @param limit The most orders to return.
+     * @return The matching orders, oldest first.
+     * @throws SQLException If a database error occurs.
+     */
+    public List<OrderDetails> getOrdersByStatus(String status, int limit) throws SQLException {
+        return JDBC.read("OrderDAO.getOrdersByStatus", GET_ORDERS_BY_STATUS_QUERY, stmt -> {
+            stmt.setString(1, status);
+            stmt.setInt(2, limit);
+        }, rs -> {
+            List<OrderDetails> orders = new ArrayList<>();
+            mapOrderDetails(rs, orders);
+            return orders;
+        });
+    }
+
+    /**
+     * Retrieves one page of a customer's orders, newest first. Pages are
+     * found by seeking past the previous page's last (order_date, order_id)
+     * rather than by offset, so every page costs the same however far back it
+     * is, and rows are streamed from the server instead of buffered.
+     *
+     * @param customerId The ID of the customer.
+     * @param after The cursor returned with the previous page, or null for the
+     * first page.
+     * @param pageSize The most orders on the page; capped at
+     * {@value #MAX_HISTORY_PAGE_SIZE}.
+     * @return The page.
+     * @throws SQLException If a database error occurs.
+     */
+    public OrderHistoryPage getOrderHistory(int customerId, OrderHistoryPage.Cursor after, int pageSize) throws SQLException {
+        int limit = Math.max(1, Math.min(pageSize, MAX_HISTORY_PAGE_SIZE));
+        List<OrderSummary> orders = new ArrayList<>(limit);
+        boolean more = STREAMING.read("OrderDAO.getOrderHistory",
+                after == null ? ORDER_HISTORY_FIRST_PAGE_QUERY : ORDER_HISTORY_NEXT_PAGE_QUERY, stmt -> {
+                    int p = 1;
+                    stmt.setInt(p++, customerId);
+                    if (after != null) {
+                        stmt.setTimestamp(p++, after.orderDate());
+                        stmt.setTimestamp(p++, after.orderDate());
+                        stmt.setInt(p++, after.orderId());
+                    }
+                    // One extra row tells whether another page follows
+                    stmt.setInt(p, limit + 1);
+                }, rs -> {
+                    while (rs.next()) {
+                        if (orders.size() == limit) {
+                            return true;
+                        }
+                        orders.add(ORDER_SUMMARY_MAPPER.mapRow(rs));
+                    }
+                    return false;
+                });
+        OrderHistoryPage.Cursor next = null;
+        if (more) {
+            OrderSummary last = orders.get(orders.size() - 1);
+            next = new OrderHistoryPage.Cursor(last.orderDate(), last.orderId());
+        }
+        return new OrderHistoryPage(orders, next);
+    }
+
+    /**
+     * Streams every line item of the orders placed since a time, grouped by
+     * order, in one forward-only pass. The scan runs on a dedicated
+     * connection outside the pool, since it holds its connection until the
+     * last row is read.
+     *
+     * @param since The earliest order date to include.
+     * @param handler Receives each line; orders without items are passed once
+     * with a pizza ID of 0.
+     * @return The number of orders scanned.
+     * @throws SQLException If a database error occurs.
+     */
+    public long scanOrderLines(Timestamp since, OrderLineHandler handler) throws SQLException {
+        try (Connection conn = DBConnection.openDedicatedConnection()) {
+            return STREAMING.read(conn, "OrderDAO.scanOrderLines", SCAN_ORDER_LINES_QUERY, stmt -> stmt.setTimestamp(1, since), rs -> {
+                long orders = 0;
+                int previousId = 0;
+                while (rs.next()) {
+                    int orderId = rs.getInt(1);
+                    if (orderId != previousId) {
+                        orders++;
+                        previousId = orderId;
+                    }
+                    BigDecimal total = rs.getBigDecimal(3);
+                    BigDecimal lineTotal = rs.getBigDecimal(7);
+                    handler.line(orderId, rs.getTimestamp(2).getTime(), toCents(total),
+                            rs.getInt(4), rs.getString(5), rs.getInt(6), toCents(lineTotal));
                 }
+                return orders;
+            });
+        }
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount == null ? 0 : amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    /**
+     * Drops the cached details of an order. Writers that change an order
+     * outside this DAO must call this after their change.
+     *
+     * @param orderId The ID of the order.
+     */
+    public void evictCachedDetails(int orderId) {
+        DETAILS_CACHE.invalidate(orderId);
+    }
+
+    /**
+     * Returns the order details cache, for hit rate and size reporting.
+     *
+     * @return The shared details cache.
+     */
+    public static ReadThroughCache<Integer, OrderDetails> getDetailsCache() {
+        return DETAILS_CACHE;
+    }
+
+    private static OrderDetails loadOrderDetails(int orderId) throws SQLException {
+        if (LOOKUP_WINDOW_ENABLED) {
+            return LOOKUP_COALESCER.load(orderId);
+        }
+        return JDBC.read("OrderDAO.loadOrderDetails", GET_ORDER_DETAILS_QUERY, stmt -> stmt.setInt(1, orderId), rs -> {
+            List<OrderDetails> orders = new ArrayList<>(1);
+            mapOrderDetails(rs, orders);
+            return orders.isEmpty() ? null : orders.get(0);
+        });
+    }
 
-                // Process the order details result
-                do {
-                    map.put("order_id", String.valueOf(rs.getInt("order_id")));
-                    map.put("order_date", String.valueOf(rs.getTimestamp("order_date")));
-                    map.put("order_status", rs.getString("status"));
-                    map.put("order_total", String.valueOf(rs.getBigDecimal("order_total")));
-                    map.put("ordered_items", rs.getString("ordered_items"));
-                    map.put("customer_id", String.valueOf(rs.getInt("customer_id")));
-                    map.put("customer_name", rs.getString("customer_name"));
-                    map.put("phone", rs.getString("phone"));
-                    map.put("address", rs.getString("address"));
-                } while (rs.next()); // If there are multiple rows, process all of them.
-
-                return map;
+    /**
+     * Reads several orders with IN-list queries on one connection.
+     */
+    private static Map<Integer, OrderDetails> queryOrderDetails(int[] orderIds) throws SQLException {
+        Map<Integer, OrderDetails> found = new HashMap<>(orderIds.length * 2);
+        List<OrderDetails> orders = new ArrayList<>(Math.min(orderIds.length, MAX_IN_LIST));
+        try (Connection conn = DBConnection.getConnection()) {
+            for (int from = 0; from < orderIds.length; from += MAX_IN_LIST) {
+                int count = Math.min(MAX_IN_LIST, orderIds.length - from);
+                // Pad with the last ID up to a power of two to reuse cached statements
+                int slots = Integer.highestOneBit(count) == count ? count : Integer.highestOneBit(count) << 1;
+                StringBuilder sql = new StringBuilder(ORDER_DETAILS_COLUMNS.length() + 256 + slots * 3)
+                        .append(ORDER_DETAILS_COLUMNS).append(" FROM orders o").append(ORDER_DETAILS_JOINS)
+                        .append(" WHERE o.order_id IN (?");
+                for (int i = 1; i < slots; i++) {
+                    sql.append(", ?");
+                }
+                sql.append(") ORDER BY o.order_id, oi.order_item_id");
+
+                int first = from;
+                orders.clear();
+                JDBC.read(conn, "OrderDAO.getOrderDetailsBatch", sql.toString(), stmt -> {
+                    for (int i = 0; i < slots; i++) {
+                        stmt.setInt(i + 1, orderIds[first + Math.min(i, count - 1)]);
+                    }
+                }, rs -> {
+                    mapOrderDetails(rs, orders);
+                    return null;
+                });
+                for (OrderDetails details : orders) {
+                    found.put(details.orderId(), details);
+                }
             }
-        } catch (SQLException e) {
-            System.out.println(e);
-            e.printStackTrace();
         }
-        return null;
+        return found;
+    }
+
+    /**
+     * Maps order details rows, which come one row per line item and grouped by
+     * order: the order and customer columns are read once per order, and every
+     * row contributes one line item. Columns are read by position.
+     */
+    private static void mapOrderDetails(ResultSet rs, List<OrderDetails> into) throws SQLException {
+        boolean more = rs.next();
+        while (more) {
+            int orderId = rs.getInt(1);
+            Timestamp orderDate = rs.getTimestamp(2);
+            String status = rs.getString(3);
+            BigDecimal orderTotal = rs.getBigDecimal(4);
+            String specialInstructions = rs.getString(5);
+            int customerId = rs.getInt(6);
+            String customerName = rs.getString(7);
+            String phone = rs.getString(8);
+            String address = rs.getString(9);
+            String email = rs.getString(10);
+
+            List<OrderLineItem> lineItems = new ArrayList<>(4);
+            do {
+                String size = rs.getString(12);
+                if (size != null) { // Null when the order has no items (LEFT JOIN)
+                    lineItems.add(new OrderLineItem(rs.getString(11), size, rs.getInt(13), rs.getBigDecimal(14)));
+                }
+                more = rs.next();
+            } while (more && rs.getInt(1) == orderId);
+
+            into.add(new OrderDetails(orderId, orderDate, status, orderTotal, specialInstructions,
+                    customerId, customerName, phone, address, email, lineItems));
+        }
+    }
+
+    /**
+     * Receives the rows of {@link #scanOrderLines}. Amounts are in cents.
+     */
+    @FunctionalInterface
+    public interface OrderLineHandler {
+
+        /**
+         * Called once per line item, with the lines of an order in a row.
+         *
+         * @param orderId The ID of the order.
+         * @param orderDate When the order was placed, in milliseconds.
+         * @param orderTotalCents The stored total of the whole order.
+         * @param pizzaId The pizza on this line, or 0 if the order has no
+         * items.
+         * @param size The size label, or null if the order has no items.
+         * @param quantity The number of pizzas on this line.
+         * @param lineCents The line priced from the current menu.
+         */
+        void line(int orderId, long orderDate, long orderTotalCents, int pizzaId, String size, int quantity, long lineCents);
     }
 }
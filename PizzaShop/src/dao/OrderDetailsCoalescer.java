@@ -0,0 +1,124 @@
+package dao;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import model.OrderDetails;
+
+/**
+ * Turns single-order lookups that arrive together into one multi-order query.
+ * Requests are collected for a short window or until a size cap is reached;
+ * each collected batch is then run on its own virtual thread while the next
+ * one is being collected, and every caller receives its own order.
+ */
+class OrderDetailsCoalescer {
+
+    private final BatchQuery query;
+    private final long windowMillis;
+    private final int maxBatchSize;
+    private final LinkedBlockingQueue<PendingLookup> queue = new LinkedBlockingQueue<>();
+
+    /**
+     * Creates a coalescer and starts its collector thread.
+     *
+     * @param query Loads a batch of orders in one query.
+     * @param windowMillis How long to wait for more lookups after the first
+     * one of a batch arrives.
+     * @param maxBatchSize The most orders loaded in one query.
+     */
+    OrderDetailsCoalescer(BatchQuery query, long windowMillis, int maxBatchSize) {
+        this.query = query;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+
+        Thread collector = new Thread(this::run, "order-details-coalescer");
+        collector.setDaemon(true);
+        collector.start();
+    }
+
+    /**
+     * Looks up one order as part of the next batch and waits for the result.
+     *
+     * @param orderId The ID of the order.
+     * @return The order details, or null if no order is found.
+     * @throws SQLException If the batch query fails.
+     */
+    OrderDetails load(int orderId) throws SQLException {
+        PendingLookup pending = new PendingLookup(orderId, new CompletableFuture<>());
+        queue.add(pending);
+        try {
+            return pending.result().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the order lookup.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new SQLException("Order lookup failed.", e.getCause());
+        }
+    }
+
+    private void run() {
+        while (true) {
+            List<PendingLookup> batch = new ArrayList<>();
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMillis);
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingLookup next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+            } catch (InterruptedException e) {
+                return;
+            }
+            Thread.ofVirtual().name("order-details-lookup").start(() -> execute(batch));
+        }
+    }
+
+    private void execute(List<PendingLookup> batch) {
+        int[] orderIds = new int[batch.size()];
+        for (int i = 0; i < orderIds.length; i++) {
+            orderIds[i] = batch.get(i).orderId();
+        }
+        try {
+            Map<Integer, OrderDetails> found = query.load(orderIds);
+            for (PendingLookup pending : batch) {
+                pending.result().complete(found.get(pending.orderId()));
+            }
+        } catch (SQLException | RuntimeException e) {
+            for (PendingLookup pending : batch) {
+                pending.result().completeExceptionally(e);
+            }
+        }
+    }
+
+    /**
+     * Loads several orders in one query.
+     */
+    @FunctionalInterface
+    interface BatchQuery {
+
+        /**
+         * Loads the given orders.
+         *
+         * @param orderIds The IDs to load; may contain duplicates.
+         * @return The orders found, by ID.
+         * @throws SQLException If the query fails.
+         */
+        Map<Integer, OrderDetails> load(int[] orderIds) throws SQLException;
+    }
+
+    private record PendingLookup(int orderId, CompletableFuture<OrderDetails> result) {
+
+    }
+}
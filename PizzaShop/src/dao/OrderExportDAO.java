@@ -0,0 +1,79 @@
+package dao;
+
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import util.RowEncoder;
+
+/**
+ * Data Access Object (DAO) for bulk exports of orders and their items. Rows
+ * are read through a forward-only, read-only cursor that the driver streams
+ * one row at a time, and handed to a {@link RowEncoder} as they arrive, so
+ * no result set is ever held in memory.
+ *
+ * <p>
+ * While a streaming result set is open its connection can run nothing else,
+ * so exports take a connection from the caller — normally a dedicated one
+ * outside the pool — and must read each result to the end.</p>
+ */
+public class OrderExportDAO {
+
+    private static final String EXPORT_ORDERS_QUERY = "SELECT order_id, customer_id, order_date, status, order_total, special_instructions"
+            + " FROM orders WHERE order_date >= ? AND order_date < ? ORDER BY order_id";
+    private static final String EXPORT_ORDER_ITEMS_QUERY = "SELECT oi.order_item_id, oi.order_id, oi.pizza_id, oi.size, oi.quantity"
+            + " FROM order_items oi JOIN orders o ON o.order_id = oi.order_id"
+            + " WHERE o.order_date >= ? AND o.order_date < ? ORDER BY oi.order_id, oi.order_item_id";
+
+    /**
+     * Streams the orders placed in a time range, in order ID order.
+     *
+     * @param conn The connection to read on.
+     * @param from The start of the range, inclusive.
+     * @param to The end of the range, exclusive.
+     * @param encoder The encoder the rows are handed to.
+     * @return The number of rows exported.
+     * @throws SQLException If a database error occurs.
+     * @throws IOException If the encoder cannot write.
+     */
+    public long exportOrders(Connection conn, Timestamp from, Timestamp to, RowEncoder encoder) throws SQLException, IOException {
+        return export(conn, EXPORT_ORDERS_QUERY, from, to, encoder);
+    }
+
+    /**
+     * Streams the items of the orders placed in a time range, grouped by
+     * order.
+     *
+     * @param conn The connection to read on.
+     * @param from The start of the range, inclusive.
+     * @param to The end of the range, exclusive.
+     * @param encoder The encoder the rows are handed to.
+     * @return The number of rows exported.
+     * @throws SQLException If a database error occurs.
+     * @throws IOException If the encoder cannot write.
+     */
+    public long exportOrderItems(Connection conn, Timestamp from, Timestamp to, RowEncoder encoder) throws SQLException, IOException {
+        return export(conn, EXPORT_ORDER_ITEMS_QUERY, from, to, encoder);
+    }
+
+    private long export(Connection conn, String sql, Timestamp from, Timestamp to, RowEncoder encoder) throws SQLException, IOException {
+        long rows = 0;
+        try (PreparedStatement stmt = conn.prepareStatement(sql, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY)) {
+            stmt.setTimestamp(1, from);
+            stmt.setTimestamp(2, to);
+            // Connector/J streams rows one at a time with this fetch size
+            stmt.setFetchSize(Integer.MIN_VALUE);
+            try (ResultSet rs = stmt.executeQuery()) {
+                encoder.begin(rs.getMetaData());
+                while (rs.next()) {
+                    encoder.row(rs);
+                    rows++;
+                }
+                encoder.finish();
+            }
+        }
+        return rows;
+    }
+}
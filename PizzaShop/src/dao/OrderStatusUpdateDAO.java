@@ -0,0 +1,93 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.List;
+import model.OrderStatusUpdate;
+import util.DBConnection;
+import util.JdbcTemplate;
+import util.RowMapper;
+
+/**
+ * Data Access Object (DAO) for the order status history. Writes status
+ * transitions in batches and reads them back incrementally by ID, which is
+ * what the status change feed tails. Expects:
+ *
+ * <pre>
+ * CREATE TABLE order_status_updates (
+ *     id INT AUTO_INCREMENT PRIMARY KEY,
+ *     order_id INT NOT NULL,
+ *     status_update_time TIMESTAMP NOT NULL,
+ *     new_status VARCHAR(32) NOT NULL,
+ *     FOREIGN KEY (order_id) REFERENCES orders (order_id)
+ * );
+ * </pre>
+ */
+public class OrderStatusUpdateDAO {
+
+    private static final String INSERT_UPDATE_QUERY = "INSERT INTO order_status_updates (order_id, status_update_time, new_status) VALUES (?, ?, ?)";
+    private static final String GET_UPDATES_AFTER_QUERY = "SELECT id, order_id, status_update_time, new_status FROM order_status_updates WHERE id > ? ORDER BY id LIMIT ?";
+    private static final String GET_LATEST_ID_QUERY = "SELECT COALESCE(MAX(id), 0) FROM order_status_updates";
+
+    private static final RowMapper<OrderStatusUpdate> UPDATE_MAPPER = rs -> new OrderStatusUpdate(rs.getInt(1), rs.getInt(2),
+            rs.getTimestamp(3), rs.getString(4));
+    private static final JdbcTemplate JDBC = JdbcTemplate.DEFAULT;
+
+    /**
+     * Records a batch of status transitions in one round trip.
+     *
+     * @param updates The transitions to record; their IDs are ignored.
+     * @throws SQLException If a database error occurs.
+     */
+    public void insertUpdates(List<OrderStatusUpdate> updates) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            insertUpdates(conn, updates);
+        }
+    }
+
+    /**
+     * Records a batch of status transitions using a connection supplied by the
+     * caller, so they can be committed together with the status change.
+     *
+     * @param conn The connection to run the insert on.
+     * @param updates The transitions to record; their IDs are ignored.
+     * @throws SQLException If a database error occurs.
+     */
+    public void insertUpdates(Connection conn, List<OrderStatusUpdate> updates) throws SQLException {
+        if (updates.isEmpty()) {
+            return;
+        }
+        // Sent as one multi-row INSERT (rewriteBatchedStatements)
+        JDBC.batch(conn, "OrderStatusUpdateDAO.insertUpdates", INSERT_UPDATE_QUERY, updates, (stmt, update) -> {
+            stmt.setInt(1, update.getOrderId());
+            stmt.setTimestamp(2, update.getStatusUpdateTime());
+            stmt.setString(3, update.getNewStatus());
+        });
+    }
+
+    /**
+     * Reads the transitions recorded after a given ID, oldest first.
+     *
+     * @param afterId The last ID already seen.
+     * @param limit The most transitions to return.
+     * @return The transitions, in ID order.
+     * @throws SQLException If a database error occurs.
+     */
+    public List<OrderStatusUpdate> getUpdatesAfter(int afterId, int limit) throws SQLException {
+        return JDBC.query("OrderStatusUpdateDAO.getUpdatesAfter", GET_UPDATES_AFTER_QUERY, stmt -> {
+            stmt.setInt(1, afterId);
+            stmt.setInt(2, limit);
+        }, UPDATE_MAPPER);
+    }
+
+    /**
+     * Returns the ID of the most recent transition.
+     *
+     * @return The highest ID, or 0 if none has been recorded.
+     * @throws SQLException If a database error occurs.
+     */
+    public int getLatestId() throws SQLException {
+        return JDBC.queryFirst("OrderStatusUpdateDAO.getLatestId", GET_LATEST_ID_QUERY, JdbcTemplate.Binder.NONE,
+                rs -> rs.getInt(1));
+    }
+}
@@ -5,7 +5,10 @@ import java.sql.SQLException;
 import java.sql.*;
 import java.util.ArrayList;
 import java.util.List;
+import util.ColumnList;
 import util.DBConnection;
+import util.JdbcTemplate;
+import util.RowMapper;
 
 /**
  * Data Access Object (DAO) for handling pizza-related database operations.
@@ -13,9 +16,33 @@ import util.DBConnection;
  */
 public class PizzaDAO {
 
-    private static final String GET_ALL_PIZZAS_QUERY = "SELECT * FROM pizzas";
+    private static final ColumnList PIZZA_COLUMNS = new ColumnList("pizza_id", "name", "description",
+            "small_price", "medium_price", "large_price", "extra_large_price");
+    private static final String GET_ALL_PIZZAS_QUERY = "SELECT " + PIZZA_COLUMNS + " FROM pizzas ORDER BY pizza_id";
     private static final String GET_PIZZA_NAMES_QUERY = "SELECT name FROM pizzas";
 
+    private static final int PIZZA_ID = PIZZA_COLUMNS.index("pizza_id");
+    private static final int NAME = PIZZA_COLUMNS.index("name");
+    private static final int DESCRIPTION = PIZZA_COLUMNS.index("description");
+    private static final int SMALL_PRICE = PIZZA_COLUMNS.index("small_price");
+    private static final int MEDIUM_PRICE = PIZZA_COLUMNS.index("medium_price");
+    private static final int LARGE_PRICE = PIZZA_COLUMNS.index("large_price");
+    private static final int EXTRA_LARGE_PRICE = PIZZA_COLUMNS.index("extra_large_price");
+
+    private static final RowMapper<Pizza> PIZZA_MAPPER = rs -> {
+        Pizza pizza = new Pizza();
+        pizza.setPizzaId(rs.getInt(PIZZA_ID));
+        pizza.setName(rs.getString(NAME));
+        pizza.setDescription(rs.getString(DESCRIPTION));
+        pizza.setSmallPrice(rs.getBigDecimal(SMALL_PRICE));
+        pizza.setMediumPrice(rs.getBigDecimal(MEDIUM_PRICE));
+        pizza.setLargePrice(rs.getBigDecimal(LARGE_PRICE));
+        pizza.setExtraLargePrice(rs.getBigDecimal(EXTRA_LARGE_PRICE));
+        return pizza;
+    };
+
+    private static final JdbcTemplate JDBC = JdbcTemplate.DEFAULT;
+
     /**
      * Retrieves a list of all pizzas with their details from the database.
      *
@@ -23,24 +50,26 @@ public class PizzaDAO {
      * @throws SQLException If a database error occurs.
      */
     public List<Pizza> getAllPizzas() throws SQLException {
-        List<Pizza> pizzas = new ArrayList<>();
-        try (Connection conn = DBConnection.getConnection(); Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(GET_ALL_PIZZAS_QUERY)) {
-            while (rs.next()) {
-                Pizza pizza = new Pizza();
-                pizza.setPizzaId(rs.getInt("pizza_id"));
-                pizza.setName(rs.getString("name"));
-                pizza.setDescription(rs.getString("description"));
-                pizza.setSmallPrice(rs.getBigDecimal("small_price"));
-                pizza.setMediumPrice(rs.getBigDecimal("medium_price"));
-                pizza.setLargePrice(rs.getBigDecimal("large_price"));
-                pizza.setExtraLargePrice(rs.getBigDecimal("extra_large_price"));
-                pizzas.add(pizza);
-            }
+        try (Connection conn = DBConnection.getConnection()) {
+            return getAllPizzas(conn);
         } catch (SQLException e) {
             System.out.println(e);
             e.printStackTrace();
         }
-        return pizzas;
+        return new ArrayList<>();
+    }
+
+    /**
+     * Retrieves all pizzas using a connection supplied by the caller. Unlike
+     * {@link #getAllPizzas()}, failures are thrown rather than returned as an
+     * empty menu.
+     *
+     * @param conn The connection to run the query on.
+     * @return A list of Pizza objects representing all pizzas in the database.
+     * @throws SQLException If a database error occurs.
+     */
+    public List<Pizza> getAllPizzas(Connection conn) throws SQLException {
+        return JDBC.query(conn, "PizzaDAO.getAllPizzas", GET_ALL_PIZZAS_QUERY, JdbcTemplate.Binder.NONE, PIZZA_MAPPER);
     }
 
     /**
@@ -50,15 +79,12 @@ public class PizzaDAO {
      * @throws SQLException If a database error occurs.
      */
     public List<String> getPizzaNames() throws SQLException {
-        List<String> pizzaNames = new ArrayList<>();
-        try (Connection conn = DBConnection.getConnection(); Statement stmt = conn.createStatement(); ResultSet rs = stmt.executeQuery(GET_PIZZA_NAMES_QUERY)) {
-            while (rs.next()) {
-                pizzaNames.add(rs.getString("name"));
-            }
+        try {
+            return JDBC.query("PizzaDAO.getPizzaNames", GET_PIZZA_NAMES_QUERY, JdbcTemplate.Binder.NONE, rs -> rs.getString(1));
         } catch (SQLException e) {
             System.out.println(e);
             e.printStackTrace();
         }
-        return pizzaNames;
+        return new ArrayList<>();
     }
 }
@@ -0,0 +1,102 @@
+package dao;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import util.JdbcTemplate;
+
+/**
+ * Data Access Object (DAO) for reconciling stored order totals against their
+ * items. Each order's items are priced from {@code pizzas} in the database
+ * and summed there, so only one row per order crosses the wire, and ranges
+ * of order IDs can be scanned independently on separate connections.
+ */
+public class ReconciliationDAO {
+
+    private static final String LINE_PRICE = "CASE oi.size WHEN 'Small' THEN p.small_price WHEN 'Medium' THEN p.medium_price"
+            + " WHEN 'Large' THEN p.large_price WHEN 'Extra Large' THEN p.extra_large_price END";
+    private static final String GET_ORDER_ID_RANGE_QUERY = "SELECT MIN(order_id), MAX(order_id) FROM orders"
+            + " WHERE order_date >= ? AND order_date < ?";
+    private static final String SCAN_ORDER_TOTALS_QUERY = "SELECT o.order_id, o.order_total,"
+            + " COALESCE(SUM(" + LINE_PRICE + " * oi.quantity), 0),"
+            + " COALESCE(SUM(oi.quantity), 0),"
+            + " SUM(CASE WHEN oi.order_item_id IS NOT NULL AND " + LINE_PRICE + " IS NULL THEN 1 ELSE 0 END)"
+            + " FROM orders o LEFT JOIN order_items oi ON oi.order_id = o.order_id"
+            + " LEFT JOIN pizzas p ON p.pizza_id = oi.pizza_id"
+            + " WHERE o.order_id BETWEEN ? AND ? AND o.order_date >= ? AND o.order_date < ?"
+            + " GROUP BY o.order_id, o.order_total ORDER BY o.order_id";
+
+    private static final JdbcTemplate JDBC = JdbcTemplate.DEFAULT;
+    private static final JdbcTemplate STREAMING = JDBC.withFetchSize(JdbcTemplate.STREAMING);
+
+    /**
+     * Returns the lowest and highest order IDs placed in a time range.
+     *
+     * @param from The start of the range, inclusive.
+     * @param to The end of the range, exclusive.
+     * @return The lowest and highest IDs, or null if no order was placed.
+     * @throws SQLException If a database error occurs.
+     */
+    public int[] getOrderIdRange(Timestamp from, Timestamp to) throws SQLException {
+        return JDBC.queryFirst("ReconciliationDAO.getOrderIdRange", GET_ORDER_ID_RANGE_QUERY, stmt -> {
+            stmt.setTimestamp(1, from);
+            stmt.setTimestamp(2, to);
+        }, rs -> {
+            int low = rs.getInt(1);
+            return rs.wasNull() ? null : new int[]{low, rs.getInt(2)};
+        });
+    }
+
+    /**
+     * Streams the stored and recomputed totals of the orders in an ID range
+     * that were placed in a time range, in order ID order.
+     *
+     * @param conn The connection to read on; it is busy until the scan ends.
+     * @param lowId The lowest order ID, inclusive.
+     * @param highId The highest order ID, inclusive.
+     * @param from The start of the time range, inclusive.
+     * @param to The end of the time range, exclusive.
+     * @param handler Receives one call per order.
+     * @throws SQLException If a database error occurs.
+     */
+    public void scanOrderTotals(Connection conn, int lowId, int highId, Timestamp from, Timestamp to,
+            OrderTotalHandler handler) throws SQLException {
+        STREAMING.read(conn, "ReconciliationDAO.scanOrderTotals", SCAN_ORDER_TOTALS_QUERY, stmt -> {
+            stmt.setInt(1, lowId);
+            stmt.setInt(2, highId);
+            stmt.setTimestamp(3, from);
+            stmt.setTimestamp(4, to);
+        }, rs -> {
+            while (rs.next()) {
+                BigDecimal stored = rs.getBigDecimal(2);
+                handler.order(rs.getInt(1), stored == null ? -1 : toCents(stored),
+                        toCents(rs.getBigDecimal(3)), rs.getInt(4), rs.getInt(5));
+            }
+            return null;
+        });
+    }
+
+    private static long toCents(BigDecimal amount) {
+        return amount.movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+    }
+
+    /**
+     * Receives the rows of {@link #scanOrderTotals}. Amounts are in cents.
+     */
+    @FunctionalInterface
+    public interface OrderTotalHandler {
+
+        /**
+         * Called once per order.
+         *
+         * @param orderId The ID of the order.
+         * @param storedCents The stored order total, or -1 if it is NULL.
+         * @param subtotalCents The items priced from the current menu.
+         * @param pizzaCount The number of pizzas in the order.
+         * @param unpricedLines Items whose pizza or size is not on the menu.
+         */
+        void order(int orderId, long storedCents, long subtotalCents, int pizzaCount, int unpricedLines);
+    }
+}
@@ -0,0 +1,53 @@
+package dao;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import util.DBConnection;
+import util.JdbcTemplate;
+
+/**
+ * Data Access Object (DAO) for reserving blocks of IDs from a sequence table,
+ * so IDs can be handed out locally without a round trip per row. Expects:
+ *
+ * <pre>
+ * CREATE TABLE id_sequences (
+ *     name VARCHAR(32) PRIMARY KEY,
+ *     next_val BIGINT NOT NULL
+ * );
+ * INSERT INTO id_sequences (name, next_val)
+ *     SELECT 'orders', COALESCE(MAX(order_id), 0) + 1 FROM orders;
+ * </pre>
+ */
+public class SequenceDAO {
+
+    // LAST_INSERT_ID(expr) remembers the new value for this session only, so
+    // the follow-up SELECT sees our increment even under concurrency
+    private static final String RESERVE_BLOCK_QUERY = "UPDATE id_sequences SET next_val = LAST_INSERT_ID(next_val + ?) WHERE name = ?";
+    private static final String LAST_INSERT_ID_QUERY = "SELECT LAST_INSERT_ID()";
+
+    private static final JdbcTemplate JDBC = JdbcTemplate.DEFAULT;
+
+    /**
+     * Atomically reserves a block of consecutive IDs from a sequence.
+     *
+     * @param sequenceName The name of the sequence row.
+     * @param blockSize The number of IDs to reserve.
+     * @return The first ID of the reserved block; the block covers
+     * {@code [first, first + blockSize)}.
+     * @throws SQLException If the sequence does not exist or a database error
+     * occurs.
+     */
+    public long reserveBlock(String sequenceName, int blockSize) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            int updated = JDBC.update(conn, "SequenceDAO.reserveBlock", RESERVE_BLOCK_QUERY, stmt -> {
+                stmt.setInt(1, blockSize);
+                stmt.setString(2, sequenceName);
+            });
+            if (updated != 1) {
+                throw new SQLException("Sequence not found: " + sequenceName);
+            }
+            return JDBC.queryFirst(conn, "SequenceDAO.lastInsertId", LAST_INSERT_ID_QUERY, JdbcTemplate.Binder.NONE,
+                    rs -> rs.getLong(1)) - blockSize;
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package model;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Represents a customer's basket before it is placed as one order. Holds any
+ * number of order items with different pizzas, sizes and quantities; adding
+ * the same pizza and size again increases that line's quantity.
+ */
+public class Cart {
+
+    private final List<OrderItem> items = new ArrayList<>();
+
+    // Default constructor
+    public Cart() {
+    }
+
+    /**
+     * Adds pizzas to the cart, merging with an existing line for the same
+     * pizza and size.
+     *
+     * @param pizzaId The ID of the pizza.
+     * @param size The size label.
+     * @param quantity The number of pizzas to add.
+     * @return The line the pizzas were added to.
+     */
+    public OrderItem add(int pizzaId, String size, int quantity) {
+        if (quantity <= 0) {
+            throw new IllegalArgumentException("Quantity must be positive: " + quantity);
+        }
+        for (OrderItem item : items) {
+            if (item.getPizzaId() == pizzaId && item.getSize().equalsIgnoreCase(size)) {
+                item.setQuantity(item.getQuantity() + quantity);
+                return item;
+            }
+        }
+        OrderItem item = new OrderItem();
+        item.setPizzaId(pizzaId);
+        item.setSize(size);
+        item.setQuantity(quantity);
+        items.add(item);
+        return item;
+    }
+
+    /**
+     * Removes the line at the given position.
+     *
+     * @param index The position of the line.
+     */
+    public void remove(int index) {
+        items.remove(index);
+    }
+
+    /**
+     * Removes every line from the cart.
+     */
+    public void clear() {
+        items.clear();
+    }
+
+    public boolean isEmpty() {
+        return items.isEmpty();
+    }
+
+    public List<OrderItem> getItems() {
+        return Collections.unmodifiableList(items);
+    }
+
+    /**
+     * Returns the lines as an array, in the form the order DAO inserts.
+     *
+     * @return The order items.
+     */
+    public OrderItem[] toArray() {
+        return items.toArray(new OrderItem[0]);
+    }
+
+    /**
+     * Returns a string representation of the Cart object.
+     *
+     * @return A string containing the cart lines.
+     */
+    @Override
+    public String toString() {
+        return "Cart{"
+                + "items=" + items
+                + '}';
+    }
+}
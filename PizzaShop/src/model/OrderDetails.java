@@ -0,0 +1,30 @@
+package model;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * An immutable view of a placed order together with its customer and line
+ * items, as read for order tracking.
+ *
+ * @param orderId The ID of the order.
+ * @param orderDate When the order was placed.
+ * @param status The current status of the order.
+ * @param orderTotal The stored order total.
+ * @param specialInstructions Any special instructions, or null.
+ * @param customerId The ID of the customer.
+ * @param customerName The customer's name.
+ * @param phone The customer's phone number.
+ * @param address The delivery address.
+ * @param email The customer's email, or null.
+ * @param lineItems The items of the order, in the order they were added.
+ */
+public record OrderDetails(int orderId, Timestamp orderDate, String status, BigDecimal orderTotal,
+        String specialInstructions, int customerId, String customerName, String phone, String address,
+        String email, List<OrderLineItem> lineItems) {
+
+    public OrderDetails {
+        lineItems = List.copyOf(lineItems);
+    }
+}
@@ -0,0 +1,30 @@
+package model;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+/**
+ * One page of a customer's order history, newest first, and the cursor for
+ * the page after it.
+ *
+ * @param orders The orders on this page.
+ * @param next The cursor of the next page, or null if this is the last page.
+ */
+public record OrderHistoryPage(List<OrderSummary> orders, Cursor next) {
+
+    public OrderHistoryPage {
+        orders = List.copyOf(orders);
+    }
+
+    /**
+     * Marks where a page ended: the next page starts with the order placed
+     * just before this one. Pass null for the first page.
+     *
+     * @param orderDate The order date of the last order on the page.
+     * @param orderId The ID of the last order on the page, which breaks ties
+     * between orders placed at the same time.
+     */
+    public record Cursor(Timestamp orderDate, int orderId) {
+
+    }
+}
@@ -0,0 +1,17 @@
+package model;
+
+import java.math.BigDecimal;
+
+/**
+ * One line of a placed order as shown to the customer: which pizza, in what
+ * size and quantity, and what the line costs at the current menu price.
+ *
+ * @param pizzaName The name of the pizza.
+ * @param size The size label, e.g. "Large".
+ * @param quantity The number of pizzas on this line.
+ * @param linePrice The unit price times the quantity, or null if the pizza or
+ * size is no longer on the menu.
+ */
+public record OrderLineItem(String pizzaName, String size, int quantity, BigDecimal linePrice) {
+
+}
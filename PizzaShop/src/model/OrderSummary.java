@@ -0,0 +1,17 @@
+package model;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+/**
+ * One row of a customer's order history: enough to recognise an order and
+ * track it, without its items.
+ *
+ * @param orderId The ID of the order.
+ * @param orderDate When the order was placed.
+ * @param status The current status of the order.
+ * @param orderTotal The stored order total.
+ */
+public record OrderSummary(int orderId, Timestamp orderDate, String status, BigDecimal orderTotal) {
+
+}
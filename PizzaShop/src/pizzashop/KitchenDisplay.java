@@ -0,0 +1,211 @@
+package pizzashop;
+
+import service.KitchenScheduler;
+import service.KitchenService;
+import service.KitchenTicket;
+import util.AsyncExecutor;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+/**
+ * The kitchen display: the queue of waiting orders, most urgent first, and
+ * what is in each oven slot. It is driven by {@link KitchenScheduler} events,
+ * so each change updates one row and nothing is re-read from the database.
+ * An order placed in a slot by the scheduler is only a suggestion until staff
+ * select the slot and press Start, and it is only Ready once they press
+ * Ready; those buttons are what change the order's status.
+ */
+public class KitchenDisplay {
+
+    private static final Color SECONDARY_COLOR = new Color(80, 40, 20);
+    private static final Font HEADER_FONT = new Font("Segoe UI", Font.BOLD, 18);
+    private static final Font REGULAR_FONT = new Font("Segoe UI", Font.PLAIN, 14);
+
+    private final DefaultTableModel queueModel = new DefaultTableModel(
+            new String[]{"Order", "Pizzas", "Promised by", "Prep (min)"}, 0) {
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+    };
+    private final DefaultTableModel ovenModel;
+    private final KitchenService kitchen;
+    // Mirrors the queue rows, kept in urgency order for binary search
+    private final List<KitchenTicket> queued = new ArrayList<>();
+    private final SimpleDateFormat timeFormat = new SimpleDateFormat("HH:mm");
+
+    private KitchenDisplay(KitchenService kitchen) {
+        this.kitchen = kitchen;
+        ovenModel = new DefaultTableModel(new String[]{"Oven", "Order", "Pizzas", "State", "Est. ready"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        for (int slot = 0; slot < kitchen.getScheduler().getOvenSlots(); slot++) {
+            ovenModel.addRow(new Object[]{slot + 1, "", "", "", ""});
+        }
+    }
+
+    /**
+     * Opens a kitchen display window for a kitchen. Open it before starting
+     * the kitchen so no event is missed.
+     *
+     * @param kitchen The kitchen to display and confirm orders on.
+     */
+    public static void open(KitchenService kitchen) {
+        KitchenDisplay display = new KitchenDisplay(kitchen);
+        kitchen.getScheduler().addListener(display.new Updater());
+        SwingUtilities.invokeLater(display::show);
+    }
+
+    private void show() {
+        JFrame frame = new JFrame("Kitchen Display");
+        frame.setSize(600, 500);
+        frame.setDefaultCloseOperation(JFrame.HIDE_ON_CLOSE);
+
+        JPanel panel = new JPanel(new GridLayout(2, 1, 0, 10));
+        panel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        panel.add(titled("Queue", new JTable(queueModel)));
+
+        JTable ovenTable = new JTable(ovenModel);
+        ovenTable.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+        JPanel ovenPanel = titled("Ovens", ovenTable);
+        JButton startButton = new JButton("Start");
+        JButton readyButton = new JButton("Ready");
+        startButton.addActionListener(e -> confirm(frame, ovenTable, startButton, kitchen::confirmStarted,
+                (slot, ticket) -> {
+                    ovenModel.setValueAt("In the oven", slot, 3);
+                    ovenModel.setValueAt(timeFormat.format(new Date(System.currentTimeMillis() + ticket.prepMillis())), slot, 4);
+                }));
+        // The scheduler moves the next suggestion into the freed slot itself
+        readyButton.addActionListener(e -> confirm(frame, ovenTable, readyButton, kitchen::confirmReady,
+                (slot, ticket) -> {
+                }));
+        JPanel buttons = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttons.add(startButton);
+        buttons.add(readyButton);
+        ovenPanel.add(buttons, BorderLayout.SOUTH);
+        panel.add(ovenPanel);
+
+        frame.setContentPane(panel);
+        frame.setVisible(true);
+    }
+
+    /**
+     * Runs a confirmation for the selected oven slot off the event thread,
+     * then updates the row or reports why it was refused.
+     */
+    private void confirm(JFrame frame, JTable ovenTable, JButton button, SlotAction action, SlotUpdate onSuccess) {
+        int slot = ovenTable.getSelectedRow();
+        if (slot < 0) {
+            JOptionPane.showMessageDialog(frame, "Select an oven first.", "Kitchen", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        button.setEnabled(false);
+        AsyncExecutor.supplyToCompletion(() -> action.apply(slot))
+                .whenComplete((ticket, failure) -> SwingUtilities.invokeLater(() -> {
+                    button.setEnabled(true);
+                    if (failure == null) {
+                        onSuccess.update(slot, ticket);
+                        return;
+                    }
+                    Throwable cause = AsyncExecutor.unwrap(failure);
+                    if (!(cause instanceof IllegalStateException)) {
+                        Logger.getLogger(KitchenDisplay.class.getName()).log(Level.SEVERE, null, cause);
+                    }
+                    JOptionPane.showMessageDialog(frame, cause.getMessage(), "Kitchen", JOptionPane.WARNING_MESSAGE);
+                }));
+    }
+
+    private static JPanel titled(String title, JTable table) {
+        table.setFont(REGULAR_FONT);
+        table.setRowHeight(24);
+        JPanel panel = new JPanel(new BorderLayout());
+        JLabel label = new JLabel(title);
+        label.setFont(HEADER_FONT);
+        label.setForeground(SECONDARY_COLOR);
+        panel.add(label, BorderLayout.NORTH);
+        panel.add(new JScrollPane(table), BorderLayout.CENTER);
+        return panel;
+    }
+
+    private void addQueued(KitchenTicket ticket) {
+        int index = Collections.binarySearch(queued, ticket, KitchenTicket.BY_URGENCY);
+        index = index < 0 ? -index - 1 : index;
+        queued.add(index, ticket);
+        queueModel.insertRow(index, new Object[]{ticket.orderId(), ticket.pizzaCount(),
+            timeFormat.format(new Date(ticket.promisedBy())), ticket.prepMillis() / 60_000.0});
+    }
+
+    private void removeQueued(KitchenTicket ticket) {
+        int index = Collections.binarySearch(queued, ticket, KitchenTicket.BY_URGENCY);
+        if (index >= 0) {
+            queued.remove(index);
+            queueModel.removeRow(index);
+        }
+    }
+
+    /**
+     * Forwards scheduler events to the event thread.
+     */
+    private final class Updater implements KitchenScheduler.Listener {
+
+        @Override
+        public void ticketQueued(KitchenTicket ticket) {
+            SwingUtilities.invokeLater(() -> addQueued(ticket));
+        }
+
+        @Override
+        public void ticketCancelled(KitchenTicket ticket) {
+            SwingUtilities.invokeLater(() -> removeQueued(ticket));
+        }
+
+        @Override
+        public void ticketStarted(KitchenScheduler.Assignment assignment) {
+            SwingUtilities.invokeLater(() -> {
+                removeQueued(assignment.ticket());
+                ovenModel.setValueAt(assignment.ticket().orderId(), assignment.slot(), 1);
+                ovenModel.setValueAt(assignment.ticket().pizzaCount(), assignment.slot(), 2);
+                ovenModel.setValueAt("Suggested", assignment.slot(), 3);
+                ovenModel.setValueAt(timeFormat.format(new Date(assignment.readyAt())), assignment.slot(), 4);
+            });
+        }
+
+        @Override
+        public void ticketFinished(KitchenTicket ticket, int slot, long finishedAt) {
+            SwingUtilities.invokeLater(() -> {
+                for (int column = 1; column < 5; column++) {
+                    ovenModel.setValueAt("", slot, column);
+                }
+            });
+        }
+    }
+
+    /**
+     * A kitchen confirmation for one oven slot.
+     */
+    @FunctionalInterface
+    private interface SlotAction {
+
+        KitchenTicket apply(int slot) throws Exception;
+    }
+
+    /**
+     * Updates an oven row after a confirmation succeeded.
+     */
+    @FunctionalInterface
+    private interface SlotUpdate {
+
+        void update(int slot, KitchenTicket ticket);
+    }
+}
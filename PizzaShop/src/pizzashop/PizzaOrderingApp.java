@@ -1,7 +1,10 @@
 package pizzashop;
 
+import service.KitchenService;
+import service.MenuSnapshot;
 import service.OrderService;
 import service.PizzaService;
+import service.Size;
 
 import javax.swing.*;
 import javax.swing.border.EmptyBorder;
@@ -14,15 +17,24 @@ import java.awt.event.ActionListener;
 import java.math.BigDecimal;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.function.IntConsumer;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import model.Cart;
 import model.Customer;
 import model.Order;
+import model.OrderDetails;
+import model.OrderHistoryPage;
 import model.OrderItem;
+import model.OrderLineItem;
+import model.OrderSummary;
 import model.Pizza;
+import util.AsyncExecutor;
+import util.FlightRecording;
 
 public class PizzaOrderingApp {
 
@@ -38,13 +50,10 @@ public class PizzaOrderingApp {
     private static final Font HEADER_FONT = new Font("Segoe UI", Font.BOLD, 18);
     private static final Font REGULAR_FONT = new Font("Segoe UI", Font.PLAIN, 14);
 
-    private static final PizzaService pizzaService = new PizzaService();
-    private static final OrderService orderService = new OrderService();
+    private static final int HISTORY_PAGE_SIZE = 20;
 
-    //Stores all the pizza
-    private static List<Pizza> menu;
-    // Store pizzas in a Map to optimize lookups by name
-    private static Map<String, Pizza> pizzaMap;
+    private static final PizzaService pizzaService = new PizzaService();
+    private static final OrderService orderService = new OrderService(pizzaService);
 
     public static void main(String[] args) throws SQLException {
         try {
@@ -53,8 +62,11 @@ public class PizzaOrderingApp {
             e.printStackTrace();
         }
 
-        menu = pizzaService.getFullMenu();
-        convertPizzaListToMap(menu);
+        // Always-on flight recording of order placement, enabled with -Dpizzashop.jfr.enabled=true
+        FlightRecording.startIfEnabled();
+
+        // Load the menu snapshot once; panels and lookups read from it afterwards
+        pizzaService.getMenu();
         // Create and configure the main frame
         JFrame frame = new JFrame("Pizza Deluxe Ordering System");
         frame.setSize(1000, 700);
@@ -121,6 +133,23 @@ public class PizzaOrderingApp {
         // Display the frame
         frame.setLocationRelativeTo(null);
         frame.setVisible(true);
+
+        // Fill the sales rollups in the background, with retries; live orders are counted meanwhile
+        orderService.rebuildSalesRollupInBackground().whenComplete((orders, failure) -> {
+            if (failure != null) {
+                Logger.getLogger(PizzaOrderingApp.class.getName()).log(Level.WARNING,
+                        "Sales rollup rebuild abandoned; rollups count only orders placed since start-up", failure);
+            }
+        });
+
+        // Kitchen scheduling and display, enabled with -Dpizzashop.kitchen.enabled=true on one instance per shop
+        if (Boolean.getBoolean("pizzashop.kitchen.enabled")) {
+            KitchenService kitchen = new KitchenService(orderService,
+                    Integer.getInteger("pizzashop.kitchen.ovenSlots", 4),
+                    Long.getLong("pizzashop.kitchen.promiseMinutes", 30L) * 60_000L);
+            KitchenDisplay.open(kitchen);
+            kitchen.start();
+        }
     }
 
     // Custom JPanel class that paints a background image with improved overlay
@@ -235,7 +264,7 @@ public class PizzaOrderingApp {
         pizzaLabel.setForeground(SECONDARY_COLOR);
         selectionPanel.add(pizzaLabel);
 
-        String[] pizzaNames = pizzaService.getPizzaNames().toArray(new String[0]);
+        String[] pizzaNames = pizzaService.getMenu().getPizzaNames().toArray(new String[0]);
         JComboBox<String> pizzaList = new JComboBox<>(pizzaNames);
         pizzaList.setFont(REGULAR_FONT);
         pizzaList.setBorder(BorderFactory.createLineBorder(SECONDARY_COLOR));
@@ -248,7 +277,11 @@ public class PizzaOrderingApp {
         sizeLabel.setForeground(SECONDARY_COLOR);
         selectionPanel.add(sizeLabel);
 
-        JComboBox<String> sizeList = new JComboBox<>(new String[]{"Small", "Medium", "Large", "Extra Large"});
+        String[] sizeLabels = new String[Size.values().length];
+        for (Size size : Size.values()) {
+            sizeLabels[size.ordinal()] = size.getLabel();
+        }
+        JComboBox<String> sizeList = new JComboBox<>(sizeLabels);
         sizeList.setFont(REGULAR_FONT);
         sizeList.setBorder(BorderFactory.createLineBorder(SECONDARY_COLOR));
         sizeList.setBackground(new Color(255, 250, 240));
@@ -278,6 +311,82 @@ public class PizzaOrderingApp {
         notesField.setBackground(new Color(255, 250, 240));
         selectionPanel.add(notesField);
 
+        // Cart Section: several pizzas can be collected into one order
+        Cart cart = new Cart();
+        JPanel cartPanel = new JPanel(new BorderLayout(10, 10));
+        cartPanel.setOpaque(false);
+        cartPanel.setBorder(BorderFactory.createTitledBorder(
+                BorderFactory.createCompoundBorder(
+                        BorderFactory.createLineBorder(SECONDARY_COLOR),
+                        BorderFactory.createEmptyBorder(5, 5, 5, 5)
+                ),
+                "Your Cart", TitledBorder.LEFT, TitledBorder.TOP,
+                new Font("Segoe UI", Font.BOLD, 14), SECONDARY_COLOR));
+
+        DefaultListModel<String> cartModel = new DefaultListModel<>();
+        JList<String> cartList = new JList<>(cartModel);
+        cartList.setFont(REGULAR_FONT);
+        cartList.setVisibleRowCount(4);
+        cartList.setBackground(new Color(255, 250, 240));
+        cartPanel.add(new JScrollPane(cartList), BorderLayout.CENTER);
+
+        JLabel cartTotalLabel = new JLabel("Total: $0.00");
+        cartTotalLabel.setFont(new Font("Segoe UI", Font.BOLD, 14));
+        cartTotalLabel.setForeground(SECONDARY_COLOR);
+
+        // Rebuilds the cart list and total from the cart contents
+        Runnable refreshCart = () -> {
+            cartModel.clear();
+            try {
+                MenuSnapshot menu = pizzaService.getMenu();
+                for (OrderItem cartItem : cart.getItems()) {
+                    Pizza cartPizza = menu.findById(cartItem.getPizzaId());
+                    String name = cartPizza == null ? "Pizza #" + cartItem.getPizzaId() : cartPizza.getName();
+                    cartModel.addElement(cartItem.getQuantity() + " x " + name + " (" + cartItem.getSize() + ")");
+                }
+                BigDecimal total = cart.isEmpty() ? BigDecimal.ZERO : orderService.quote(cart).getTotal();
+                cartTotalLabel.setText("Total: $" + total);
+            } catch (SQLException | IllegalArgumentException ex) {
+                Logger.getLogger(PizzaOrderingApp.class.getName()).log(Level.WARNING, null, ex);
+                cartTotalLabel.setText("Total: unavailable");
+            }
+        };
+
+        JButton addToCartButton = createStyledButton("Add to Cart", HIGHLIGHT_COLOR, Color.WHITE);
+        addToCartButton.addActionListener(e -> {
+            try {
+                String pizzaName = pizzaList.getSelectedItem().toString();
+                // Lookup pizza by name (case-insensitive) in the current menu snapshot
+                Pizza pizza = pizzaService.getMenu().findByName(pizzaName);
+                if (pizza == null) {
+                    JOptionPane.showMessageDialog(null, "Pizza not found: " + pizzaName,
+                            "Unknown Pizza", JOptionPane.WARNING_MESSAGE);
+                    return;
+                }
+                cart.add(pizza.getPizzaId(), (String) sizeList.getSelectedItem(), (int) quantitySpinner.getValue());
+                quantitySpinner.setValue(1);
+                refreshCart.run();
+            } catch (SQLException ex) {
+                Logger.getLogger(PizzaOrderingApp.class.getName()).log(Level.SEVERE, null, ex);
+            }
+        });
+
+        JButton removeFromCartButton = createStyledButton("Remove", SECONDARY_COLOR, Color.WHITE);
+        removeFromCartButton.addActionListener(e -> {
+            int selected = cartList.getSelectedIndex();
+            if (selected >= 0) {
+                cart.remove(selected);
+                refreshCart.run();
+            }
+        });
+
+        JPanel cartButtons = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
+        cartButtons.setOpaque(false);
+        cartButtons.add(cartTotalLabel);
+        cartButtons.add(removeFromCartButton);
+        cartButtons.add(addToCartButton);
+        cartPanel.add(cartButtons, BorderLayout.SOUTH);
+
         // Customer Details Section with improved section header
         JPanel customerPanel = new JPanel(new GridLayout(0, 2, 10, 15));
         customerPanel.setOpaque(false);
@@ -349,23 +458,14 @@ public class PizzaOrderingApp {
                         return;
                     }
 
-                    String pizzaName = pizzaList.getSelectedItem().toString();
-                    // Lookup pizza by name (case-insensitive)
-                    Pizza pizza = pizzaMap.get(pizzaName.toLowerCase());
-
-                    if (pizza == null) {
-                        throw new IllegalArgumentException("Pizza not found: " + pizzaName);
+                    if (cart.isEmpty()) {
+                        // Nothing added yet: order the current selection on its own
+                        addToCartButton.doClick();
+                        if (cart.isEmpty()) {
+                            return;
+                        }
                     }
-
-                    String pizzaSize = (String) sizeList.getSelectedItem();
-                    int pizzaQuantity = (int) quantitySpinner.getValue();
-                    BigDecimal price = PizzaOrderingApp.getPizzaPrice(pizza, pizzaSize);
-                    BigDecimal totalValue = price.multiply(BigDecimal.valueOf(pizzaQuantity));
-
-                    OrderItem item = new OrderItem();
-                    item.setPizzaId(pizza.getPizzaId());
-                    item.setQuantity(pizzaQuantity);
-                    item.setSize(pizzaSize);
+                    BigDecimal totalValue = orderService.quote(cart).getTotal();
 
                     // Here you would save the customer information to the database
                     // customer_id (AUTO_INCREMENT), name, phone, address, email
@@ -381,24 +481,37 @@ public class PizzaOrderingApp {
                     order.setSpecialInstructions(notesField.getText());
                     order.setOrderTotal(totalValue);
 
-                    int orderId = orderService.placeOrder(customer, new OrderItem[]{item}, notesField.getText(), totalValue);
-                    String orderIdString = "ORD" + orderId;
-//                  String orderIdString = "ORD" + orderCounter++;
-
-                    String orderDetails = "Pizza: " + pizzaName
-                            + ", Size: " + pizzaSize
-                            + ", Quantity: " + pizzaQuantity;
-                    orders.put(orderIdString, "Processing");
-
-                    JOptionPane.showMessageDialog(null,
-                            "<html><h2 style='color:#A42323;'>Order Placed Successfully!</h2>"
-                            + "<p>Your Order ID: <b>" + orderId + "</b></p>"
-                            + "<p>Order Details: " + orderDetails + "</p>"
-                            + "<p>We'll deliver to: " + addressField.getText() + "</p>"
-                            + "<p>Confirmation " + (customerEmail.equals("Not provided") ? "will not be sent (no email provided)"
-                            : "will be sent to: " + customerEmail) + "</p>"
-                            + "<p>Estimated delivery time: 30-45 minutes</p></html>",
-                            "Order Confirmation", JOptionPane.INFORMATION_MESSAGE);
+                    String orderDetails = String.join(", ", Collections.list(cartModel.elements()))
+                            + " (Total: $" + totalValue + ")";
+                    String deliveryAddress = addressField.getText();
+
+                    // Place the order off the event thread and report back on it
+                    orderButton.setEnabled(false);
+                    orderService.placeOrderAsync(customer, cart, notesField.getText())
+                            .whenComplete((orderId, failure) -> SwingUtilities.invokeLater(() -> {
+                        orderButton.setEnabled(true);
+                        if (failure != null) {
+                            Logger.getLogger(PizzaOrderingApp.class.getName()).log(Level.SEVERE, null, AsyncExecutor.unwrap(failure));
+                            JOptionPane.showMessageDialog(null, "Your order could not be placed. Please try again.",
+                                    "Order Failed", JOptionPane.ERROR_MESSAGE);
+                            return;
+                        }
+                        cart.clear();
+                        refreshCart.run();
+                        String orderIdString = "ORD" + orderId;
+//                      String orderIdString = "ORD" + orderCounter++;
+                        orders.put(orderIdString, "Processing");
+
+                        JOptionPane.showMessageDialog(null,
+                                "<html><h2 style='color:#A42323;'>Order Placed Successfully!</h2>"
+                                + "<p>Your Order ID: <b>" + orderId + "</b></p>"
+                                + "<p>Order Details: " + orderDetails + "</p>"
+                                + "<p>We'll deliver to: " + deliveryAddress + "</p>"
+                                + "<p>Confirmation " + (customerEmail.equals("Not provided") ? "will not be sent (no email provided)"
+                                : "will be sent to: " + customerEmail) + "</p>"
+                                + "<p>Estimated delivery time: 30-45 minutes</p></html>",
+                                "Order Confirmation", JOptionPane.INFORMATION_MESSAGE);
+                    }));
                 } catch (SQLException ex) {
                     Logger.getLogger(PizzaOrderingApp.class.getName()).log(Level.SEVERE, null, ex);
                 }
@@ -418,6 +531,8 @@ public class PizzaOrderingApp {
                 phoneField.setText("");
                 addressField.setText("");
                 emailField.setText(""); // Reset email field
+                cart.clear();
+                refreshCart.run();
             }
         });
 
@@ -429,6 +544,8 @@ public class PizzaOrderingApp {
 
         // Add components to transparent panel
         transparentPanel.add(selectionPanel);
+        transparentPanel.add(Box.createVerticalStrut(10));
+        transparentPanel.add(cartPanel);
         transparentPanel.add(Box.createVerticalStrut(20));
         transparentPanel.add(customerPanel);
         transparentPanel.add(Box.createVerticalStrut(20));
@@ -451,7 +568,7 @@ public class PizzaOrderingApp {
 
         // Create table model with more detailed menu
         String[] columnNames = {"Pizza Type", "Description", "Small", "Medium", "Large"};
-        List<Pizza> menu = pizzaService.getFullMenu();
+        List<Pizza> menu = pizzaService.getMenu().getPizzas();
         Object[][] pizzaData = {
             {"Margherita", "Classic tomato, mozzarella, basil", "$10", "$12", "$14"},
             {"Pepperoni", "Pepperoni, cheese, tomato sauce", "$12", "$14", "$16"},
@@ -525,10 +642,27 @@ public class PizzaOrderingApp {
 
         // Track button with coordinated styling
         JButton trackButton = createStyledButton("Track Order", HIGHLIGHT_COLOR, Color.WHITE);
+        // For customers who no longer have their order ID
+        JButton findByPhoneButton = createStyledButton("Find by Phone", SECONDARY_COLOR, Color.WHITE);
+        findByPhoneButton.addActionListener(e -> {
+            String phone = JOptionPane.showInputDialog(parentFrame, "Enter the phone number used for the order:",
+                    "Find My Orders", JOptionPane.QUESTION_MESSAGE);
+            if (phone != null && !phone.trim().isEmpty()) {
+                showOrderHistory(parentFrame, phone.trim(), orderId -> {
+                    orderIdField.setText(String.valueOf(orderId));
+                    trackButton.doClick();
+                });
+            }
+        });
+
+        JPanel buttonPanel = new JPanel(new GridLayout(1, 2, 10, 0));
+        buttonPanel.setOpaque(false);
+        buttonPanel.add(trackButton);
+        buttonPanel.add(findByPhoneButton);
 
         inputPanel.add(orderIdLabel, BorderLayout.WEST);
         inputPanel.add(orderIdField, BorderLayout.CENTER);
-        inputPanel.add(trackButton, BorderLayout.EAST);
+        inputPanel.add(buttonPanel, BorderLayout.EAST);
 
         // Status display panel with warmer colors
         JPanel statusPanel = new JPanel(new BorderLayout());
@@ -542,6 +676,8 @@ public class PizzaOrderingApp {
         JLabel statusLabel = new JLabel("No order selected");
         statusLabel.setFont(REGULAR_FONT);
         statusLabel.setForeground(SECONDARY_COLOR);
+        // The order shown in statusLabel, or -1; only touched on the event thread
+        int[] trackedOrderId = {-1};
 
         JPanel statusInfoPanel = new JPanel(new GridLayout(4, 1, 0, 5));
         statusInfoPanel.setOpaque(false);
@@ -579,16 +715,16 @@ public class PizzaOrderingApp {
                 }
                 StringBuilder sb = new StringBuilder();
                 try {
-                    HashMap<String, String> map = orderService.getOrderDetails(Integer.parseInt(orderId));
-                    if (map == null) {
+                    OrderDetails details = orderService.getOrderDetails(Integer.parseInt(orderId));
+                    if (details == null) {
                         sb.append("Invalid Order Id: Order ID not found");
                     } else {
                         sb.append("<html><h3>Customer Information</h3>"
-                                + "<p><b>Order ID:</b> " + map.get("order_id") + "</p>"
-                                + "<p><b>Name:</b> " + map.get("customer_name") + "</p>"
-                                + "<p><b>Phone:</b> " + map.get("phone") + "</p>"
-                                + "<p><b>Address:</b> " + map.get("address") + "</p>"
-                                + "<p><b>Email:</b> " + map.get("email") + "</p></html>");
+                                + "<p><b>Order ID:</b> " + details.orderId() + "</p>"
+                                + "<p><b>Name:</b> " + details.customerName() + "</p>"
+                                + "<p><b>Phone:</b> " + details.phone() + "</p>"
+                                + "<p><b>Address:</b> " + details.address() + "</p>"
+                                + "<p><b>Email:</b> " + details.email() + "</p></html>");
                     }
                 } catch (NumberFormatException e) {
                     sb.append("Invalid Order Id: Enter numeric Order Id");  // It's not numeric
@@ -619,15 +755,25 @@ public class PizzaOrderingApp {
                 }
                 StringBuilder sb = new StringBuilder();
                 try {
-                    HashMap<String, String> map = orderService.getOrderDetails(Integer.parseInt(orderId));
-                    if (map == null) {
+                    OrderDetails details = orderService.getOrderDetails(Integer.parseInt(orderId));
+                    if (details == null) {
                         sb.append("Invalid Order Id: Order ID not found");
                     } else {
                         sb.append("<html><h3>Order Details</h3>"
-                                + "<p><b>Order ID:</b> " + map.get("order_id") + "</p>"
-                                + "<p><b>Ordered Pizza:</b> " + map.get("ordered_items") + "</p>"
-                                + "<p><b>Special Instructions:</b> " + map.get("special_instructions") + "</p>"
-                                + "<p><b>Total:</b> $" + map.get("order_total") + "</p></html>");
+                                + "<p><b>Order ID:</b> " + details.orderId() + "</p>"
+                                + "<p><b>Ordered Pizza:</b></p><ul>");
+                        for (OrderLineItem line : details.lineItems()) {
+                            sb.append("<li>").append(line.quantity()).append(" x ").append(line.pizzaName())
+                                    .append(" (").append(line.size()).append(")");
+                            if (line.linePrice() != null) {
+                                sb.append(" - $").append(line.linePrice());
+                            }
+                            sb.append("</li>");
+                        }
+                        String instructions = details.specialInstructions();
+                        sb.append("</ul><p><b>Special Instructions:</b> "
+                                + (instructions == null || instructions.isEmpty() ? "None" : instructions) + "</p>"
+                                + "<p><b>Total:</b> $" + details.orderTotal() + "</p></html>");
                     }
                 } catch (NumberFormatException e) {
                     sb.append("Invalid Order Id: Enter numeric Order Id");  // It's not numeric
@@ -665,23 +811,34 @@ public class PizzaOrderingApp {
                     return;
                 }
 
+                int id;
                 try {
-                    HashMap<String, String> map = orderService.getOrderDetails(Integer.parseInt(orderId));
-                    if (map == null) {
+                    id = Integer.parseInt(orderId);
+                } catch (NumberFormatException ne) {
+                    statusLabel.setText("Invalid Order Id: Enter numeric Order Id");
+                    statusLabel.setForeground(new Color(180, 0, 0));
+                    return;
+                }
+
+                statusLabel.setText("Looking up order " + orderId + "...");
+                statusLabel.setForeground(SECONDARY_COLOR);
+                orderService.getOrderDetailsAsync(id).whenComplete((details, failure) -> SwingUtilities.invokeLater(() -> {
+                    trackedOrderId[0] = -1;
+                    if (failure != null) {
+                        Logger.getLogger(PizzaOrderingApp.class.getName()).log(Level.SEVERE, null, AsyncExecutor.unwrap(failure));
+                        statusLabel.setText("Unable to look up order " + orderId + " right now");
+                        statusLabel.setForeground(new Color(180, 0, 0));
+                    } else if (details == null) {
                         statusLabel.setText("No order found with ID: " + orderId);
                         statusLabel.setForeground(new Color(180, 0, 0));
                         estimatedTimeLabel.setText("");
                         deliveryInfoLabel.setText("");
                     } else {
-                        statusLabel.setText("Status: " + map.get("order_status"));
+                        trackedOrderId[0] = details.orderId();
+                        statusLabel.setText("Status: " + details.status());
                         statusLabel.setForeground(new Color(0, 120, 0));
                     }
-                } catch (NumberFormatException ne) {
-                    statusLabel.setText("Invalid Order Id: Enter numeric Order Id");
-                    statusLabel.setForeground(new Color(180, 0, 0));
-                } catch (SQLException ex) {
-                    Logger.getLogger(PizzaOrderingApp.class.getName()).log(Level.SEVERE, null, ex);
-                }
+                }));
 
 //                String status = orders.getOrDefault(orderId, "Invalid Order ID");
 //
@@ -710,6 +867,14 @@ public class PizzaOrderingApp {
             }
         });
 
+        // Live status: the change feed pushes updates for the tracked order
+        orderService.subscribeToStatusChanges(update -> SwingUtilities.invokeLater(() -> {
+            if (update.getOrderId() == trackedOrderId[0]) {
+                statusLabel.setText("Status: " + update.getNewStatus());
+                statusLabel.setForeground(new Color(0, 120, 0));
+            }
+        }));
+
         // Add components to transparent panel
         transparentPanel.add(inputPanel, BorderLayout.NORTH);
         transparentPanel.add(statusPanel, BorderLayout.CENTER);
@@ -720,6 +885,79 @@ public class PizzaOrderingApp {
         return panel;
     }
 
+    /**
+     * Shows the orders placed with a phone number, newest first, a page at a
+     * time. Choosing an order hands its ID to {@code onTrack}.
+     */
+    private static void showOrderHistory(JFrame parentFrame, String phone, IntConsumer onTrack) {
+        DefaultTableModel model = new DefaultTableModel(new String[]{"Order ID", "Placed", "Status", "Total"}, 0) {
+            @Override
+            public boolean isCellEditable(int row, int column) {
+                return false;
+            }
+        };
+        JTable table = new JTable(model);
+        table.setFont(REGULAR_FONT);
+        table.setRowHeight(24);
+        table.setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
+
+        JDialog dialog = new JDialog(parentFrame, "Orders for " + phone, true);
+        JLabel messageLabel = new JLabel("Looking up orders...");
+        messageLabel.setFont(REGULAR_FONT);
+        messageLabel.setForeground(SECONDARY_COLOR);
+        JButton moreButton = createStyledButton("More", SECONDARY_COLOR, Color.WHITE);
+        moreButton.setEnabled(false);
+        JButton trackButton = createStyledButton("Track", HIGHLIGHT_COLOR, Color.WHITE);
+
+        // The cursor of the next page; only touched on the event thread
+        OrderHistoryPage.Cursor[] next = {null};
+        Runnable loadPage = () -> {
+            moreButton.setEnabled(false);
+            orderService.getOrderHistoryAsync(phone, next[0], HISTORY_PAGE_SIZE)
+                    .whenComplete((page, failure) -> SwingUtilities.invokeLater(() -> {
+                        if (failure != null) {
+                            Logger.getLogger(PizzaOrderingApp.class.getName()).log(Level.SEVERE, null, AsyncExecutor.unwrap(failure));
+                            messageLabel.setText("Unable to look up orders right now");
+                            moreButton.setEnabled(next[0] != null);
+                            return;
+                        }
+                        for (OrderSummary order : page.orders()) {
+                            model.addRow(new Object[]{order.orderId(), order.orderDate(), order.status(), "$" + order.orderTotal()});
+                        }
+                        next[0] = page.next();
+                        moreButton.setEnabled(next[0] != null);
+                        messageLabel.setText(model.getRowCount() == 0 ? "No orders found for " + phone
+                                : model.getRowCount() + (next[0] == null ? " orders" : " most recent orders"));
+                    }));
+        };
+        moreButton.addActionListener(e -> loadPage.run());
+        trackButton.addActionListener(e -> {
+            int row = table.getSelectedRow();
+            if (row < 0) {
+                JOptionPane.showMessageDialog(dialog, "Please select an order",
+                        "Missing Information", JOptionPane.WARNING_MESSAGE);
+                return;
+            }
+            dialog.dispose();
+            onTrack.accept((Integer) model.getValueAt(row, 0));
+        });
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT, 10, 0));
+        buttonPanel.add(moreButton);
+        buttonPanel.add(trackButton);
+        JPanel content = new JPanel(new BorderLayout(0, 10));
+        content.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        content.add(messageLabel, BorderLayout.NORTH);
+        content.add(new JScrollPane(table), BorderLayout.CENTER);
+        content.add(buttonPanel, BorderLayout.SOUTH);
+        dialog.setContentPane(content);
+        dialog.setSize(520, 360);
+        dialog.setLocationRelativeTo(parentFrame);
+
+        loadPage.run();
+        dialog.setVisible(true);
+    }
+
     private static JPanel createFooterPanel() {
         JPanel footerPanel = new JPanel();
         footerPanel.setLayout(new FlowLayout(FlowLayout.CENTER));
@@ -807,30 +1045,4 @@ public class PizzaOrderingApp {
 
         return pizzaData;
     }
-
-    // Method to create pizzaMap from a List<Pizza>
-    private static void convertPizzaListToMap(List<Pizza> pizzas) {
-        pizzaMap = new HashMap<>();
-        for (Pizza pizza : pizzas) {
-            // Convert to lowercase for case-insensitive lookup
-            pizzaMap.put(pizza.getName().toLowerCase(), pizza);
-        }
-    }
-
-    // Method to get the price based on pizza name and size
-    public static BigDecimal getPizzaPrice(Pizza pizza, String size) {
-        // Return the price based on size
-        switch (size.toLowerCase()) {
-            case "small":
-                return pizza.getSmallPrice();
-            case "medium":
-                return pizza.getMediumPrice();
-            case "large":
-                return pizza.getLargePrice();
-            case "extralarge":
-                return pizza.getExtraLargePrice();
-            default:
-                throw new IllegalArgumentException("Invalid size: " + size);
-        }
-    }
 }
@@ -0,0 +1,239 @@
+package service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Sequences active orders through a fixed number of oven slots. Waiting
+ * tickets are kept in a priority queue ordered by
+ * {@link KitchenTicket#BY_URGENCY}; whenever a slot is free the most urgent
+ * ticket takes it. The scheduler keeps no clock of its own — callers pass the
+ * current time — so the same code runs the live kitchen and the
+ * {@link KitchenSimulator}.
+ *
+ * <p>
+ * Listeners are told about every change as it happens, so a display can be
+ * kept up to date incrementally. They are called while the scheduler is
+ * locked and must return quickly.</p>
+ */
+public class KitchenScheduler {
+
+    private final PriorityQueue<KitchenTicket> queue = new PriorityQueue<>(KitchenTicket.BY_URGENCY);
+    private final KitchenTicket[] ovens;
+    private final long[] readyAt;
+    private final List<Listener> listeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * Creates a scheduler with idle ovens.
+     *
+     * @param ovenSlots The number of orders that can be cooked at once.
+     */
+    public KitchenScheduler(int ovenSlots) {
+        if (ovenSlots < 1) {
+            throw new IllegalArgumentException("ovenSlots must be positive: " + ovenSlots);
+        }
+        this.ovens = new KitchenTicket[ovenSlots];
+        this.readyAt = new long[ovenSlots];
+    }
+
+    /**
+     * Registers a listener for queue and oven changes.
+     *
+     * @param listener The listener.
+     */
+    public void addListener(Listener listener) {
+        listeners.add(listener);
+    }
+
+    /**
+     * Adds a ticket to the queue. Call {@link #dispatch(long)} afterwards to
+     * start it if an oven is free.
+     *
+     * @param ticket The ticket.
+     */
+    public synchronized void submit(KitchenTicket ticket) {
+        queue.add(ticket);
+        for (Listener listener : listeners) {
+            listener.ticketQueued(ticket);
+        }
+    }
+
+    /**
+     * Moves the most urgent waiting tickets into every free oven slot.
+     *
+     * @param now The current time, in milliseconds.
+     * @return The tickets started, with their slots and ready times.
+     */
+    public synchronized List<Assignment> dispatch(long now) {
+        List<Assignment> started = new ArrayList<>(0);
+        for (int slot = 0; slot < ovens.length && !queue.isEmpty(); slot++) {
+            if (ovens[slot] != null) {
+                continue;
+            }
+            KitchenTicket ticket = queue.poll();
+            ovens[slot] = ticket;
+            readyAt[slot] = now + ticket.prepMillis();
+            Assignment assignment = new Assignment(slot, ticket, now, readyAt[slot]);
+            started.add(assignment);
+            for (Listener listener : listeners) {
+                listener.ticketStarted(assignment);
+            }
+        }
+        return started;
+    }
+
+    /**
+     * Frees an oven slot once its ticket is done.
+     *
+     * @param slot The slot.
+     * @param now The current time, in milliseconds.
+     * @return The finished ticket, or null if the slot was idle.
+     */
+    public synchronized KitchenTicket finish(int slot, long now) {
+        KitchenTicket ticket = ovens[slot];
+        if (ticket == null) {
+            return null;
+        }
+        ovens[slot] = null;
+        for (Listener listener : listeners) {
+            listener.ticketFinished(ticket, slot, now);
+        }
+        return ticket;
+    }
+
+    /**
+     * Removes a waiting ticket, e.g. when its order is cancelled.
+     *
+     * @param orderId The ID of the order.
+     * @return True if the ticket was waiting and has been removed.
+     */
+    public synchronized boolean cancel(int orderId) {
+        KitchenTicket found = null;
+        for (KitchenTicket ticket : queue) {
+            if (ticket.orderId() == orderId) {
+                found = ticket;
+                break;
+            }
+        }
+        if (found == null || !queue.remove(found)) {
+            return false;
+        }
+        for (Listener listener : listeners) {
+            listener.ticketCancelled(found);
+        }
+        return true;
+    }
+
+    /**
+     * Returns the ticket in an oven slot.
+     *
+     * @param slot The slot.
+     * @return The ticket, or null if the slot is idle.
+     */
+    public synchronized KitchenTicket ticketAt(int slot) {
+        return ovens[slot];
+    }
+
+    /**
+     * Returns the slot holding an order's ticket.
+     *
+     * @param orderId The ID of the order.
+     * @return The slot, or -1 if the order is not in an oven slot.
+     */
+    public synchronized int slotOf(int orderId) {
+        for (int slot = 0; slot < ovens.length; slot++) {
+            if (ovens[slot] != null && ovens[slot].orderId() == orderId) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the slot that frees up first.
+     *
+     * @return The busy slot with the earliest ready time, or -1 if every
+     * slot is idle.
+     */
+    public synchronized int nextReadySlot() {
+        int next = -1;
+        for (int slot = 0; slot < ovens.length; slot++) {
+            if (ovens[slot] != null && (next < 0 || readyAt[slot] < readyAt[next])) {
+                next = slot;
+            }
+        }
+        return next;
+    }
+
+    /**
+     * Returns when a busy slot's ticket is ready.
+     *
+     * @param slot The slot.
+     * @return The ready time, in milliseconds.
+     */
+    public synchronized long readyAt(int slot) {
+        return readyAt[slot];
+    }
+
+    public int getOvenSlots() {
+        return ovens.length;
+    }
+
+    public synchronized int getQueueLength() {
+        return queue.size();
+    }
+
+    /**
+     * A ticket placed in an oven slot.
+     *
+     * @param slot The oven slot.
+     * @param ticket The ticket.
+     * @param startedAt When it went in, in milliseconds.
+     * @param readyAt When it will be done, in milliseconds.
+     */
+    public record Assignment(int slot, KitchenTicket ticket, long startedAt, long readyAt) {
+
+    }
+
+    /**
+     * Receives queue and oven changes.
+     */
+    public interface Listener {
+
+        /**
+         * Called when a ticket joins the queue.
+         *
+         * @param ticket The ticket.
+         */
+        default void ticketQueued(KitchenTicket ticket) {
+        }
+
+        /**
+         * Called when a ticket leaves the queue without being cooked.
+         *
+         * @param ticket The ticket.
+         */
+        default void ticketCancelled(KitchenTicket ticket) {
+        }
+
+        /**
+         * Called when a ticket moves from the queue into an oven slot.
+         *
+         * @param assignment The slot, ticket and times.
+         */
+        default void ticketStarted(Assignment assignment) {
+        }
+
+        /**
+         * Called when a ticket is done and its slot is free.
+         *
+         * @param ticket The ticket.
+         * @param slot The freed slot.
+         * @param finishedAt When it finished, in milliseconds.
+         */
+        default void ticketFinished(KitchenTicket ticket, int slot, long finishedAt) {
+        }
+    }
+}
@@ -0,0 +1,173 @@
+package service;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import model.OrderDetails;
+
+/**
+ * Runs the live kitchen: feeds a {@link KitchenScheduler} with orders as they
+ * are placed and suggests which order to start in each free oven slot. The
+ * schedule is advisory; an order only moves through Preparing, In the oven
+ * and Ready when kitchen staff confirm it with {@link #confirmStarted(int)}
+ * and {@link #confirmReady(int)}, so customers tracking an order never see a
+ * status nobody has checked. New orders arrive through
+ * {@link OrderService#subscribeToPlacedOrders} and cancellations through the
+ * status change feed, so nothing polls the orders table; the backlog of
+ * pending orders is read once at start-up.
+ *
+ * <p>
+ * Run one kitchen per shop: every instance started with
+ * {@code pizzashop.kitchen.enabled} loads the same pending backlog and would
+ * suggest the same orders on each display.</p>
+ */
+public class KitchenService {
+
+    private static final int BACKLOG_LIMIT = 500;
+
+    private final OrderService orderService;
+    private final KitchenScheduler scheduler;
+    private final long promiseMillis;
+    private final Set<Integer> ticketed = ConcurrentHashMap.newKeySet();
+    // Orders staff have confirmed as started; the rest of the oven slots are suggestions
+    private final Set<Integer> started = ConcurrentHashMap.newKeySet();
+    private final List<Runnable> subscriptions = new ArrayList<>(2);
+
+    /**
+     * Creates a kitchen. Nothing is scheduled until {@link #start()}.
+     *
+     * @param orderService The service orders are placed and updated through.
+     * @param ovenSlots The number of orders that can be cooked at once.
+     * @param promiseMillis How long after placing an order it is promised.
+     */
+    public KitchenService(OrderService orderService, int ovenSlots, long promiseMillis) {
+        this.orderService = orderService;
+        this.scheduler = new KitchenScheduler(ovenSlots);
+        this.promiseMillis = promiseMillis;
+    }
+
+    /**
+     * Returns the scheduler, e.g. to attach a kitchen display before
+     * starting.
+     *
+     * @return The scheduler.
+     */
+    public KitchenScheduler getScheduler() {
+        return scheduler;
+    }
+
+    /**
+     * Subscribes to new orders and cancellations, then queues the orders that
+     * were already pending.
+     *
+     * @throws SQLException If the pending orders cannot be read.
+     */
+    public void start() throws SQLException {
+        subscriptions.add(orderService.subscribeToPlacedOrders((orderId, orderItems)
+                -> submit(KitchenTicket.of(orderId, orderItems, System.currentTimeMillis(), promiseMillis))));
+        subscriptions.add(orderService.subscribeToStatusChanges(update -> {
+            if (OrderStatus.CANCELLED.getLabel().equalsIgnoreCase(update.getNewStatus())) {
+                cancel(update.getOrderId());
+            }
+        }));
+        for (OrderDetails details : orderService.getOrdersByStatus(OrderStatus.PENDING.getLabel(), BACKLOG_LIMIT)) {
+            submit(KitchenTicket.of(details.orderId(), details.lineItems(), details.orderDate().getTime(), promiseMillis));
+        }
+    }
+
+    /**
+     * Records that staff have started the order suggested for an oven slot,
+     * moving it to Preparing and then In the oven.
+     *
+     * @param slot The oven slot.
+     * @return The order's ticket.
+     * @throws SQLException If the status cannot be read.
+     * @throws IllegalStateException If the slot is idle, the order was
+     * already started, or its status no longer allows it, e.g. it was
+     * cancelled.
+     */
+    public synchronized KitchenTicket confirmStarted(int slot) throws SQLException {
+        KitchenTicket ticket = scheduler.ticketAt(slot);
+        if (ticket == null) {
+            throw new IllegalStateException("Oven " + (slot + 1) + " has no order");
+        }
+        if (started.contains(ticket.orderId())) {
+            throw new IllegalStateException("Order " + ticket.orderId() + " is already in the oven");
+        }
+        orderService.updateOrderStatus(ticket.orderId(), OrderStatus.PREPARING);
+        orderService.updateOrderStatus(ticket.orderId(), OrderStatus.IN_THE_OVEN);
+        started.add(ticket.orderId());
+        return ticket;
+    }
+
+    /**
+     * Records that staff have taken the order in an oven slot out ready,
+     * moving it to Ready, and suggests the next order for the slot.
+     *
+     * @param slot The oven slot.
+     * @return The order's ticket.
+     * @throws SQLException If the status cannot be read.
+     * @throws IllegalStateException If the slot holds no started order.
+     */
+    public synchronized KitchenTicket confirmReady(int slot) throws SQLException {
+        KitchenTicket ticket = scheduler.ticketAt(slot);
+        if (ticket == null || !started.contains(ticket.orderId())) {
+            throw new IllegalStateException("Oven " + (slot + 1) + " has no order in the oven");
+        }
+        orderService.updateOrderStatus(ticket.orderId(), OrderStatus.READY);
+        started.remove(ticket.orderId());
+        ticketed.remove(ticket.orderId());
+        scheduler.finish(slot, System.currentTimeMillis());
+        dispatch();
+        return ticket;
+    }
+
+    /**
+     * Returns whether staff have started the order in an oven slot.
+     *
+     * @param slot The oven slot.
+     * @return False if the slot is idle or only holds a suggestion.
+     */
+    public boolean isStarted(int slot) {
+        KitchenTicket ticket = scheduler.ticketAt(slot);
+        return ticket != null && started.contains(ticket.orderId());
+    }
+
+    /**
+     * Stops following new orders and cancellations. Orders in progress stay
+     * in their current status.
+     */
+    public void close() {
+        subscriptions.forEach(Runnable::run);
+        subscriptions.clear();
+    }
+
+    private void submit(KitchenTicket ticket) {
+        // An order placed during start-up can arrive both ways
+        if (ticketed.add(ticket.orderId())) {
+            scheduler.submit(ticket);
+            dispatch();
+        }
+    }
+
+    private synchronized void cancel(int orderId) {
+        if (scheduler.cancel(orderId)) {
+            ticketed.remove(orderId);
+            return;
+        }
+        int slot = scheduler.slotOf(orderId);
+        if (slot >= 0 && !started.contains(orderId)) {
+            // Only suggested; free the slot for the next order
+            ticketed.remove(orderId);
+            scheduler.finish(slot, System.currentTimeMillis());
+            dispatch();
+        }
+    }
+
+    private void dispatch() {
+        // Suggestions only; statuses change when staff confirm
+        scheduler.dispatch(System.currentTimeMillis());
+    }
+}
@@ -0,0 +1,194 @@
+package service;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import model.OrderItem;
+
+/**
+ * Replays order traces through a {@link KitchenScheduler} on a simulated
+ * clock, to see how the kitchen copes with a given load and number of ovens.
+ * Events (arrivals and oven completions) are processed in time order with no
+ * real waiting, so a whole evening replays in milliseconds.
+ *
+ * <p>
+ * A trace is a text file with one order per line:</p>
+ * <pre>
+ * # arrival_seconds,pizzas,size[,promise_minutes]
+ * 0,2,Large
+ * 45,1,Small,20
+ * </pre>
+ *
+ * <p>
+ * Usage: {@code java service.KitchenSimulator [--ovens=N] [--promise=MINUTES]
+ * trace.csv...}. For every trace the simulator prints oven utilization, queue
+ * wait percentiles and how many orders missed their promised time.</p>
+ */
+public class KitchenSimulator {
+
+    private static final long DEFAULT_PROMISE_MINUTES = 30;
+
+    private final int ovenSlots;
+    private final long promiseMillis;
+
+    /**
+     * Creates a simulator.
+     *
+     * @param ovenSlots The number of oven slots to simulate.
+     * @param promiseMillis The promise used for orders that do not set one.
+     */
+    public KitchenSimulator(int ovenSlots, long promiseMillis) {
+        this.ovenSlots = ovenSlots;
+        this.promiseMillis = promiseMillis;
+    }
+
+    public static void main(String[] args) throws IOException {
+        int ovens = Integer.getInteger("pizzashop.kitchen.ovenSlots", 4);
+        long promiseMinutes = DEFAULT_PROMISE_MINUTES;
+        List<Path> traces = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.startsWith("--ovens=")) {
+                ovens = Integer.parseInt(arg.substring("--ovens=".length()));
+            } else if (arg.startsWith("--promise=")) {
+                promiseMinutes = Long.parseLong(arg.substring("--promise=".length()));
+            } else {
+                traces.add(Paths.get(arg));
+            }
+        }
+        if (traces.isEmpty()) {
+            System.out.println("Usage: java service.KitchenSimulator [--ovens=N] [--promise=MINUTES] trace.csv...");
+            return;
+        }
+
+        KitchenSimulator simulator = new KitchenSimulator(ovens, promiseMinutes * 60_000L);
+        for (Path trace : traces) {
+            System.out.println(trace + ": " + simulator.run(readTrace(trace, promiseMinutes * 60_000L)));
+        }
+    }
+
+    /**
+     * Replays a trace and measures the kitchen.
+     *
+     * @param arrivals The orders, sorted by {@link KitchenTicket#placedAt()}.
+     * @return The measurements.
+     */
+    public Report run(List<KitchenTicket> arrivals) {
+        KitchenScheduler scheduler = new KitchenScheduler(ovenSlots);
+        long[] waits = new long[arrivals.size()];
+        long[] busyMillis = new long[1];
+        int[] started = new int[1];
+        int[] late = new int[1];
+        scheduler.addListener(new KitchenScheduler.Listener() {
+            @Override
+            public void ticketStarted(KitchenScheduler.Assignment assignment) {
+                waits[started[0]++] = assignment.startedAt() - assignment.ticket().placedAt();
+                busyMillis[0] += assignment.ticket().prepMillis();
+                if (assignment.readyAt() > assignment.ticket().promisedBy()) {
+                    late[0]++;
+                }
+            }
+        });
+
+        long start = arrivals.isEmpty() ? 0 : arrivals.get(0).placedAt();
+        long now = start;
+        int next = 0;
+        while (true) {
+            int slot = scheduler.nextReadySlot();
+            long nextArrival = next < arrivals.size() ? arrivals.get(next).placedAt() : Long.MAX_VALUE;
+            long nextReady = slot < 0 ? Long.MAX_VALUE : scheduler.readyAt(slot);
+            if (nextArrival == Long.MAX_VALUE && nextReady == Long.MAX_VALUE) {
+                break;
+            }
+            // Free ovens before admitting arrivals at the same instant
+            if (nextReady <= nextArrival) {
+                now = nextReady;
+                scheduler.finish(slot, now);
+            } else {
+                now = nextArrival;
+                scheduler.submit(arrivals.get(next++));
+            }
+            scheduler.dispatch(now);
+        }
+
+        Arrays.sort(waits, 0, started[0]);
+        long span = Math.max(1, now - start);
+        return new Report(arrivals.size(), ovenSlots, span, (double) busyMillis[0] / (span * (double) ovenSlots),
+                percentile(waits, started[0], 0.50), percentile(waits, started[0], 0.90),
+                percentile(waits, started[0], 0.99), started[0] == 0 ? 0 : waits[started[0] - 1], late[0]);
+    }
+
+    /**
+     * Reads a trace file into tickets ordered by arrival time.
+     *
+     * @param trace The trace file.
+     * @param defaultPromiseMillis The promise for lines that do not set one.
+     * @return The tickets.
+     * @throws IOException If the file cannot be read or a line is malformed.
+     */
+    public static List<KitchenTicket> readTrace(Path trace, long defaultPromiseMillis) throws IOException {
+        List<KitchenTicket> tickets = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(trace, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] fields = line.split(",");
+                try {
+                    long arrival = Math.round(Double.parseDouble(fields[0].trim()) * 1000);
+                    OrderItem item = new OrderItem();
+                    item.setQuantity(Integer.parseInt(fields[1].trim()));
+                    item.setSize(fields.length > 2 ? fields[2].trim() : Size.MEDIUM.getLabel());
+                    long promise = fields.length > 3 ? Long.parseLong(fields[3].trim()) * 60_000L : defaultPromiseMillis;
+                    tickets.add(KitchenTicket.of(tickets.size() + 1, new OrderItem[]{item}, arrival, promise));
+                } catch (RuntimeException e) {
+                    throw new IOException(trace + ":" + lineNumber + ": cannot parse \"" + line + "\"", e);
+                }
+            }
+        }
+        tickets.sort((a, b) -> Long.compare(a.placedAt(), b.placedAt()));
+        return tickets;
+    }
+
+    private static long percentile(long[] sorted, int count, double q) {
+        if (count == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(q * count);
+        return sorted[Math.max(0, rank - 1)];
+    }
+
+    /**
+     * The outcome of one simulated run. Times are in milliseconds.
+     *
+     * @param orders The number of orders replayed.
+     * @param ovenSlots The number of oven slots.
+     * @param spanMillis From the first arrival to the last order done.
+     * @param ovenUtilization The fraction of oven slot time spent cooking.
+     * @param waitP50 The median queue wait.
+     * @param waitP90 The 90th percentile queue wait.
+     * @param waitP99 The 99th percentile queue wait.
+     * @param waitMax The longest queue wait.
+     * @param lateOrders Orders ready after their promised time.
+     */
+    public record Report(int orders, int ovenSlots, long spanMillis, double ovenUtilization,
+            long waitP50, long waitP90, long waitP99, long waitMax, int lateOrders) {
+
+        @Override
+        public String toString() {
+            return String.format("%d orders, %d ovens, %.1f min, utilization %.1f%%, wait p50 %.1f / p90 %.1f"
+                    + " / p99 %.1f / max %.1f min, %d late",
+                    orders, ovenSlots, spanMillis / 60_000.0, ovenUtilization * 100,
+                    waitP50 / 60_000.0, waitP90 / 60_000.0, waitP99 / 60_000.0, waitMax / 60_000.0, lateOrders);
+        }
+    }
+}
@@ -0,0 +1,100 @@
+package service;
+
+import java.util.Comparator;
+import java.util.List;
+import model.OrderItem;
+import model.OrderLineItem;
+
+/**
+ * An order as the kitchen sees it: when it was placed, when it was promised,
+ * and how long it occupies an oven slot.
+ *
+ * @param orderId The ID of the order.
+ * @param placedAt When the order was placed, in milliseconds.
+ * @param promisedBy When the order was promised to be ready, in milliseconds.
+ * @param prepMillis How long the order occupies an oven slot.
+ * @param pizzaCount The number of pizzas in the order.
+ */
+public record KitchenTicket(int orderId, long placedAt, long promisedBy, long prepMillis, int pizzaCount) {
+
+    /**
+     * Most urgent first: the ticket that must start soonest to be ready by
+     * its promised time, then the quicker one, then the older one.
+     */
+    public static final Comparator<KitchenTicket> BY_URGENCY = Comparator
+            .comparingLong(KitchenTicket::latestStart)
+            .thenComparingLong(KitchenTicket::prepMillis)
+            .thenComparingInt(KitchenTicket::orderId);
+
+    // Setup per order plus bake and handling per pizza, by size
+    private static final long BASE_PREP_MILLIS = 3 * 60_000L;
+    private static final long[] PIZZA_PREP_MILLIS = {
+        2 * 60_000L, // Small
+        2 * 60_000L + 30_000L, // Medium
+        3 * 60_000L, // Large
+        3 * 60_000L + 30_000L // Extra Large
+    };
+
+    /**
+     * Returns the latest time the ticket can start and still be ready when
+     * promised.
+     *
+     * @return The latest start time, in milliseconds.
+     */
+    public long latestStart() {
+        return promisedBy - prepMillis;
+    }
+
+    /**
+     * Builds a ticket for a newly placed order.
+     *
+     * @param orderId The ID of the order.
+     * @param orderItems The items of the order.
+     * @param placedAt When the order was placed, in milliseconds.
+     * @param promiseMillis How long after placing the order it is promised.
+     * @return The ticket.
+     */
+    public static KitchenTicket of(int orderId, OrderItem[] orderItems, long placedAt, long promiseMillis) {
+        long prep = BASE_PREP_MILLIS;
+        int pizzas = 0;
+        for (OrderItem item : orderItems) {
+            prep += item.getQuantity() * pizzaPrepMillis(item.getSize());
+            pizzas += item.getQuantity();
+        }
+        return new KitchenTicket(orderId, placedAt, placedAt + promiseMillis, prep, pizzas);
+    }
+
+    /**
+     * Builds a ticket for an order read back from the database.
+     *
+     * @param orderId The ID of the order.
+     * @param lineItems The items of the order.
+     * @param placedAt When the order was placed, in milliseconds.
+     * @param promiseMillis How long after placing the order it is promised.
+     * @return The ticket.
+     */
+    public static KitchenTicket of(int orderId, List<OrderLineItem> lineItems, long placedAt, long promiseMillis) {
+        long prep = BASE_PREP_MILLIS;
+        int pizzas = 0;
+        for (OrderLineItem line : lineItems) {
+            prep += line.quantity() * pizzaPrepMillis(line.size());
+            pizzas += line.quantity();
+        }
+        return new KitchenTicket(orderId, placedAt, placedAt + promiseMillis, prep, pizzas);
+    }
+
+    /**
+     * Returns the oven time of one pizza of a size; unknown sizes count as
+     * the largest.
+     *
+     * @param size The size label.
+     * @return The prep time in milliseconds.
+     */
+    static long pizzaPrepMillis(String size) {
+        try {
+            return PIZZA_PREP_MILLIS[Size.fromLabel(size).ordinal()];
+        } catch (IllegalArgumentException e) {
+            return PIZZA_PREP_MILLIS[PIZZA_PREP_MILLIS.length - 1];
+        }
+    }
+}
@@ -0,0 +1,161 @@
+package service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * The current status of recently placed orders, held in memory so status
+ * reads and transitions of active orders never touch the database. Each slot
+ * of an {@link AtomicLongArray} packs an order ID and a status ordinal into
+ * one {@code long}, and every change is a single compare-and-set, so there are
+ * no locks and no per-order objects.
+ *
+ * <p>
+ * An order lives in the slot {@code orderId & mask}, or one of the next few if
+ * that is taken by another active order. Order IDs are mostly sequential, so
+ * active orders rarely collide; a finished order's slot is reused by a newer
+ * order. An order that is not (or no longer) in the table is reported as
+ * unknown, and callers fall back to the database.</p>
+ */
+public class LiveOrderTable {
+
+    private static final long EMPTY = 0L;
+    private static final int PROBES = 4;
+
+    private final AtomicLongArray slots;
+    private final int mask;
+
+    /**
+     * Creates an empty table.
+     *
+     * @param capacity The number of slots, rounded up to a power of two. It
+     * should comfortably exceed the number of orders active at once.
+     */
+    public LiveOrderTable(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be positive: " + capacity);
+        }
+        int size = Integer.highestOneBit(capacity) == capacity ? capacity : Integer.highestOneBit(capacity) << 1;
+        this.slots = new AtomicLongArray(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Starts tracking an order in the given status. If the order is already
+     * tracked its status is left alone, so a status loaded from the database
+     * never overwrites a newer in-memory transition. Only slots that are
+     * empty or hold a finished order are taken.
+     *
+     * @param orderId The order ID, which must be positive.
+     * @param status The order's current status.
+     * @return True if the order is now tracked; false if every candidate slot
+     * holds another active order.
+     */
+    public boolean track(int orderId, OrderStatus status) {
+        long packed = pack(orderId, status);
+        if (find(orderId) >= 0) {
+            return true;
+        }
+        for (int i = 0; i < PROBES; i++) {
+            int index = (orderId + i) & mask;
+            while (true) {
+                long current = slots.get(index);
+                if (current != EMPTY && idOf(current) == orderId) {
+                    return true; // Tracked concurrently
+                }
+                if (current != EMPTY && !statusOf(current).isTerminal()) {
+                    break; // Another active order; try the next slot
+                }
+                if (slots.compareAndSet(index, current, packed)) {
+                    removeDuplicate(orderId, i);
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the status of a tracked order.
+     *
+     * @param orderId The order ID.
+     * @return The status, or null if the order is not tracked.
+     */
+    public OrderStatus get(int orderId) {
+        int index = find(orderId);
+        return index < 0 ? null : statusOf(slots.get(index));
+    }
+
+    /**
+     * Moves a tracked order to a new status if the transition is legal. Safe
+     * to call from any number of threads: exactly one of several competing
+     * transitions from the same status succeeds.
+     *
+     * @param orderId The order ID.
+     * @param next The new status.
+     * @return The status the order moved from, or null if the order is not
+     * tracked.
+     * @throws IllegalStateException If the transition is not allowed from the
+     * order's current status.
+     */
+    public OrderStatus transition(int orderId, OrderStatus next) {
+        long packed = pack(orderId, next);
+        while (true) {
+            int index = find(orderId);
+            if (index < 0) {
+                return null;
+            }
+            long current = slots.get(index);
+            if (idOf(current) != orderId) {
+                continue; // Slot reused since find(); look again
+            }
+            OrderStatus from = statusOf(current);
+            if (!from.canTransitionTo(next)) {
+                throw new IllegalStateException("Order " + orderId + " cannot go from "
+                        + from.getLabel() + " to " + next.getLabel());
+            }
+            if (slots.compareAndSet(index, current, packed)) {
+                return from;
+            }
+        }
+    }
+
+    private int find(int orderId) {
+        for (int i = 0; i < PROBES; i++) {
+            int index = (orderId + i) & mask;
+            long current = slots.get(index);
+            if (current != EMPTY && idOf(current) == orderId) {
+                return index;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Clears a copy of an order claimed concurrently in a later probe slot,
+     * so an order is never held twice.
+     */
+    private void removeDuplicate(int orderId, int claimedProbe) {
+        for (int i = claimedProbe + 1; i < PROBES; i++) {
+            int index = (orderId + i) & mask;
+            long current = slots.get(index);
+            if (current != EMPTY && idOf(current) == orderId) {
+                slots.compareAndSet(index, current, EMPTY);
+            }
+        }
+    }
+
+    private static long pack(int orderId, OrderStatus status) {
+        if (orderId <= 0) {
+            throw new IllegalArgumentException("Order ID must be positive: " + orderId);
+        }
+        return ((long) orderId << 32) | status.ordinal();
+    }
+
+    private static int idOf(long packed) {
+        return (int) (packed >>> 32);
+    }
+
+    private static OrderStatus statusOf(long packed) {
+        return OrderStatus.fromOrdinal((int) packed);
+    }
+}
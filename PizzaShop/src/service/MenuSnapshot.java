@@ -0,0 +1,124 @@
+package service;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import model.Pizza;
+
+/**
+ * An immutable view of the menu as loaded at one point in time. The name
+ * list, the lookup maps and the {@link PriceTable} are derived once when the
+ * snapshot is built, so readers never touch the database or rebuild them. A
+ * new version replaces the whole snapshot when the menu changes.
+ *
+ * <p>
+ * The {@link Pizza} objects are shared with every reader and must not be
+ * modified.</p>
+ */
+public class MenuSnapshot {
+
+    private final long version;
+    private final List<Pizza> pizzas;
+    private final List<String> pizzaNames;
+    private final Map<String, Pizza> pizzasByName;
+    private final Map<Integer, Pizza> pizzasById;
+    private final PriceTable priceTable;
+
+    /**
+     * Builds a snapshot from a freshly loaded list of pizzas.
+     *
+     * @param version The version number of this snapshot.
+     * @param pizzas The pizzas on the menu, in display order.
+     */
+    public MenuSnapshot(long version, List<Pizza> pizzas) {
+        this.version = version;
+        this.pizzas = Collections.unmodifiableList(new ArrayList<>(pizzas));
+
+        List<String> names = new ArrayList<>(pizzas.size());
+        Map<String, Pizza> byName = new HashMap<>();
+        Map<Integer, Pizza> byId = new HashMap<>();
+        for (Pizza pizza : pizzas) {
+            names.add(pizza.getName());
+            // Lowercase keys for case-insensitive lookup
+            byName.put(pizza.getName().toLowerCase(), pizza);
+            byId.put(pizza.getPizzaId(), pizza);
+        }
+        this.pizzaNames = Collections.unmodifiableList(names);
+        this.pizzasByName = Collections.unmodifiableMap(byName);
+        this.pizzasById = Collections.unmodifiableMap(byId);
+        this.priceTable = new PriceTable(pizzas);
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public List<Pizza> getPizzas() {
+        return pizzas;
+    }
+
+    public List<String> getPizzaNames() {
+        return pizzaNames;
+    }
+
+    public PriceTable getPriceTable() {
+        return priceTable;
+    }
+
+    /**
+     * Looks up a pizza by name, ignoring case.
+     *
+     * @param name The pizza name.
+     * @return The pizza, or null if it is not on the menu.
+     */
+    public Pizza findByName(String name) {
+        return pizzasByName.get(name.toLowerCase());
+    }
+
+    /**
+     * Looks up a pizza by its ID.
+     *
+     * @param pizzaId The pizza ID.
+     * @return The pizza, or null if it is not on the menu.
+     */
+    public Pizza findById(int pizzaId) {
+        return pizzasById.get(pizzaId);
+    }
+
+    /**
+     * Returns true if this snapshot lists the same pizzas, with the same
+     * details, as the given list.
+     *
+     * @param other A freshly loaded list of pizzas.
+     * @return Whether the menu is unchanged.
+     */
+    boolean hasSameContent(List<Pizza> other) {
+        if (other.size() != pizzas.size()) {
+            return false;
+        }
+        for (int i = 0; i < other.size(); i++) {
+            if (!samePizza(other.get(i), pizzas.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean samePizza(Pizza a, Pizza b) {
+        return a.getPizzaId() == b.getPizzaId()
+                && Objects.equals(a.getName(), b.getName())
+                && Objects.equals(a.getDescription(), b.getDescription())
+                && samePrice(a.getSmallPrice(), b.getSmallPrice())
+                && samePrice(a.getMediumPrice(), b.getMediumPrice())
+                && samePrice(a.getLargePrice(), b.getLargePrice())
+                && samePrice(a.getExtraLargePrice(), b.getExtraLargePrice());
+    }
+
+    private static boolean samePrice(BigDecimal a, BigDecimal b) {
+        return a == null ? b == null : b != null && a.compareTo(b) == 0;
+    }
+}
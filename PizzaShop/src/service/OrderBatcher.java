@@ -0,0 +1,240 @@
+package service;
+
+import dao.OrderDAO;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import model.Order;
+import model.OrderItem;
+import util.DBConnection;
+import util.OrderEvents;
+import util.SqlErrors;
+
+/**
+ * Group-commits concurrently submitted orders. Orders handed to
+ * {@link #submit(Order, OrderItem[])} are collected for a short window or
+ * until a size cap is reached, then written together: one multi-row INSERT
+ * into {@code orders}, one multi-row INSERT into {@code order_items}, and a
+ * single commit. Every caller still receives its own generated order ID.
+ * When the orders already carry IDs from an {@link OrderIdAllocator}, no
+ * generated keys are fetched.
+ *
+ * <p>
+ * If a statement of the batch fails, each order is retried on its own so one
+ * bad order does not fail the others; if the database is unreachable, every
+ * caller gets the error at once. A commit that fails may still have taken
+ * effect, so its orders are never inserted again: orders with assigned IDs
+ * are looked up, and callers of orders with generated IDs are told the
+ * outcome is unknown.</p>
+ */
+public class OrderBatcher {
+
+    private final OrderDAO orderDAO;
+    private final long windowMillis;
+    private final int maxBatchSize;
+    private final LinkedBlockingQueue<PendingOrder> queue = new LinkedBlockingQueue<>();
+
+    /**
+     * Creates a batcher and starts its writer thread.
+     *
+     * @param orderDAO The DAO used to write batches.
+     * @param windowMillis How long to wait for more orders after the first one
+     * of a batch arrives.
+     * @param maxBatchSize The most orders written in one batch.
+     */
+    public OrderBatcher(OrderDAO orderDAO, long windowMillis, int maxBatchSize) {
+        this.orderDAO = orderDAO;
+        this.windowMillis = windowMillis;
+        this.maxBatchSize = maxBatchSize;
+
+        Thread writer = new Thread(this::run, "order-batcher");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues an order for the next batch and waits until that batch is
+     * committed.
+     *
+     * @param order The order to insert; its customer ID must already be set.
+     * If its order ID is set too, that ID is used instead of a generated one.
+     * @param orderItems The items of the order.
+     * @return The order ID.
+     * @throws SQLException If the order could not be written.
+     */
+    public int submit(Order order, OrderItem[] orderItems) throws SQLException {
+        PendingOrder pending = new PendingOrder(order, orderItems, new CompletableFuture<>());
+        queue.add(pending);
+        try {
+            return pending.result().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for the order to be written.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            throw new SQLException("Order could not be written.", e.getCause());
+        }
+    }
+
+    private void run() {
+        List<PendingOrder> batch = new ArrayList<>(maxBatchSize);
+        while (true) {
+            try {
+                batch.add(queue.take());
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(windowMillis);
+                while (batch.size() < maxBatchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingOrder next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                writeBatch(batch);
+            } catch (InterruptedException e) {
+                return;
+            } catch (RuntimeException e) {
+                for (PendingOrder pending : batch) {
+                    pending.result().completeExceptionally(e);
+                }
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private static void commit(Connection conn, int[] orderIds, List<OrderItem[]> items) throws SQLException {
+        int itemCount = 0;
+        for (OrderItem[] orderItems : items) {
+            itemCount += orderItems.length;
+        }
+        OrderEvents.OrderCommit event = new OrderEvents.OrderCommit();
+        event.begin();
+        boolean committed = false;
+        try {
+            conn.commit();
+            committed = true;
+        } finally {
+            event.complete(orderIds.length > 0 ? orderIds[0] : 0, itemCount, orderIds.length, committed);
+        }
+    }
+
+    private void writeBatch(List<PendingOrder> batch) {
+        List<Order> orders = new ArrayList<>(batch.size());
+        List<OrderItem[]> items = new ArrayList<>(batch.size());
+        for (PendingOrder pending : batch) {
+            orders.add(pending.order());
+            items.add(pending.orderItems());
+        }
+
+        boolean idsAssigned = hasAssignedIds(orders);
+        SQLException failure;
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            int[] orderIds = new int[orders.size()];
+            try {
+                if (idsAssigned) {
+                    // IDs are known up front, so no generated keys to fetch
+                    orderDAO.insertOrdersWithItems(conn, orders, items);
+                    for (int i = 0; i < orderIds.length; i++) {
+                        orderIds[i] = orders.get(i).getOrderId();
+                    }
+                } else {
+                    orderIds = orderDAO.placeOrders(conn, orders);
+                    orderDAO.insertOrderItems(conn, orderIds, items);
+                }
+            } catch (SQLException e) {
+                try {
+                    conn.rollback();
+                } catch (SQLException rollbackFailure) {
+                    e.addSuppressed(rollbackFailure);
+                }
+                throw e;
+            }
+            try {
+                commit(conn, orderIds, items);
+            } catch (SQLException e) {
+                // The server may have committed before the reply was lost
+                resolveUnknownCommit(batch, orderIds, idsAssigned, e);
+                return;
+            }
+            for (int i = 0; i < orderIds.length; i++) {
+                batch.get(i).result().complete(orderIds[i]);
+            }
+            return;
+        } catch (SQLException e) {
+            failure = e;
+        }
+
+        if (!idsAssigned) {
+            // Keys generated by the rolled-back insert are void
+            for (Order order : orders) {
+                order.setOrderId(0);
+            }
+        }
+        if (batch.size() == 1 || SqlErrors.isTransient(failure)) {
+            // Nothing to isolate, or the database is unreachable for every order alike
+            for (PendingOrder pending : batch) {
+                pending.result().completeExceptionally(failure);
+            }
+            return;
+        }
+        System.out.println(failure);
+
+        // A statement failed; write each order on its own so one bad order
+        // does not fail the others
+        for (PendingOrder pending : batch) {
+            writeBatch(new ArrayList<>(List.of(pending)));
+        }
+    }
+
+    /**
+     * Settles a batch whose commit failed without saying whether it took
+     * effect. Orders with assigned IDs are looked up, so each caller learns
+     * whether its order was stored; generated IDs cannot be looked up, so
+     * those callers are failed rather than risk inserting their orders twice.
+     */
+    private void resolveUnknownCommit(List<PendingOrder> batch, int[] orderIds, boolean idsAssigned, SQLException failure) {
+        if (idsAssigned) {
+            try {
+                Set<Integer> stored = orderDAO.findExistingOrderIds(orderIds);
+                for (int i = 0; i < orderIds.length; i++) {
+                    if (stored.contains(orderIds[i])) {
+                        batch.get(i).result().complete(orderIds[i]);
+                    } else {
+                        // Not committed; the same ID can safely be written again
+                        batch.get(i).result().completeExceptionally(failure);
+                    }
+                }
+                return;
+            } catch (SQLException e) {
+                failure.addSuppressed(e);
+            }
+        }
+        SQLException unknown = new SQLException("The order may or may not have been stored; check before placing it again.", failure);
+        for (PendingOrder pending : batch) {
+            pending.result().completeExceptionally(unknown);
+        }
+    }
+
+    private static boolean hasAssignedIds(List<Order> orders) {
+        for (Order order : orders) {
+            if (order.getOrderId() <= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private record PendingOrder(Order order, OrderItem[] orderItems, CompletableFuture<Integer> result) {
+
+    }
+}
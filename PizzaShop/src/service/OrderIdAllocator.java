@@ -0,0 +1,104 @@
+package service;
+
+import dao.SequenceDAO;
+import java.sql.SQLException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hands out order IDs from blocks reserved in the {@code id_sequences} table
+ * (the hi/lo pattern). Within a block, IDs come from an atomic counter with no
+ * database access; the next block is fetched in the background once half of
+ * the current one is used, so callers rarely wait on the database.
+ *
+ * <p>
+ * IDs are unique but not gap-free: IDs left in a block when the application
+ * stops are never used.</p>
+ */
+public class OrderIdAllocator {
+
+    private static final String SEQUENCE_NAME = "orders";
+
+    private final SequenceDAO sequenceDAO;
+    private final int blockSize;
+    private final AtomicReference<Block> current = new AtomicReference<>(new Block(0, 0));
+    private final AtomicReference<Block> prefetched = new AtomicReference<>();
+    private final AtomicBoolean prefetching = new AtomicBoolean();
+
+    /**
+     * Creates an allocator. No block is reserved until the first ID is
+     * requested.
+     *
+     * @param sequenceDAO The DAO used to reserve blocks.
+     * @param blockSize The number of IDs reserved per round trip.
+     */
+    public OrderIdAllocator(SequenceDAO sequenceDAO, int blockSize) {
+        this.sequenceDAO = sequenceDAO;
+        this.blockSize = blockSize;
+    }
+
+    /**
+     * Returns a new, unique order ID.
+     *
+     * @return The next order ID.
+     * @throws SQLException If a new block is needed and cannot be reserved.
+     */
+    public int nextId() throws SQLException {
+        while (true) {
+            Block block = current.get();
+            long id = block.next.getAndIncrement();
+            if (id < block.limit) {
+                if (block.limit - id == blockSize / 2) {
+                    prefetch();
+                }
+                return Math.toIntExact(id);
+            }
+            refill(block);
+        }
+    }
+
+    private synchronized void refill(Block exhausted) throws SQLException {
+        if (current.get() != exhausted) {
+            return; // Another thread already moved on to a fresh block
+        }
+        Block next = prefetched.getAndSet(null);
+        if (next == null) {
+            next = reserve();
+        }
+        current.set(next);
+    }
+
+    private void prefetch() {
+        if (!prefetching.compareAndSet(false, true)) {
+            return;
+        }
+        Thread.ofVirtual().name("order-id-prefetch").start(() -> {
+            try {
+                if (prefetched.get() == null) {
+                    prefetched.set(reserve());
+                }
+            } catch (SQLException e) {
+                System.out.println(e); // The next refill retries synchronously
+            } finally {
+                prefetching.set(false);
+            }
+        });
+    }
+
+    private Block reserve() throws SQLException {
+        long first = sequenceDAO.reserveBlock(SEQUENCE_NAME, blockSize);
+        return new Block(first, first + blockSize);
+    }
+
+    private static final class Block {
+
+        private final AtomicLong next;
+        private final long limit;
+
+        Block(long first, long limit) {
+            this.next = new AtomicLong(first);
+            this.limit = limit;
+        }
+    }
+}
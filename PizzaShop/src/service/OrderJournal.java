@@ -0,0 +1,264 @@
+package service;
+
+import dao.CustomerDAO;
+import dao.OrderDAO;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import model.Customer;
+import model.Order;
+import model.OrderItem;
+import util.DBConnection;
+import util.SegmentedJournal;
+import util.SqlErrors;
+
+/**
+ * A local write-ahead journal for accepted orders. {@link #record} appends
+ * the order to a memory-mapped {@link SegmentedJournal} and waits for it to
+ * be flushed, so accepting an order costs a local disk flush rather than
+ * several round trips to the database. A background replayer drains the
+ * journal to MySQL in order and trims the segments it has written.
+ *
+ * <p>
+ * Replay is idempotent because every journaled order carries the ID it was
+ * given by the {@link OrderIdAllocator}: if the order row already exists (the
+ * process stopped between the commit and the checkpoint) the record is
+ * skipped. While the database is unreachable the replayer retries the same
+ * record on each pass, and orders keep being accepted as long as the
+ * allocator has IDs left. A record that fails for any other reason, such as
+ * a value too long for its column or a pizza that no longer exists, can
+ * never be written; it is copied to the {@code dead-letter} directory next
+ * to the segments, logged, and skipped so later orders are not held up.</p>
+ */
+public class OrderJournal {
+
+    private static final int SEGMENT_SIZE = 16 * 1024 * 1024;
+    private static final int REPLAY_BATCH = 100;
+    private static final int MYSQL_DUPLICATE_KEY = 1062;
+    private static final String DEAD_LETTER_DIR = "dead-letter";
+
+    private final SegmentedJournal journal;
+    private final Path deadLetterDirectory;
+    private final CustomerDAO customerDAO;
+    private final OrderDAO orderDAO;
+    private final ScheduledExecutorService replayer;
+    private long replayedPosition;
+
+    /**
+     * Opens the journal and starts replaying anything left from a previous
+     * run.
+     *
+     * @param directory The directory holding journal segments.
+     * @param customerDAO The DAO used to resolve customers on replay.
+     * @param orderDAO The DAO used to insert orders on replay.
+     * @param replayIntervalMillis How often the replayer looks for new
+     * records.
+     * @throws IOException If the journal cannot be opened.
+     */
+    public OrderJournal(Path directory, CustomerDAO customerDAO, OrderDAO orderDAO, long replayIntervalMillis) throws IOException {
+        this.journal = new SegmentedJournal(directory, SEGMENT_SIZE);
+        this.deadLetterDirectory = directory.resolve(DEAD_LETTER_DIR);
+        this.customerDAO = customerDAO;
+        this.orderDAO = orderDAO;
+        this.replayedPosition = journal.readCheckpoint();
+
+        this.replayer = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "order-journal-replayer");
+            t.setDaemon(true);
+            return t;
+        });
+        replayer.scheduleWithFixedDelay(this::replay, 0, replayIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Durably records an accepted order. Returns once the record is on local
+     * disk; the order reaches MySQL when the replayer gets to it.
+     *
+     * @param customer The customer placing the order.
+     * @param order The order, which must already have its order ID.
+     * @param orderItems The items being ordered.
+     * @throws IOException If the order cannot be written to the journal.
+     */
+    public void record(Customer customer, Order order, OrderItem[] orderItems) throws IOException {
+        journal.sync(journal.append(encode(customer, order, orderItems)));
+    }
+
+    /**
+     * Stops the replayer and flushes the journal. Orders not yet replayed are
+     * picked up on the next start.
+     */
+    public void close() {
+        replayer.shutdown();
+        journal.close();
+    }
+
+    private void replay() {
+        try {
+            long[] committed = {replayedPosition};
+            try {
+                journal.read(replayedPosition, REPLAY_BATCH, (payload, next) -> {
+                    try {
+                        apply(payload);
+                    } catch (SQLException e) {
+                        if (SqlErrors.isTransient(e)) {
+                            throw new ReplayStalled(e);
+                        }
+                        deadLetter(committed[0], payload, e);
+                    } catch (RuntimeException e) {
+                        // The record cannot be decoded or bound
+                        deadLetter(committed[0], payload, e);
+                    }
+                    committed[0] = next;
+                });
+            } catch (ReplayStalled e) {
+                // Database unavailable: keep what was written and retry from here next pass
+                System.out.println("Order journal replay paused: " + e.getCause());
+            }
+            if (committed[0] != replayedPosition) {
+                journal.saveCheckpoint(committed[0]);
+                journal.trim(committed[0]);
+                replayedPosition = committed[0];
+            }
+        } catch (IOException | RuntimeException e) {
+            e.printStackTrace();
+        }
+    }
+
+    private void apply(byte[] payload) throws SQLException {
+        JournaledOrder record = decode(payload);
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int customerId = customerDAO.upsertByPhone(conn, record.customer());
+                if (customerId == -1) {
+                    throw new SQLException("Unable to resolve customer for phone " + record.customer().getPhone());
+                }
+                record.order().setCustomerId(customerId);
+                orderDAO.insertOrdersWithItems(conn, List.of(record.order()), List.<OrderItem[]>of(record.orderItems()));
+                conn.commit();
+                customerDAO.cacheCommitted(record.customer().getPhone(), customerId);
+            } catch (SQLIntegrityConstraintViolationException e) {
+                conn.rollback();
+                if (e.getErrorCode() != MYSQL_DUPLICATE_KEY) {
+                    throw e;
+                }
+                // The order was already written by an earlier pass
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Sets aside a record that can never be written, keeping its bytes so it
+     * can be fixed and replayed by hand. If even that fails, replay stops at
+     * the record rather than lose it.
+     */
+    private void deadLetter(long position, byte[] payload, Exception cause) {
+        Path file = deadLetterDirectory.resolve(position + ".order");
+        try {
+            Files.createDirectories(deadLetterDirectory);
+            Files.write(file, payload);
+        } catch (IOException e) {
+            throw new ReplayStalled(e);
+        }
+        System.out.println("Moved journaled order at position " + position + " to " + file + ": " + cause);
+    }
+
+    private static byte[] encode(Customer customer, Order order, OrderItem[] orderItems) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeInt(order.getOrderId());
+            out.writeLong(order.getOrderDate().getTime());
+            writeString(out, order.getStatus());
+            writeString(out, order.getSpecialInstructions());
+            writeString(out, order.getOrderTotal() == null ? null : order.getOrderTotal().toPlainString());
+            writeString(out, customer.getName());
+            writeString(out, customer.getPhone());
+            writeString(out, customer.getAddress());
+            writeString(out, customer.getEmail());
+            out.writeInt(orderItems.length);
+            for (OrderItem item : orderItems) {
+                out.writeInt(item.getPizzaId());
+                writeString(out, item.getSize());
+                out.writeInt(item.getQuantity());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static JournaledOrder decode(byte[] payload) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload))) {
+            Order order = new Order();
+            order.setOrderId(in.readInt());
+            order.setOrderDate(new Timestamp(in.readLong()));
+            order.setStatus(readString(in));
+            order.setSpecialInstructions(readString(in));
+            String total = readString(in);
+            order.setOrderTotal(total == null ? null : new BigDecimal(total));
+
+            Customer customer = new Customer();
+            customer.setName(readString(in));
+            customer.setPhone(readString(in));
+            customer.setAddress(readString(in));
+            customer.setEmail(readString(in));
+
+            OrderItem[] items = new OrderItem[in.readInt()];
+            for (int i = 0; i < items.length; i++) {
+                items[i] = new OrderItem();
+                items[i].setOrderId(order.getOrderId());
+                items[i].setPizzaId(in.readInt());
+                items[i].setSize(readString(in));
+                items[i].setQuantity(in.readInt());
+            }
+            return new JournaledOrder(customer, order, items);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private record JournaledOrder(Customer customer, Order order, OrderItem[] orderItems) {
+
+    }
+
+    /**
+     * Carries a database or dead-letter failure out of the read callback to
+     * stop the pass.
+     */
+    private static final class ReplayStalled extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        ReplayStalled(Exception cause) {
+            super(cause);
+        }
+    }
+}
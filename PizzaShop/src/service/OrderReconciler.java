@@ -0,0 +1,267 @@
+package service;
+
+import dao.ReconciliationDAO;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import util.DBConnection;
+
+/**
+ * End-of-day check that every order's stored total matches its items priced
+ * from {@code pizzas}, with the same promotion and tax rules as
+ * {@link PricingEngine}. The day's order IDs are split into ranges that are
+ * scanned in parallel on a {@link ForkJoinPool}; each range is read on a
+ * connection of its own outside the pool, so at most {@code parallelism}
+ * connections are open and the order path keeps its pooled ones.
+ *
+ * <p>
+ * Items are priced at today's menu prices, so a price change since an order
+ * was placed shows up as a mismatch for that order.</p>
+ *
+ * <p>
+ * Usage: {@code java service.OrderReconciler [--date=YYYY-MM-DD]
+ * [--parallelism=N]}. The date defaults to yesterday.</p>
+ */
+public class OrderReconciler {
+
+    private static final int PARTITIONS_PER_THREAD = 4;
+    private static final int MAX_REPORTED_MISMATCHES = 1_000;
+
+    private final ReconciliationDAO reconciliationDAO = new ReconciliationDAO();
+    private final PricingEngine pricingEngine;
+    private final int parallelism;
+
+    /**
+     * Creates a reconciler.
+     *
+     * @param pricingEngine The engine whose promotion and tax rules totals are
+     * recomputed with.
+     * @param parallelism The number of ranges scanned at once, and so of
+     * connections opened.
+     */
+    public OrderReconciler(PricingEngine pricingEngine, int parallelism) {
+        this.pricingEngine = pricingEngine;
+        this.parallelism = Math.max(parallelism, 1);
+    }
+
+    public static void main(String[] args) throws SQLException {
+        LocalDate date = LocalDate.now().minusDays(1);
+        int parallelism = Integer.getInteger("pizzashop.reconcile.parallelism",
+                Math.min(Runtime.getRuntime().availableProcessors(), 4));
+        for (String arg : args) {
+            if (arg.startsWith("--date=")) {
+                date = LocalDate.parse(arg.substring("--date=".length()));
+            } else if (arg.startsWith("--parallelism=")) {
+                parallelism = Integer.parseInt(arg.substring("--parallelism=".length()));
+            } else {
+                System.out.println("Usage: java service.OrderReconciler [--date=YYYY-MM-DD] [--parallelism=N]");
+                return;
+            }
+        }
+
+        DaySummary summary = new OrderReconciler(new PricingEngine(new PizzaService()), parallelism).reconcile(date);
+        System.out.println(summary);
+        for (Mismatch mismatch : summary.mismatches()) {
+            System.out.println("  " + mismatch);
+        }
+    }
+
+    /**
+     * Reconciles the orders placed on a day.
+     *
+     * @param day The day, in the local time zone.
+     * @return The day's totals and the orders that do not match.
+     * @throws SQLException If a range cannot be scanned.
+     */
+    public DaySummary reconcile(LocalDate day) throws SQLException {
+        long began = System.nanoTime();
+        Timestamp from = Timestamp.valueOf(day.atStartOfDay());
+        Timestamp to = Timestamp.valueOf(day.plusDays(1).atStartOfDay());
+        int[] range = reconciliationDAO.getOrderIdRange(from, to);
+        if (range == null) {
+            return new DaySummary(day, 0, 0, 0, 0, 0, List.of(), 0, (System.nanoTime() - began) / 1_000_000);
+        }
+
+        long span = (long) range[1] - range[0] + 1;
+        long partitionSize = Math.max(1, (span + parallelism * PARTITIONS_PER_THREAD - 1) / (parallelism * PARTITIONS_PER_THREAD));
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        Partition result;
+        try {
+            result = pool.invoke(new ScanTask(range[0], range[1], partitionSize, from, to));
+        } catch (UncheckedSQLException e) {
+            throw e.getCause();
+        } finally {
+            pool.shutdown();
+        }
+
+        result.mismatches.sort(Comparator.comparingInt(Mismatch::orderId));
+        return new DaySummary(day, result.orders, result.pizzas, result.storedCents, result.recomputedCents,
+                result.mismatchCount, result.mismatches, result.partitions, (System.nanoTime() - began) / 1_000_000);
+    }
+
+    /**
+     * Splits an ID range in half until it is no bigger than a partition, then
+     * scans it.
+     */
+    private final class ScanTask extends RecursiveTask<Partition> {
+
+        private static final long serialVersionUID = 1L;
+
+        private final int lowId;
+        private final int highId;
+        private final long partitionSize;
+        private final Timestamp from;
+        private final Timestamp to;
+
+        ScanTask(int lowId, int highId, long partitionSize, Timestamp from, Timestamp to) {
+            this.lowId = lowId;
+            this.highId = highId;
+            this.partitionSize = partitionSize;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Partition compute() {
+            if ((long) highId - lowId + 1 <= partitionSize) {
+                return scan();
+            }
+            int middle = (int) (((long) lowId + highId) >>> 1);
+            ScanTask upper = new ScanTask(middle + 1, highId, partitionSize, from, to);
+            upper.fork();
+            Partition lower = new ScanTask(lowId, middle, partitionSize, from, to).compute();
+            return lower.merge(upper.join());
+        }
+
+        private Partition scan() {
+            Partition partition = new Partition();
+            partition.partitions = 1;
+            try (Connection conn = DBConnection.openDedicatedConnection()) {
+                conn.setReadOnly(true);
+                reconciliationDAO.scanOrderTotals(conn, lowId, highId, from, to,
+                        (orderId, storedCents, subtotalCents, pizzaCount, unpricedLines) -> {
+                            long recomputed = pricingEngine.totalCents(subtotalCents, pizzaCount);
+                            partition.orders++;
+                            partition.pizzas += pizzaCount;
+                            partition.storedCents += Math.max(storedCents, 0);
+                            partition.recomputedCents += recomputed;
+                            if (storedCents != recomputed || unpricedLines > 0) {
+                                partition.addMismatch(new Mismatch(orderId, storedCents, recomputed, pizzaCount, unpricedLines));
+                            }
+                        });
+            } catch (SQLException e) {
+                throw new UncheckedSQLException("Unable to reconcile orders " + lowId + " to " + highId, e);
+            }
+            return partition;
+        }
+    }
+
+    /**
+     * The running totals of one or more scanned ranges.
+     */
+    private static final class Partition {
+
+        long orders;
+        long pizzas;
+        long storedCents;
+        long recomputedCents;
+        long mismatchCount;
+        int partitions;
+        final List<Mismatch> mismatches = new ArrayList<>(0);
+
+        void addMismatch(Mismatch mismatch) {
+            mismatchCount++;
+            if (mismatches.size() < MAX_REPORTED_MISMATCHES) {
+                mismatches.add(mismatch);
+            }
+        }
+
+        Partition merge(Partition other) {
+            orders += other.orders;
+            pizzas += other.pizzas;
+            storedCents += other.storedCents;
+            recomputedCents += other.recomputedCents;
+            mismatchCount += other.mismatchCount;
+            partitions += other.partitions;
+            for (Mismatch mismatch : other.mismatches) {
+                if (mismatches.size() == MAX_REPORTED_MISMATCHES) {
+                    break;
+                }
+                mismatches.add(mismatch);
+            }
+            return this;
+        }
+    }
+
+    /**
+     * Carries a scan failure out of a fork/join task.
+     */
+    private static final class UncheckedSQLException extends RuntimeException {
+
+        private static final long serialVersionUID = 1L;
+
+        UncheckedSQLException(String message, SQLException cause) {
+            super(message, cause);
+        }
+
+        @Override
+        public synchronized SQLException getCause() {
+            return (SQLException) super.getCause();
+        }
+    }
+
+    /**
+     * An order whose stored total differs from its recomputed total, or that
+     * has items the menu cannot price. Amounts are in cents.
+     *
+     * @param orderId The ID of the order.
+     * @param storedCents The stored total, or -1 if it is NULL.
+     * @param recomputedCents The total recomputed from the items.
+     * @param pizzaCount The number of pizzas in the order.
+     * @param unpricedLines Items whose pizza or size is not on the menu.
+     */
+    public record Mismatch(int orderId, long storedCents, long recomputedCents, int pizzaCount, int unpricedLines) {
+
+        @Override
+        public String toString() {
+            return String.format("order %d: stored %s, recomputed %s, %d pizzas%s", orderId,
+                    storedCents < 0 ? "NULL" : PriceTable.toDollars(storedCents), PriceTable.toDollars(recomputedCents),
+                    pizzaCount, unpricedLines > 0 ? ", " + unpricedLines + " items not on the menu" : "");
+        }
+    }
+
+    /**
+     * The outcome of reconciling one day. Amounts are in cents.
+     *
+     * @param day The day reconciled.
+     * @param orders The number of orders placed that day.
+     * @param pizzas The number of pizzas in them.
+     * @param storedCents The sum of the stored totals.
+     * @param recomputedCents The sum of the recomputed totals.
+     * @param mismatchCount The number of orders that do not match.
+     * @param mismatches The first 1,000
+     * mismatches found, by order ID.
+     * @param partitions The number of ID ranges scanned.
+     * @param elapsedMillis How long the reconciliation took.
+     */
+    public record DaySummary(LocalDate day, long orders, long pizzas, long storedCents, long recomputedCents,
+            long mismatchCount, List<Mismatch> mismatches, int partitions, long elapsedMillis) {
+
+        public DaySummary {
+            mismatches = List.copyOf(mismatches);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d orders, %d pizzas, stored %s, recomputed %s, %d mismatched"
+                    + " (%d partitions, %.1f s)", day, orders, pizzas, PriceTable.toDollars(storedCents),
+                    PriceTable.toDollars(recomputedCents), mismatchCount, partitions, elapsedMillis / 1000.0);
+        }
+    }
+}
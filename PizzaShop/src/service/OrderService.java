@@ -2,11 +2,26 @@ package service;
 
 import dao.OrderDAO;
 import dao.CustomerDAO;
+import dao.OrderStatusUpdateDAO;
+import dao.SequenceDAO;
 import model.*;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.math.BigDecimal;
+import java.nio.file.Paths;
 import java.sql.*;
-import java.util.HashMap;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+import util.AsyncExecutor;
+import util.DBConnection;
+import util.OrderEvents;
 
 /**
  * Service class responsible for handling operations related to placing and
@@ -14,66 +29,661 @@ import java.util.HashMap;
  */
 public class OrderService {
 
+    // Opt-in group commit of concurrent orders, enabled with -Dpizzashop.order.batching=true
+    private static final boolean BATCHING_ENABLED = Boolean.getBoolean("pizzashop.order.batching");
+    private static final long BATCH_WINDOW_MILLIS = Long.getLong("pizzashop.order.batchWindowMillis", 5L);
+    private static final int MAX_BATCH_SIZE = Integer.getInteger("pizzashop.order.maxBatchSize", 50);
+    // Block-allocated order IDs, enabled with -Dpizzashop.order.idBlockSize=N (needs the id_sequences table)
+    private static final int ID_BLOCK_SIZE = Integer.getInteger("pizzashop.order.idBlockSize", 0);
+    // Local write-ahead order journal, enabled with -Dpizzashop.journal.dir=<path> (needs block-allocated IDs)
+    private static final String JOURNAL_DIR = System.getProperty("pizzashop.journal.dir");
+    private static final long JOURNAL_REPLAY_INTERVAL_MILLIS = Long.getLong("pizzashop.journal.replayIntervalMillis", 200L);
+    // Slots in the in-memory table of active order statuses
+    private static final int LIVE_ORDER_CAPACITY = Integer.getInteger("pizzashop.liveOrders.capacity", 65_536);
+    // How often the status change feed looks for new transitions
+    private static final long STATUS_FEED_POLL_MILLIS = Long.getLong("pizzashop.statusFeed.pollMillis", 1_000L);
+    // Sales rollups are kept in memory unless turned off
+    private static final boolean ROLLUP_ENABLED = !"false".equalsIgnoreCase(System.getProperty("pizzashop.rollup.enabled"));
+    // Attempts at the start-up rollup rebuild, waiting 1 s, 2 s, 4 s... up to 5 min in between
+    private static final int ROLLUP_REBUILD_ATTEMPTS = Integer.getInteger("pizzashop.rollup.rebuildAttempts", 10);
+    private static final long ROLLUP_REBUILD_RETRY_MILLIS = 1_000L;
+    private static final long ROLLUP_REBUILD_MAX_RETRY_MILLIS = 300_000L;
+
+    // Deadline applied to async reads that don't pass their own; placing an order has none
+    private static final Duration DEFAULT_ASYNC_DEADLINE = Duration.ofSeconds(10);
+
     private CustomerDAO customerDAO;
     private OrderDAO orderDAO;
+    private OrderBatcher orderBatcher;
+    private OrderIdAllocator orderIdAllocator;
+    private OrderJournal orderJournal;
+    private OrderStatusUpdateDAO statusUpdateDAO;
+    private OrderStatusFeed statusFeed;
+    private OrderStatusWriter statusWriter;
+    private LiveOrderTable liveOrders;
+    private final CopyOnWriteArrayList<BiConsumer<Integer, OrderItem[]>> placedOrderSubscribers = new CopyOnWriteArrayList<>();
+    private PricingEngine pricingEngine;
+    private PizzaService pizzaService;
+    private SalesRollup salesRollup;
 
     /**
      * Default constructor that initializes the CustomerDAO and OrderDAO
-     * objects.
+     * objects, and the order batcher when batching is enabled. Prices are
+     * taken from a menu loaded by a PizzaService of its own.
      */
     public OrderService() {
+        this(new PizzaService(), BATCHING_ENABLED);
+    }
+
+    /**
+     * Creates an order service that prices orders from the given pizza
+     * service's menu.
+     *
+     * @param pizzaService The service holding the current menu.
+     */
+    public OrderService(PizzaService pizzaService) {
+        this(pizzaService, BATCHING_ENABLED);
+    }
+
+    /**
+     * Creates an order service, optionally group-committing orders that are
+     * placed concurrently.
+     *
+     * @param pizzaService The service holding the current menu.
+     * @param batching Whether concurrent orders are written in shared batches.
+     */
+    public OrderService(PizzaService pizzaService, boolean batching) {
+        this.pizzaService = pizzaService;
+        this.pricingEngine = new PricingEngine(pizzaService);
         this.customerDAO = new CustomerDAO();
         this.orderDAO = new OrderDAO();
+        this.statusUpdateDAO = new OrderStatusUpdateDAO();
+        this.statusWriter = new OrderStatusWriter(orderDAO, statusUpdateDAO);
+        this.liveOrders = new LiveOrderTable(LIVE_ORDER_CAPACITY);
+        if (ID_BLOCK_SIZE > 0) {
+            this.orderIdAllocator = new OrderIdAllocator(new SequenceDAO(), ID_BLOCK_SIZE);
+        }
+        if (JOURNAL_DIR != null) {
+            if (orderIdAllocator == null) {
+                throw new IllegalStateException("pizzashop.journal.dir requires pizzashop.order.idBlockSize to be set");
+            }
+            try {
+                this.orderJournal = new OrderJournal(Paths.get(JOURNAL_DIR), customerDAO, orderDAO, JOURNAL_REPLAY_INTERVAL_MILLIS);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Unable to open the order journal in " + JOURNAL_DIR, e);
+            }
+        }
+        if (ROLLUP_ENABLED) {
+            this.salesRollup = new SalesRollup();
+        }
+        if (batching) {
+            this.orderBatcher = new OrderBatcher(orderDAO, BATCH_WINDOW_MILLIS, MAX_BATCH_SIZE);
+        }
+    }
+
+    /**
+     * Prices a cart from the current menu, including tax and promotions.
+     *
+     * @param orderItems The items in the cart.
+     * @return The quote.
+     * @throws SQLException If the menu cannot be loaded.
+     * @throws IllegalArgumentException If an item is not on the menu.
+     */
+    public Quote quote(OrderItem[] orderItems) throws SQLException {
+        return pricingEngine.quote(orderItems);
+    }
+
+    /**
+     * Prices a cart from the current menu, including tax and promotions.
+     *
+     * @param cart The cart.
+     * @return The quote.
+     * @throws SQLException If the menu cannot be loaded.
+     * @throws IllegalArgumentException If an item is not on the menu.
+     */
+    public Quote quote(Cart cart) throws SQLException {
+        return pricingEngine.quote(cart.toArray());
     }
 
     /**
-     * Places an order for a customer and processes the order items.
+     * Places everything in a cart as one order. All lines are written with a
+     * single batched insert, and the total is priced from the menu.
+     *
+     * @param customer The customer placing the order.
+     * @param cart The cart holding the order items.
+     * @param specialInstructions Any special instructions provided by the
+     * customer.
+     * @return The unique order ID of the placed order.
+     * @throws SQLException If there is an issue with the database interaction.
+     * @throws IllegalArgumentException If the cart is empty or an item is not
+     * on the menu.
+     */
+    public int placeOrder(Customer customer, Cart cart, String specialInstructions) throws SQLException {
+        if (cart.isEmpty()) {
+            throw new IllegalArgumentException("Cannot place an order for an empty cart");
+        }
+        return placeOrder(customer, cart.toArray(), specialInstructions, null);
+    }
+
+    /**
+     * Places an order for a customer and processes the order items. The
+     * customer upsert, the order row (including its total) and the
+     * order items are written on one connection in a single transaction, so
+     * either the whole order is stored or none of it is. When batching is
+     * enabled the customer is resolved first and the order is then written
+     * together with other orders placed at the same time. When the order
+     * journal is enabled the order is only written to the local journal here
+     * and reaches the database shortly afterwards.
      *
      * @param customer The customer placing the order.
      * @param orderItems The items being ordered.
      * @param specialInstructions Any special instructions provided by the
      * customer.
-     * @param totalValue The total value of the order.
+     * @param totalValue The total shown to the customer, or null. The stored
+     * total is recomputed from the menu; a different value here is only
+     * logged.
      * @return The unique order ID of the placed order.
      * @throws SQLException If there is an issue with the database interaction.
+     * The transaction is rolled back in that case.
+     * @throws IllegalArgumentException If an item is not on the menu.
      */
     public int placeOrder(Customer customer, OrderItem[] orderItems, String specialInstructions, BigDecimal totalValue) throws SQLException {
-        int customerId = customerDAO.customerExistsByPhone(customer.getPhone());
-        System.out.println("---" + customerId);
+        OrderEvents.OrderPlaced event = new OrderEvents.OrderPlaced();
+        event.begin();
+        int orderId = 0;
+        try {
+            // Store sizes as the menu labels them, so every later price lookup matches
+            normalizeSizes(orderItems);
+            // Never trust the client's total; price the order from the menu
+            Quote quote = pricingEngine.quote(orderItems);
+            BigDecimal quotedTotal = quote.getTotal();
+            if (totalValue != null && totalValue.compareTo(quotedTotal) != 0) {
+                System.out.println("Order total " + totalValue + " from the client differs from quoted " + quotedTotal);
+            }
+            orderId = persistOrder(customer, orderItems, specialInstructions, quotedTotal);
+            // Status reads and changes for the new order are served from memory
+            if (orderId > 0) {
+                liveOrders.track(orderId, OrderStatus.PENDING);
+                if (salesRollup != null) {
+                    try {
+                        salesRollup.record(orderId, System.currentTimeMillis(), orderItems,
+                                pizzaService.getMenu().getPriceTable(), quote.getTotalCents());
+                    } catch (SQLException | RuntimeException e) {
+                        e.printStackTrace();
+                    }
+                }
+                for (BiConsumer<Integer, OrderItem[]> subscriber : placedOrderSubscribers) {
+                    try {
+                        subscriber.accept(orderId, orderItems);
+                    } catch (RuntimeException e) {
+                        e.printStackTrace();
+                    }
+                }
+            }
+            return orderId;
+        } finally {
+            event.complete(Math.max(orderId, 0), orderItems.length, 1, orderId > 0);
+        }
+    }
+
+    /**
+     * Replaces each item's size with its canonical label, e.g. "extra large"
+     * with "Extra Large".
+     *
+     * @throws IllegalArgumentException If a size is not known.
+     */
+    private static void normalizeSizes(OrderItem[] orderItems) {
+        for (OrderItem item : orderItems) {
+            String label = Size.fromLabel(item.getSize()).getLabel();
+            if (!label.equals(item.getSize())) {
+                item.setSize(label);
+            }
+        }
+    }
 
-        // Check if customer exists
+    /**
+     * Writes a priced order through the journal, the batcher or a direct
+     * transaction, whichever is enabled.
+     */
+    private int persistOrder(Customer customer, OrderItem[] orderItems, String specialInstructions, BigDecimal totalValue) throws SQLException {
+        if (orderJournal != null) {
+            // The customer is resolved when the journal is replayed
+            Order order = newOrder(0, specialInstructions, totalValue);
+            try {
+                orderJournal.record(customer, order, orderItems);
+                return order.getOrderId();
+            } catch (IOException e) {
+                // Not retried directly: a record that reached the journal may still be replayed
+                throw new SQLException("Unable to write order " + order.getOrderId() + " to the journal.", e);
+            }
+        }
+
+        if (orderBatcher != null) {
+            int customerId;
+            try (Connection conn = DBConnection.getConnection()) {
+                customerId = resolveCustomer(conn, customer, orderItems.length);
+            }
+            return orderBatcher.submit(newOrder(customerId, specialInstructions, totalValue), orderItems);
+        }
+
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                int customerId = resolveCustomer(conn, customer, orderItems.length);
+                int orderId = placeOrder(conn, customerId, orderItems, specialInstructions, totalValue);
+                OrderEvents.OrderCommit commit = new OrderEvents.OrderCommit();
+                commit.begin();
+                boolean committed = false;
+                try {
+                    conn.commit();
+                    committed = true;
+                } finally {
+                    commit.complete(orderId, orderItems.length, 1, committed);
+                }
+                customerDAO.cacheCommitted(customer.getPhone(), customerId);
+                return orderId;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        }
+    }
+
+    /**
+     * Writes the order and its items for a resolved customer on the given
+     * connection without committing.
+     */
+    private int placeOrder(Connection conn, int customerId, OrderItem[] orderItems, String specialInstructions, BigDecimal totalValue) throws SQLException {
+        // Create the order, carrying its total so no follow-up update is needed
+        Order order = newOrder(customerId, specialInstructions, totalValue);
+
+        if (order.getOrderId() > 0) {
+            // ID assigned up front: no generated key to fetch
+            orderDAO.insertOrdersWithItems(conn, List.of(order), List.<OrderItem[]>of(orderItems));
+            return order.getOrderId();
+        }
+
+        if (orderDAO.placeOrder(conn, order) == -1) {
+            throw new SQLException("No order ID was generated for the new order.");
+        }
+
+        // Insert order items into the order_items table
+        orderDAO.insertOrderItems(conn, order.getOrderId(), orderItems);
+
+        return order.getOrderId();
+    }
+
+    /**
+     * Resolves the customer by phone number, creating them if they are new,
+     * in one race-free round trip.
+     */
+    private int resolveCustomer(Connection conn, Customer customer, int itemCount) throws SQLException {
+        OrderEvents.CustomerResolve event = new OrderEvents.CustomerResolve();
+        event.begin();
+        int customerId = -1;
+        try {
+            customerId = customerDAO.upsertByPhone(conn, customer);
+        } finally {
+            // The order has no ID yet
+            event.complete(0, itemCount, 1, customerId != -1);
+        }
         if (customerId == -1) {
-            customerId = customerDAO.insertCustomer(customer);
+            throw new SQLException("Unable to resolve customer for phone " + customer.getPhone());
         }
+        return customerId;
+    }
 
-        // Create the order
+    private Order newOrder(int customerId, String specialInstructions, BigDecimal totalValue) throws SQLException {
         Order order = new Order();
+        if (orderIdAllocator != null) {
+            order.setOrderId(orderIdAllocator.nextId());
+        }
         order.setCustomerId(customerId);
         order.setOrderDate(new Timestamp(System.currentTimeMillis()));
-        order.setStatus("Pending");
+        order.setStatus(OrderStatus.PENDING.getLabel());
         order.setSpecialInstructions(specialInstructions);
         order.setOrderTotal(totalValue);
+        return order;
+    }
+
+    /**
+     * Returns the current status of an order. Orders placed or changed by this
+     * service are answered from memory; others are read once and then kept in
+     * memory too.
+     *
+     * @param orderId The unique identifier of the order.
+     * @return The status, or null if no order is found.
+     * @throws SQLException If the order has to be read and the read fails.
+     */
+    public OrderStatus getOrderStatus(int orderId) throws SQLException {
+        OrderStatus status = liveOrders.get(orderId);
+        if (status != null) {
+            return status;
+        }
+        OrderDetails details = orderDAO.getOrderDetails(orderId);
+        if (details == null) {
+            return null;
+        }
+        status = OrderStatus.fromLabel(details.status());
+        liveOrders.track(orderId, status);
+        return status;
+    }
 
-        // Insert order into the database
-        orderDAO.placeOrder(order);
+    /**
+     * Moves an order to a new status. The transition is checked and applied
+     * in memory with a compare-and-set, so concurrent staff updates never wait
+     * on each other or on a row lock; the change is then persisted in the
+     * background as an {@link OrderStatusUpdate} and reaches
+     * {@link #subscribeToStatusChanges} subscribers once written.
+     *
+     * @param orderId The unique identifier of the order.
+     * @param status The new status.
+     * @return True if the order exists and was updated.
+     * @throws SQLException If the order is not in memory and cannot be read.
+     * @throws IllegalStateException If the order's current status does not
+     * allow the transition.
+     */
+    public boolean updateOrderStatus(int orderId, OrderStatus status) throws SQLException {
+        if (liveOrders.transition(orderId, status) == null) {
+            // Not in memory: load the current status once, then transition in memory
+            OrderStatus current = getOrderStatus(orderId);
+            if (current == null) {
+                return false;
+            }
+            if (liveOrders.transition(orderId, status) == null) {
+                // No free slot near this ID; check the rule without the table
+                if (!current.canTransitionTo(status)) {
+                    throw new IllegalStateException("Order " + orderId + " cannot go from "
+                            + current.getLabel() + " to " + status.getLabel());
+                }
+            }
+        }
+        statusWriter.submit(new OrderStatusUpdate(0, orderId, new Timestamp(System.currentTimeMillis()), status.getLabel()));
+        return true;
+    }
 
-        // Insert order items into the order_items table
-        orderDAO.insertOrderItems(order.getOrderId(), orderItems);
+    /**
+     * Registers a subscriber for order status changes. The change feed is
+     * started by the first subscription and shared by all subscribers.
+     * Subscribers run on the feed's thread and should hand work off rather
+     * than block.
+     *
+     * @param subscriber Receives each status change.
+     * @return Unregisters the subscriber when run.
+     */
+    public Runnable subscribeToStatusChanges(Consumer<OrderStatusUpdate> subscriber) {
+        synchronized (this) {
+            if (statusFeed == null) {
+                statusFeed = new OrderStatusFeed(statusUpdateDAO, orderDAO, STATUS_FEED_POLL_MILLIS);
+            }
+        }
+        return statusFeed.subscribe(subscriber);
+    }
 
-        // Update the total price in the orders table
-        orderDAO.updateOrderTotal(order.getOrderId(), totalValue);
+    /**
+     * Registers a subscriber for newly placed orders, e.g. the kitchen. It is
+     * called on the placing thread right after each order is accepted, with
+     * the order ID and items, and should return quickly.
+     *
+     * @param subscriber Receives the ID and items of each placed order.
+     * @return Unregisters the subscriber when run.
+     */
+    public Runnable subscribeToPlacedOrders(BiConsumer<Integer, OrderItem[]> subscriber) {
+        placedOrderSubscribers.add(subscriber);
+        return () -> placedOrderSubscribers.remove(subscriber);
+    }
 
-        return order.getOrderId();
+    /**
+     * Returns the in-memory sales rollups, which count every order placed
+     * through this service.
+     *
+     * @return The rollups, or null if {@code pizzashop.rollup.enabled} is
+     * false.
+     */
+    public SalesRollup getSalesRollup() {
+        return salesRollup;
+    }
+
+    /**
+     * Fills the sales rollups with the orders already in the database, with
+     * one streaming scan. Run once at start-up; orders placed meanwhile are
+     * not counted twice.
+     *
+     * @return The number of orders scanned, or 0 if rollups are disabled.
+     * @throws SQLException If the scan fails; it may then be called again.
+     * @throws IllegalStateException If the rollups were already rebuilt.
+     */
+    public long rebuildSalesRollup() throws SQLException {
+        return salesRollup == null ? 0 : salesRollup.rebuild(orderDAO);
+    }
+
+    /**
+     * Rebuilds the sales rollups on a background thread, retrying with
+     * backoff if the scan fails, e.g. while the database is unreachable at
+     * start-up. After {@code pizzashop.rollup.rebuildAttempts} failures the
+     * rebuild is abandoned and the rollups stay partial.
+     *
+     * @return A future completed with the number of orders scanned (0 if
+     * rollups are disabled), or with the last failure once the rebuild is
+     * abandoned.
+     */
+    public CompletableFuture<Long> rebuildSalesRollupInBackground() {
+        CompletableFuture<Long> result = new CompletableFuture<>();
+        if (salesRollup == null) {
+            result.complete(0L);
+            return result;
+        }
+        Thread t = new Thread(() -> {
+            long delay = ROLLUP_REBUILD_RETRY_MILLIS;
+            for (int attempt = 1;; attempt++) {
+                try {
+                    result.complete(salesRollup.rebuild(orderDAO));
+                    return;
+                } catch (SQLException e) {
+                    if (attempt >= ROLLUP_REBUILD_ATTEMPTS) {
+                        salesRollup.abandonRebuild();
+                        result.completeExceptionally(e);
+                        return;
+                    }
+                    System.out.println("Sales rollup rebuild failed, retrying in " + delay + " ms: " + e);
+                } catch (RuntimeException e) {
+                    // Abandoned meanwhile, or a bug that retrying won't fix
+                    salesRollup.abandonRebuild();
+                    result.completeExceptionally(e);
+                    return;
+                }
+                try {
+                    Thread.sleep(delay);
+                } catch (InterruptedException e) {
+                    salesRollup.abandonRebuild();
+                    result.completeExceptionally(e);
+                    return;
+                }
+                delay = Math.min(delay * 2, ROLLUP_REBUILD_MAX_RETRY_MILLIS);
+            }
+        }, "sales-rollup-rebuild");
+        t.setDaemon(true);
+        t.start();
+        return result;
     }
 
     /**
      * Retrieves the details of an order based on the order ID.
      *
      * @param orderId The unique identifier of the order.
-     * @return A map containing the details of the order.
+     * @return The details of the order, or null if no order is found.
+     * @throws SQLException If there is an issue with the database interaction.
+     */
+    public OrderDetails getOrderDetails(int orderId) throws SQLException {
+        return withLiveStatus(orderDAO.getOrderDetails(orderId));
+    }
+
+    /**
+     * Retrieves the details of several orders with a constant number of
+     * queries, for screens that list many orders.
+     *
+     * @param orderIds The unique identifiers of the orders.
+     * @return The details of the orders found, keyed by order ID in the order
+     * requested.
+     * @throws SQLException If there is an issue with the database interaction.
+     */
+    public Map<Integer, OrderDetails> getOrderDetails(int[] orderIds) throws SQLException {
+        Map<Integer, OrderDetails> found = orderDAO.getOrderDetails(orderIds);
+        found.replaceAll((orderId, details) -> withLiveStatus(details));
+        return found;
+    }
+
+    /**
+     * Retrieves one page of a customer's order history, newest first.
+     *
+     * @param customerId The unique identifier of the customer.
+     * @param cursor The cursor returned with the previous page, or null for
+     * the first page.
+     * @param pageSize The most orders on the page.
+     * @return The page.
      * @throws SQLException If there is an issue with the database interaction.
      */
-    public HashMap<String, String> getOrderDetails(int orderId) throws SQLException {
-        return orderDAO.getOrderDetails(orderId);
+    public OrderHistoryPage getOrderHistory(int customerId, OrderHistoryPage.Cursor cursor, int pageSize) throws SQLException {
+        OrderHistoryPage page = orderDAO.getOrderHistory(customerId, cursor, pageSize);
+        List<OrderSummary> orders = new ArrayList<>(page.orders().size());
+        for (OrderSummary order : page.orders()) {
+            OrderStatus live = liveOrders.get(order.orderId());
+            orders.add(live == null ? order
+                    : new OrderSummary(order.orderId(), order.orderDate(), live.getLabel(), order.orderTotal()));
+        }
+        return new OrderHistoryPage(orders, page.next());
+    }
+
+    /**
+     * Retrieves one page of order history for the customer with a phone
+     * number, for customers who no longer have their order ID.
+     *
+     * @param phone The customer's phone number.
+     * @param cursor The cursor returned with the previous page, or null for
+     * the first page.
+     * @param pageSize The most orders on the page.
+     * @return The page, empty if no customer has this phone number.
+     * @throws SQLException If there is an issue with the database interaction.
+     */
+    public OrderHistoryPage getOrderHistory(String phone, OrderHistoryPage.Cursor cursor, int pageSize) throws SQLException {
+        int customerId = customerDAO.customerExistsByPhone(phone);
+        if (customerId == -1) {
+            return new OrderHistoryPage(List.of(), null);
+        }
+        return getOrderHistory(customerId, cursor, pageSize);
+    }
+
+    /**
+     * Returns the details with the in-memory status when it is newer than the
+     * stored one, i.e. while the change is still being written.
+     */
+    private OrderDetails withLiveStatus(OrderDetails details) {
+        if (details == null) {
+            return null;
+        }
+        OrderStatus live = liveOrders.get(details.orderId());
+        if (live == null || live.getLabel().equals(details.status())) {
+            return details;
+        }
+        return new OrderDetails(details.orderId(), details.orderDate(), live.getLabel(), details.orderTotal(),
+                details.specialInstructions(), details.customerId(), details.customerName(), details.phone(),
+                details.address(), details.email(), details.lineItems());
+    }
+
+    /**
+     * Retrieves the oldest orders with a given status in one query.
+     *
+     * @param status The status to match, e.g. "Pending".
+     * @param limit The most orders to return.
+     * @return The matching orders, oldest first.
+     * @throws SQLException If there is an issue with the database interaction.
+     */
+    public List<OrderDetails> getOrdersByStatus(String status, int limit) throws SQLException {
+        return orderDAO.getOrdersByStatus(status, limit);
+    }
+
+    /**
+     * Places an order asynchronously on a virtual thread. There is no
+     * deadline, and cancelling the returned future does not stop the
+     * placement: an order cut off part way may still be written, so the
+     * future only ever reports an order that was placed or one that failed.
+     *
+     * @param customer The customer placing the order.
+     * @param orderItems The items being ordered.
+     * @param specialInstructions Any special instructions provided by the
+     * customer.
+     * @param totalValue The total value of the order.
+     * @return A future completed with the unique order ID of the placed order.
+     * @see #placeOrder(Customer, OrderItem[], String, BigDecimal)
+     */
+    public CompletableFuture<Integer> placeOrderAsync(Customer customer, OrderItem[] orderItems, String specialInstructions, BigDecimal totalValue) {
+        return AsyncExecutor.supplyToCompletion(() -> placeOrder(customer, orderItems, specialInstructions, totalValue));
+    }
+
+    /**
+     * Places everything in a cart as one order, asynchronously on a virtual
+     * thread and without a deadline. The cart is copied first, so it may be
+     * cleared as soon as this returns.
+     *
+     * @param customer The customer placing the order.
+     * @param cart The cart holding the order items.
+     * @param specialInstructions Any special instructions provided by the
+     * customer.
+     * @return A future completed with the unique order ID of the placed order.
+     * @see #placeOrder(Customer, Cart, String)
+     */
+    public CompletableFuture<Integer> placeOrderAsync(Customer customer, Cart cart, String specialInstructions) {
+        OrderItem[] orderItems = cart.toArray();
+        for (int i = 0; i < orderItems.length; i++) {
+            OrderItem copy = new OrderItem();
+            copy.setPizzaId(orderItems[i].getPizzaId());
+            copy.setSize(orderItems[i].getSize());
+            copy.setQuantity(orderItems[i].getQuantity());
+            orderItems[i] = copy;
+        }
+        if (orderItems.length == 0) {
+            return CompletableFuture.failedFuture(new IllegalArgumentException("Cannot place an order for an empty cart"));
+        }
+        return placeOrderAsync(customer, orderItems, specialInstructions, null);
+    }
+
+    /**
+     * Retrieves the details of an order asynchronously on a virtual thread,
+     * with the default deadline.
+     *
+     * @param orderId The unique identifier of the order.
+     * @return A future completed with the details of the order, or with
+     * {@code null} if no order is found.
+     */
+    public CompletableFuture<OrderDetails> getOrderDetailsAsync(int orderId) {
+        return getOrderDetailsAsync(orderId, DEFAULT_ASYNC_DEADLINE);
+    }
+
+    /**
+     * Retrieves the details of an order asynchronously on a virtual thread.
+     *
+     * @param orderId The unique identifier of the order.
+     * @param deadline How long to wait for the details, or {@code null} for no
+     * deadline.
+     * @return A future completed with the details of the order, or with
+     * {@code null} if no order is found.
+     */
+    public CompletableFuture<OrderDetails> getOrderDetailsAsync(int orderId, Duration deadline) {
+        return AsyncExecutor.supply(() -> getOrderDetails(orderId), deadline);
+    }
+
+    /**
+     * Retrieves one page of order history by phone number asynchronously on
+     * a virtual thread, with the default deadline.
+     *
+     * @param phone The customer's phone number.
+     * @param cursor The cursor returned with the previous page, or null for
+     * the first page.
+     * @param pageSize The most orders on the page.
+     * @return A future completed with the page.
+     * @see #getOrderHistory(String, OrderHistoryPage.Cursor, int)
+     */
+    public CompletableFuture<OrderHistoryPage> getOrderHistoryAsync(String phone, OrderHistoryPage.Cursor cursor, int pageSize) {
+        return AsyncExecutor.supply(() -> getOrderHistory(phone, cursor, pageSize), DEFAULT_ASYNC_DEADLINE);
     }
 }
@@ -0,0 +1,96 @@
+package service;
+
+/**
+ * The lifecycle of an order. The label is what is stored in
+ * {@code orders.status} and shown to customers; each status allows only the
+ * transitions listed in {@link #canTransitionTo(OrderStatus)}.
+ *
+ * <pre>
+ * Pending -&gt; Preparing -&gt; In the oven -&gt; Ready -&gt; Out for delivery -&gt; Delivered
+ *    |           |                          |
+ *    +-----------+-&gt; Cancelled              +-&gt; Delivered (collected in store)
+ * </pre>
+ */
+public enum OrderStatus {
+    PENDING("Pending"),
+    PREPARING("Preparing"),
+    IN_THE_OVEN("In the oven"),
+    READY("Ready"),
+    OUT_FOR_DELIVERY("Out for delivery"),
+    DELIVERED("Delivered"),
+    CANCELLED("Cancelled");
+
+    private static final OrderStatus[] VALUES = values();
+
+    static {
+        allow(PENDING, PREPARING, CANCELLED);
+        allow(PREPARING, IN_THE_OVEN, CANCELLED);
+        allow(IN_THE_OVEN, READY);
+        allow(READY, OUT_FOR_DELIVERY, DELIVERED);
+        allow(OUT_FOR_DELIVERY, DELIVERED);
+    }
+
+    private final String label;
+    // Bit i is set when the status with ordinal i may follow this one
+    private int allowedNext;
+
+    OrderStatus(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Returns true if an order in this status may move to the given one.
+     *
+     * @param next The proposed next status.
+     * @return Whether the transition is legal.
+     */
+    public boolean canTransitionTo(OrderStatus next) {
+        return (allowedNext & (1 << next.ordinal())) != 0;
+    }
+
+    /**
+     * Returns true if no further transitions are allowed.
+     *
+     * @return Whether the order is finished.
+     */
+    public boolean isTerminal() {
+        return allowedNext == 0;
+    }
+
+    /**
+     * Returns the status with the given ordinal, without copying the values
+     * array.
+     *
+     * @param ordinal The ordinal.
+     * @return The status.
+     */
+    static OrderStatus fromOrdinal(int ordinal) {
+        return VALUES[ordinal];
+    }
+
+    /**
+     * Parses a status label, ignoring case.
+     *
+     * @param label The status label, e.g. "Pending".
+     * @return The matching status.
+     * @throws IllegalArgumentException If the label is not a known status.
+     */
+    public static OrderStatus fromLabel(String label) {
+        for (OrderStatus status : VALUES) {
+            if (status.label.equalsIgnoreCase(label)) {
+                return status;
+            }
+        }
+        throw new IllegalArgumentException("Invalid order status: " + label);
+    }
+
+    private static void allow(OrderStatus from, OrderStatus... to) {
+        for (OrderStatus next : to) {
+            from.allowedNext |= 1 << next.ordinal();
+        }
+    }
+}
@@ -0,0 +1,137 @@
+package service;
+
+import dao.OrderDAO;
+import dao.OrderStatusUpdateDAO;
+import java.sql.SQLException;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import model.OrderStatusUpdate;
+
+/**
+ * Pushes order status changes to in-process subscribers. A single background
+ * poller tails {@code order_status_updates} by last-seen ID, so one cheap
+ * incremental query per interval replaces every screen polling every order.
+ * Each change first drops the order from the details cache and is then handed
+ * to every subscriber on the poller thread.
+ *
+ * <p>
+ * Auto-increment IDs can commit out of order, so an ID skipped over while
+ * tailing is remembered as a gap and looked for again on later polls for a
+ * grace period; a late row is still delivered, once.</p>
+ */
+public class OrderStatusFeed {
+
+    private static final int POLL_BATCH = 500;
+    private static final long GAP_GRACE_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final int MAX_TRACKED_GAPS = 10_000;
+
+    private final OrderStatusUpdateDAO statusUpdateDAO;
+    private final OrderDAO orderDAO;
+    private final CopyOnWriteArrayList<Consumer<OrderStatusUpdate>> subscribers = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService poller;
+
+    // Only touched by the poller thread
+    private int highestSeenId = -1;
+    private final TreeMap<Integer, Long> gaps = new TreeMap<>();
+
+    /**
+     * Creates a feed and starts polling. Only changes recorded after the
+     * first successful poll are delivered.
+     *
+     * @param statusUpdateDAO The DAO used to read new transitions.
+     * @param orderDAO The DAO whose cached order details are invalidated.
+     * @param pollIntervalMillis How often to look for new transitions.
+     */
+    public OrderStatusFeed(OrderStatusUpdateDAO statusUpdateDAO, OrderDAO orderDAO, long pollIntervalMillis) {
+        this.statusUpdateDAO = statusUpdateDAO;
+        this.orderDAO = orderDAO;
+        this.poller = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "order-status-feed");
+            t.setDaemon(true);
+            return t;
+        });
+        poller.scheduleWithFixedDelay(this::poll, 0, pollIntervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Registers a subscriber for every status change. Subscribers run on the
+     * feed's thread and should hand work off rather than block.
+     *
+     * @param subscriber Receives each change.
+     * @return Unregisters the subscriber when run.
+     */
+    public Runnable subscribe(Consumer<OrderStatusUpdate> subscriber) {
+        subscribers.add(subscriber);
+        return () -> subscribers.remove(subscriber);
+    }
+
+    /**
+     * Stops polling.
+     */
+    public void close() {
+        poller.shutdown();
+    }
+
+    private void poll() {
+        try {
+            if (highestSeenId < 0) {
+                highestSeenId = statusUpdateDAO.getLatestId();
+                return;
+            }
+            // Start below the oldest open gap so a late commit there is seen
+            int cursor = gaps.isEmpty() ? highestSeenId : gaps.firstKey() - 1;
+            List<OrderStatusUpdate> updates;
+            do {
+                updates = statusUpdateDAO.getUpdatesAfter(cursor, POLL_BATCH);
+                for (OrderStatusUpdate update : updates) {
+                    accept(update);
+                    cursor = update.getId();
+                }
+            } while (updates.size() == POLL_BATCH);
+            expireGaps();
+        } catch (SQLException | RuntimeException e) {
+            System.out.println("Order status feed poll failed: " + e);
+        }
+    }
+
+    private void accept(OrderStatusUpdate update) {
+        int id = update.getId();
+        if (id <= highestSeenId) {
+            if (gaps.remove(id) == null) {
+                return; // Already delivered; re-read because a gap lies below it
+            }
+        } else {
+            long now = System.nanoTime();
+            for (int missing = highestSeenId + 1; missing < id && gaps.size() < MAX_TRACKED_GAPS; missing++) {
+                gaps.put(missing, now);
+            }
+            highestSeenId = id;
+        }
+        orderDAO.evictCachedDetails(update.getOrderId());
+        for (Consumer<OrderStatusUpdate> subscriber : subscribers) {
+            try {
+                subscriber.accept(update);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    private void expireGaps() {
+        long now = System.nanoTime();
+        // Gaps older than the grace period were rolled back or never used
+        Iterator<Map.Entry<Integer, Long>> it = gaps.entrySet().iterator();
+        while (it.hasNext()) {
+            if (now - it.next().getValue() > GAP_GRACE_NANOS) {
+                it.remove();
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package service;
+
+import dao.OrderDAO;
+import dao.OrderStatusUpdateDAO;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLIntegrityConstraintViolationException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import model.OrderStatusUpdate;
+import util.DBConnection;
+import util.SqlErrors;
+
+/**
+ * Persists status transitions in the background. Transitions are queued by
+ * {@link #submit(OrderStatusUpdate)} without waiting, and a single writer
+ * thread stores each batch in one transaction: one batched UPDATE of
+ * {@code orders.status} and one batched INSERT into
+ * {@code order_status_updates}. A single writer keeps each order's
+ * transitions in the order they happened.
+ *
+ * <p>
+ * While the database is unreachable a batch is retried as it is. If a batch
+ * fails for another reason its transitions are written one at a time, so one
+ * bad transition does not hold up the rest. One that breaks a constraint,
+ * typically because its journaled order has not reached the database yet,
+ * is retried with the next batches, together with any later transitions of
+ * the same order, for up to a minute. Transitions that can never be written
+ * are set aside with a log line.</p>
+ */
+public class OrderStatusWriter {
+
+    private static final int MAX_BATCH_SIZE = 200;
+    private static final long RETRY_DELAY_MILLIS = 1_000L;
+    private static final int MAX_ATTEMPTS = 60;
+
+    private final OrderDAO orderDAO;
+    private final OrderStatusUpdateDAO statusUpdateDAO;
+    private final LinkedBlockingQueue<OrderStatusUpdate> queue = new LinkedBlockingQueue<>();
+    // Transitions to retry with the next batch; used by the writer thread only
+    private final List<PendingUpdate> waiting = new ArrayList<>();
+    private volatile long rejected;
+
+    /**
+     * Creates a writer and starts its thread.
+     *
+     * @param orderDAO The DAO used to update order rows.
+     * @param statusUpdateDAO The DAO used to record the transitions.
+     */
+    public OrderStatusWriter(OrderDAO orderDAO, OrderStatusUpdateDAO statusUpdateDAO) {
+        this.orderDAO = orderDAO;
+        this.statusUpdateDAO = statusUpdateDAO;
+
+        Thread writer = new Thread(this::run, "order-status-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Queues a transition to be persisted.
+     *
+     * @param update The transition.
+     */
+    public void submit(OrderStatusUpdate update) {
+        queue.add(update);
+    }
+
+    /**
+     * Returns the number of transitions not yet persisted.
+     *
+     * @return The queue length.
+     */
+    public int getBacklog() {
+        return queue.size();
+    }
+
+    /**
+     * Returns the number of transitions set aside because they can never be
+     * written.
+     *
+     * @return The count since start.
+     */
+    public long getRejectedCount() {
+        return rejected;
+    }
+
+    private void run() {
+        List<PendingUpdate> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        List<OrderStatusUpdate> taken = new ArrayList<>(MAX_BATCH_SIZE);
+        while (true) {
+            try {
+                // Waiting transitions go first so each order's stay in order
+                batch.addAll(waiting);
+                waiting.clear();
+                if (batch.isEmpty()) {
+                    taken.add(queue.take());
+                } else {
+                    OrderStatusUpdate next = queue.poll(RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+                    if (next != null) {
+                        taken.add(next);
+                    }
+                }
+                queue.drainTo(taken, Math.max(MAX_BATCH_SIZE - batch.size() - taken.size(), 0));
+                for (OrderStatusUpdate update : taken) {
+                    batch.add(new PendingUpdate(update, 0));
+                }
+                taken.clear();
+                writeBatch(batch);
+                batch.clear();
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Writes a batch in one transaction, or one transition at a time if that
+     * fails, leaving transitions that may still succeed in {@link #waiting}.
+     */
+    private void writeBatch(List<PendingUpdate> batch) throws InterruptedException {
+        List<OrderStatusUpdate> updates = new ArrayList<>(batch.size());
+        for (PendingUpdate pending : batch) {
+            updates.add(pending.update());
+        }
+        SQLException failure;
+        while ((failure = write(updates)) != null && SqlErrors.isTransient(failure)) {
+            // The database is unreachable; nothing is lost by waiting for it
+            System.out.println("Order status write failed, retrying: " + failure);
+            TimeUnit.MILLISECONDS.sleep(RETRY_DELAY_MILLIS);
+        }
+        if (failure == null) {
+            return;
+        }
+
+        // Something in the batch is bad; find it without holding up the rest
+        Set<Integer> held = new HashSet<>();
+        for (int i = 0; i < batch.size(); i++) {
+            PendingUpdate pending = batch.get(i);
+            OrderStatusUpdate update = pending.update();
+            if (held.contains(update.getOrderId())) {
+                // An earlier transition of this order is waiting
+                waiting.add(pending);
+                continue;
+            }
+            SQLException error = write(List.of(update));
+            if (error == null) {
+                continue;
+            }
+            if (SqlErrors.isTransient(error)) {
+                // Lost the database half way; retry the rest as they are
+                waiting.addAll(batch.subList(i, batch.size()));
+                return;
+            }
+            if (error instanceof SQLIntegrityConstraintViolationException && pending.attempts() + 1 < MAX_ATTEMPTS) {
+                // Most likely a journaled order that has not reached the database yet
+                waiting.add(new PendingUpdate(update, pending.attempts() + 1));
+                held.add(update.getOrderId());
+                continue;
+            }
+            rejected++;
+            System.out.println("Setting aside order status update " + update + " after "
+                    + (pending.attempts() + 1) + " attempts: " + error);
+        }
+    }
+
+    /**
+     * Writes transitions in one transaction.
+     *
+     * @return The failure, or null if they were written.
+     */
+    private SQLException write(List<OrderStatusUpdate> updates) {
+        try (Connection conn = DBConnection.getConnection()) {
+            conn.setAutoCommit(false);
+            try {
+                orderDAO.updateOrderStatuses(conn, updates);
+                statusUpdateDAO.insertUpdates(conn, updates);
+                conn.commit();
+                return null;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            }
+        } catch (SQLException e) {
+            return e;
+        } catch (RuntimeException e) {
+            return new SQLException(e);
+        } finally {
+            // Drop details cached while the batch was in flight
+            for (OrderStatusUpdate update : updates) {
+                orderDAO.evictCachedDetails(update.getOrderId());
+            }
+        }
+    }
+
+    /**
+     * A transition and how often it failed on an integrity constraint.
+     */
+    private record PendingUpdate(OrderStatusUpdate update, int attempts) {
+
+    }
+}
@@ -2,16 +2,33 @@ package service;
 
 import dao.PizzaDAO;
 import java.sql.*;
+import java.time.Duration;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
 import model.Pizza;
+import util.AsyncExecutor;
+import util.DBConnection;
 
 /**
  * Service class responsible for handling pizza-related operations, including
- * retrieving pizza data.
+ * retrieving pizza data. The menu is loaded once into an immutable
+ * {@link MenuSnapshot} and refreshed in the background; readers always get
+ * the current snapshot without blocking or querying the database.
  */
 public class PizzaService {
 
+    // Deadline applied to async calls that don't pass their own
+    private static final Duration DEFAULT_ASYNC_DEADLINE = Duration.ofSeconds(10);
+    // Background refresh interval, set with -Dpizzashop.menu.refreshSeconds (0 disables refresh)
+    private static final long MENU_REFRESH_SECONDS = Long.getLong("pizzashop.menu.refreshSeconds", 300L);
+
     private PizzaDAO pizzaDAO;
+    private final AtomicReference<MenuSnapshot> menu = new AtomicReference<>();
+    private ScheduledExecutorService refresher;
 
     /**
      * Default constructor that initializes the PizzaDAO object.
@@ -20,6 +37,22 @@ public class PizzaService {
         pizzaDAO = new PizzaDAO();
     }
 
+    /**
+     * Returns the current menu snapshot, loading it on first use. After the
+     * first load this never touches the database.
+     *
+     * @return The current menu snapshot.
+     * @throws SQLException If the menu has never been loaded and loading it
+     * fails.
+     */
+    public MenuSnapshot getMenu() throws SQLException {
+        MenuSnapshot snapshot = menu.get();
+        if (snapshot == null) {
+            snapshot = loadInitialMenu();
+        }
+        return snapshot;
+    }
+
     /**
      * Retrieves the full menu of pizzas.
      *
@@ -27,7 +60,7 @@ public class PizzaService {
      * @throws SQLException If there is an issue with the database interaction.
      */
     public List<Pizza> getFullMenu() throws SQLException {
-        return pizzaDAO.getAllPizzas();
+        return getMenu().getPizzas();
     }
 
     /**
@@ -37,6 +70,74 @@ public class PizzaService {
      * @throws SQLException If there is an issue with the database interaction.
      */
     public List<String> getPizzaNames() throws SQLException {
-        return pizzaDAO.getPizzaNames();
+        return getMenu().getPizzaNames();
+    }
+
+    /**
+     * Reloads the menu now and swaps in a new snapshot if it changed.
+     *
+     * @return The snapshot in effect after the refresh.
+     * @throws SQLException If the menu cannot be loaded; the previous
+     * snapshot stays in effect.
+     */
+    public MenuSnapshot refreshMenu() throws SQLException {
+        List<Pizza> pizzas;
+        try (Connection conn = DBConnection.getConnection()) {
+            pizzas = pizzaDAO.getAllPizzas(conn);
+        }
+        while (true) {
+            MenuSnapshot previous = menu.get();
+            if (previous != null && previous.hasSameContent(pizzas)) {
+                return previous;
+            }
+            MenuSnapshot next = new MenuSnapshot(previous == null ? 1 : previous.getVersion() + 1, pizzas);
+            if (menu.compareAndSet(previous, next)) {
+                return next;
+            }
+        }
+    }
+
+    private synchronized MenuSnapshot loadInitialMenu() throws SQLException {
+        MenuSnapshot snapshot = menu.get();
+        if (snapshot != null) {
+            return snapshot;
+        }
+        snapshot = refreshMenu();
+        if (MENU_REFRESH_SECONDS > 0) {
+            refresher = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread t = new Thread(r, "menu-refresher");
+                t.setDaemon(true);
+                return t;
+            });
+            refresher.scheduleWithFixedDelay(() -> {
+                try {
+                    refreshMenu();
+                } catch (SQLException e) {
+                    System.out.println(e); // Keep serving the previous snapshot
+                }
+            }, MENU_REFRESH_SECONDS, MENU_REFRESH_SECONDS, TimeUnit.SECONDS);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Retrieves the full menu asynchronously on a virtual thread, with the
+     * default deadline.
+     *
+     * @return A future completed with all pizzas available in the menu.
+     */
+    public CompletableFuture<List<Pizza>> getFullMenuAsync() {
+        return getFullMenuAsync(DEFAULT_ASYNC_DEADLINE);
+    }
+
+    /**
+     * Retrieves the full menu asynchronously on a virtual thread.
+     *
+     * @param deadline How long to wait for the menu, or {@code null} for no
+     * deadline.
+     * @return A future completed with all pizzas available in the menu.
+     */
+    public CompletableFuture<List<Pizza>> getFullMenuAsync(Duration deadline) {
+        return AsyncExecutor.supply(this::getFullMenu, deadline);
     }
 }
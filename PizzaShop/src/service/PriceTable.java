@@ -0,0 +1,80 @@
+package service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.Arrays;
+import java.util.List;
+import model.Pizza;
+
+/**
+ * Menu prices in cents, held in one dense {@code long[]} indexed by pizza ID
+ * and {@link Size}. Built once per {@link MenuSnapshot}, so a price lookup on
+ * the ordering path is an array read with no parsing, boxing or
+ * {@code BigDecimal} arithmetic.
+ */
+public class PriceTable {
+
+    /**
+     * Stored for pizza and size combinations that are not on the menu.
+     */
+    public static final long NOT_ON_MENU = -1;
+
+    private static final int SIZES = Size.values().length;
+    // Pizza IDs index the table directly, so keep it to a sane range
+    private static final int MAX_PIZZA_ID = 1 << 16;
+
+    private final long[] cents;
+
+    /**
+     * Builds the table from the pizzas on the menu.
+     *
+     * @param pizzas The pizzas on the menu.
+     * @throws IllegalArgumentException If a pizza ID is negative or too large
+     * to index directly.
+     */
+    public PriceTable(List<Pizza> pizzas) {
+        int maxId = -1;
+        for (Pizza pizza : pizzas) {
+            if (pizza.getPizzaId() < 0 || pizza.getPizzaId() >= MAX_PIZZA_ID) {
+                throw new IllegalArgumentException("Pizza ID out of range for the price table: " + pizza.getPizzaId());
+            }
+            maxId = Math.max(maxId, pizza.getPizzaId());
+        }
+        cents = new long[(maxId + 1) * SIZES];
+        Arrays.fill(cents, NOT_ON_MENU);
+        for (Pizza pizza : pizzas) {
+            int base = pizza.getPizzaId() * SIZES;
+            cents[base + Size.SMALL.ordinal()] = toCents(pizza.getSmallPrice());
+            cents[base + Size.MEDIUM.ordinal()] = toCents(pizza.getMediumPrice());
+            cents[base + Size.LARGE.ordinal()] = toCents(pizza.getLargePrice());
+            cents[base + Size.EXTRA_LARGE.ordinal()] = toCents(pizza.getExtraLargePrice());
+        }
+    }
+
+    /**
+     * Returns the unit price of a pizza in a size.
+     *
+     * @param pizzaId The pizza ID.
+     * @param size The size.
+     * @return The price in cents, or {@link #NOT_ON_MENU}.
+     */
+    public long priceCents(int pizzaId, Size size) {
+        int index = pizzaId * SIZES + size.ordinal();
+        return pizzaId < 0 || index >= cents.length ? NOT_ON_MENU : cents[index];
+    }
+
+    /**
+     * Converts an amount in cents to a two-decimal {@code BigDecimal}, for
+     * display and for storing in the database.
+     *
+     * @param cents The amount in cents.
+     * @return The amount in dollars.
+     */
+    public static BigDecimal toDollars(long cents) {
+        return BigDecimal.valueOf(cents, 2);
+    }
+
+    private static long toCents(BigDecimal price) {
+        return price == null ? NOT_ON_MENU : price.setScale(2, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+}
@@ -0,0 +1,127 @@
+package service;
+
+import java.sql.SQLException;
+import model.OrderItem;
+
+/**
+ * Prices carts from the current menu's {@link PriceTable}. All arithmetic is
+ * done on {@code long} cents; {@link #quote(OrderItem[], Quote)} fills a
+ * caller-supplied {@link Quote} and allocates nothing, so it is cheap enough
+ * to run on every cart change as well as on every order.
+ *
+ * <p>
+ * Tax and the multi-pizza promotion are configured with system properties:
+ * {@code pizzashop.pricing.taxBasisPoints} (e.g. 825 for 8.25%),
+ * {@code pizzashop.pricing.promoMinItems} and
+ * {@code pizzashop.pricing.promoBasisPoints} (percent off the subtotal when a
+ * cart holds at least that many pizzas). All default to off.</p>
+ */
+public class PricingEngine {
+
+    private static final long BASIS_POINTS = 10_000;
+
+    private final PizzaService pizzaService;
+    private final long taxBasisPoints;
+    private final int promoMinItems;
+    private final long promoBasisPoints;
+
+    /**
+     * Creates an engine configured from system properties.
+     *
+     * @param pizzaService The service holding the current menu.
+     */
+    public PricingEngine(PizzaService pizzaService) {
+        this(pizzaService,
+                Long.getLong("pizzashop.pricing.taxBasisPoints", 0L),
+                Integer.getInteger("pizzashop.pricing.promoMinItems", 0),
+                Long.getLong("pizzashop.pricing.promoBasisPoints", 0L));
+    }
+
+    /**
+     * Creates an engine with explicit tax and promotion settings.
+     *
+     * @param pizzaService The service holding the current menu.
+     * @param taxBasisPoints The tax rate in hundredths of a percent.
+     * @param promoMinItems The number of pizzas that triggers the promotion,
+     * or 0 for no promotion.
+     * @param promoBasisPoints The promotion discount in hundredths of a
+     * percent.
+     */
+    public PricingEngine(PizzaService pizzaService, long taxBasisPoints, int promoMinItems, long promoBasisPoints) {
+        this.pizzaService = pizzaService;
+        this.taxBasisPoints = taxBasisPoints;
+        this.promoMinItems = promoMinItems;
+        this.promoBasisPoints = promoBasisPoints;
+    }
+
+    /**
+     * Prices a cart into a new quote.
+     *
+     * @param items The items in the cart.
+     * @return The quote.
+     * @throws SQLException If the menu has never been loaded and loading it
+     * fails.
+     * @throws IllegalArgumentException If an item is not on the menu or has
+     * an invalid quantity.
+     */
+    public Quote quote(OrderItem[] items) throws SQLException {
+        return quote(items, new Quote());
+    }
+
+    /**
+     * Prices a cart into an existing quote, without allocating.
+     *
+     * @param items The items in the cart.
+     * @param into The quote to fill.
+     * @return {@code into}, for chaining.
+     * @throws SQLException If the menu has never been loaded and loading it
+     * fails.
+     * @throws IllegalArgumentException If an item is not on the menu or has
+     * an invalid quantity.
+     */
+    public Quote quote(OrderItem[] items, Quote into) throws SQLException {
+        PriceTable prices = pizzaService.getMenu().getPriceTable();
+        int itemCount = 0;
+        long subtotal = 0;
+        for (OrderItem item : items) {
+            if (item.getQuantity() <= 0) {
+                throw new IllegalArgumentException("Invalid quantity for pizza " + item.getPizzaId() + ": " + item.getQuantity());
+            }
+            long unit = prices.priceCents(item.getPizzaId(), Size.fromLabel(item.getSize()));
+            if (unit == PriceTable.NOT_ON_MENU) {
+                throw new IllegalArgumentException("Not on the menu: pizza " + item.getPizzaId() + ", size " + item.getSize());
+            }
+            itemCount += item.getQuantity();
+            subtotal += unit * item.getQuantity();
+        }
+
+        long discount = discountCents(subtotal, itemCount);
+        long tax = percentOf(subtotal - discount, taxBasisPoints);
+        into.set(itemCount, subtotal, discount, tax);
+        return into;
+    }
+
+    /**
+     * Applies the promotion and tax to a subtotal already priced elsewhere,
+     * e.g. recomputed from stored order items.
+     *
+     * @param subtotalCents The sum of the line prices, in cents.
+     * @param itemCount The number of pizzas.
+     * @return The total the customer is charged, in cents.
+     */
+    public long totalCents(long subtotalCents, int itemCount) {
+        long discount = discountCents(subtotalCents, itemCount);
+        return subtotalCents - discount + percentOf(subtotalCents - discount, taxBasisPoints);
+    }
+
+    private long discountCents(long subtotal, int itemCount) {
+        return promoMinItems > 0 && itemCount >= promoMinItems ? percentOf(subtotal, promoBasisPoints) : 0;
+    }
+
+    /**
+     * Returns a fraction of an amount, rounding half up to the cent.
+     */
+    private static long percentOf(long cents, long basisPoints) {
+        return (cents * basisPoints + BASIS_POINTS / 2) / BASIS_POINTS;
+    }
+}
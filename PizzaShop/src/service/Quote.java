@@ -0,0 +1,72 @@
+package service;
+
+import java.math.BigDecimal;
+
+/**
+ * The priced result of a cart, in cents. A quote is mutable so a caller
+ * pricing on every cart change can reuse one instance and price without
+ * allocating; see {@link PricingEngine#quote(model.OrderItem[], Quote)}.
+ */
+public class Quote {
+
+    private int itemCount;
+    private long subtotalCents;
+    private long discountCents;
+    private long taxCents;
+    private long totalCents;
+
+    void set(int itemCount, long subtotalCents, long discountCents, long taxCents) {
+        this.itemCount = itemCount;
+        this.subtotalCents = subtotalCents;
+        this.discountCents = discountCents;
+        this.taxCents = taxCents;
+        this.totalCents = subtotalCents - discountCents + taxCents;
+    }
+
+    // Getters
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public long getSubtotalCents() {
+        return subtotalCents;
+    }
+
+    public long getDiscountCents() {
+        return discountCents;
+    }
+
+    public long getTaxCents() {
+        return taxCents;
+    }
+
+    public long getTotalCents() {
+        return totalCents;
+    }
+
+    /**
+     * Returns the total as a two-decimal {@code BigDecimal}, for display and
+     * for storing in {@code orders.order_total}.
+     *
+     * @return The total in dollars.
+     */
+    public BigDecimal getTotal() {
+        return PriceTable.toDollars(totalCents);
+    }
+
+    /**
+     * Returns a string representation of the Quote object.
+     *
+     * @return A string containing the quote amounts.
+     */
+    @Override
+    public String toString() {
+        return "Quote{"
+                + "itemCount=" + itemCount
+                + ", subtotalCents=" + subtotalCents
+                + ", discountCents=" + discountCents
+                + ", taxCents=" + taxCents
+                + ", totalCents=" + totalCents
+                + '}';
+    }
+}
@@ -0,0 +1,516 @@
+package service;
+
+import dao.OrderDAO;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.ReentrantLock;
+import model.OrderItem;
+
+/**
+ * In-memory sales counters per minute, hour and day, updated as orders are
+ * placed, so dashboards ("orders per hour", "top pizzas today") are answered
+ * without touching the database.
+ *
+ * <p>
+ * Each {@link Granularity} is a ring of buckets held in one
+ * {@link AtomicLongArray}. A bucket counts orders, revenue in cents, pizzas by
+ * pizza and size, and list-price revenue by pizza. The ring is repeated once
+ * per stripe and each thread adds into its own stripe, so concurrent orders
+ * rarely contend on a counter; reads sum the stripes. Every bucket carries an
+ * epoch tag — the minute, hour or day it holds — and the first writer of a
+ * new period claims the bucket with a CAS on its tag and zeroes it, so old
+ * periods expire as the ring wraps without a cleanup thread. Buckets follow
+ * the local time zone, so a day runs from local midnight.</p>
+ *
+ * <p>
+ * Pizza IDs index the counters directly; IDs above
+ * {@code pizzashop.rollup.maxPizzaId} (63 by default) are counted together
+ * under ID 0. Counters reflect orders as placed: later cancellations are not
+ * subtracted. Reads are not atomic snapshots and may miss an order being
+ * recorded at the same moment.</p>
+ *
+ * <p>
+ * Until {@link #rebuild} completes, the IDs of recorded orders are kept so
+ * the scan can skip them. If more than
+ * {@code pizzashop.rollup.rebuildTrackLimit} (100,000) pile up, or the
+ * rebuild is given up with {@link #abandonRebuild()}, the IDs are dropped
+ * and the rollups stay {@link #isPartial() partial}: they count only the
+ * orders recorded since creation.</p>
+ */
+public class SalesRollup {
+
+    /**
+     * The bucket sizes, with how many buckets of each are kept.
+     */
+    public enum Granularity {
+        MINUTE(60_000L, 120),
+        HOUR(3_600_000L, 48),
+        DAY(86_400_000L, 35);
+
+        private final long millis;
+        private final int buckets;
+
+        Granularity(long millis, int buckets) {
+            this.millis = millis;
+            this.buckets = buckets;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        /**
+         * Returns how many of the most recent buckets are kept.
+         *
+         * @return The ring size.
+         */
+        public int getBuckets() {
+            return buckets;
+        }
+    }
+
+    private static final int SIZES = Size.values().length;
+    private static final int ORDERS = 0;
+    private static final int REVENUE = 1;
+    private static final int QUANTITY = 2;
+    // A bucket tag while its counters are being zeroed, and before first use
+    private static final long RESETTING = Long.MIN_VALUE;
+    private static final long UNUSED = Long.MIN_VALUE + 1;
+    private static final int REBUILD_TRACK_LIMIT = Integer.getInteger("pizzashop.rollup.rebuildTrackLimit", 100_000);
+
+    private final int pizzaSlots;
+    private final int stripes;
+    // Per bucket: orders, revenue, quantity[pizzaSlots * SIZES], pizzaRevenue[pizzaSlots]
+    private final int width;
+    private final int pizzaRevenue;
+    private final AtomicLongArray[] counters = new AtomicLongArray[Granularity.values().length];
+    private final AtomicLongArray[] tags = new AtomicLongArray[Granularity.values().length];
+    private final ZoneId zone;
+    // Orders counted since creation, until rebuild completes; whichever of the
+    // scan and the live path sees an order second skips it
+    private volatile Set<Integer> rebuildSeen = ConcurrentHashMap.newKeySet();
+    // Held by a running rebuild, which relies on rebuildSeen until it ends
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+    private volatile boolean partial;
+
+    /**
+     * Creates empty rollups configured from system properties:
+     * {@code pizzashop.rollup.maxPizzaId} and {@code pizzashop.rollup.stripes}
+     * (by default the number of processors, up to 8).
+     */
+    public SalesRollup() {
+        this(Integer.getInteger("pizzashop.rollup.maxPizzaId", 63),
+                Integer.getInteger("pizzashop.rollup.stripes", Math.min(Runtime.getRuntime().availableProcessors(), 8)),
+                ZoneId.systemDefault());
+    }
+
+    /**
+     * Creates empty rollups.
+     *
+     * @param maxPizzaId The highest pizza ID counted on its own.
+     * @param stripes The number of counter stripes; rounded up to a power of
+     * two.
+     * @param zone The time zone buckets are aligned to.
+     */
+    public SalesRollup(int maxPizzaId, int stripes, ZoneId zone) {
+        this.pizzaSlots = Math.max(maxPizzaId, 0) + 1;
+        this.stripes = Integer.highestOneBit(Math.max(stripes, 1) * 2 - 1);
+        this.pizzaRevenue = QUANTITY + pizzaSlots * SIZES;
+        this.width = pizzaRevenue + pizzaSlots;
+        this.zone = zone;
+        for (Granularity g : Granularity.values()) {
+            counters[g.ordinal()] = new AtomicLongArray(this.stripes * g.buckets * width);
+            AtomicLongArray t = new AtomicLongArray(this.stripes * g.buckets);
+            for (int i = 0; i < t.length(); i++) {
+                t.set(i, UNUSED);
+            }
+            tags[g.ordinal()] = t;
+        }
+    }
+
+    /**
+     * Counts a newly placed order.
+     *
+     * @param orderId The ID of the order.
+     * @param placedAt When it was placed, in milliseconds.
+     * @param items The items of the order.
+     * @param prices The prices the items are valued at.
+     * @param totalCents The order total, in cents.
+     */
+    public void record(int orderId, long placedAt, OrderItem[] items, PriceTable prices, long totalCents) {
+        Set<Integer> seen = rebuildSeen;
+        if (seen != null) {
+            if (!seen.add(orderId)) {
+                return;
+            }
+            if (seen.size() > REBUILD_TRACK_LIMIT && rebuildLock.tryLock()) {
+                // No rebuild is running and it has been pending too long; stop tracking
+                try {
+                    abandonRebuild();
+                } finally {
+                    rebuildLock.unlock();
+                }
+            }
+        }
+        int stripe = stripe();
+        long local = toLocal(placedAt);
+        for (Granularity g : Granularity.values()) {
+            int base = claim(g, stripe, local);
+            if (base < 0) {
+                continue;
+            }
+            AtomicLongArray c = counters[g.ordinal()];
+            c.getAndIncrement(base + ORDERS);
+            c.getAndAdd(base + REVENUE, totalCents);
+            for (OrderItem item : items) {
+                Size size = Size.fromLabel(item.getSize());
+                int slot = pizzaSlot(item.getPizzaId());
+                long unit = prices.priceCents(item.getPizzaId(), size);
+                c.getAndAdd(base + QUANTITY + slot * SIZES + size.ordinal(), item.getQuantity());
+                if (unit != PriceTable.NOT_ON_MENU) {
+                    c.getAndAdd(base + pizzaRevenue + slot, unit * item.getQuantity());
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the orders already in the database within the day ring, with one
+     * streaming scan, to the orders recorded since these rollups were
+     * created. Every order is counted once, whether the scan or
+     * {@link #record} sees it first. Meant to run once at startup; until it
+     * completes, the IDs of recorded orders are kept for that check.
+     *
+     * @param orderDAO The DAO to scan with.
+     * @return The number of orders scanned.
+     * @throws SQLException If the scan fails; counters are then partial, and
+     * calling this again adds only the orders not counted yet.
+     * @throws IllegalStateException If a rebuild has already completed or
+     * was abandoned.
+     */
+    public long rebuild(OrderDAO orderDAO) throws SQLException {
+        rebuildLock.lock();
+        try {
+            return scan(orderDAO);
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Gives up on rebuilding: stops keeping the IDs of recorded orders and
+     * marks the rollups partial. Does nothing once a rebuild has completed.
+     */
+    public void abandonRebuild() {
+        rebuildLock.lock();
+        try {
+            if (rebuildSeen != null) {
+                rebuildSeen = null;
+                partial = true;
+            }
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    /**
+     * Returns whether the rollups lack orders placed before they were
+     * created, because the rebuild was abandoned.
+     *
+     * @return True if only orders recorded since creation are counted.
+     */
+    public boolean isPartial() {
+        return partial;
+    }
+
+    private long scan(OrderDAO orderDAO) throws SQLException {
+        Set<Integer> seen = rebuildSeen;
+        if (seen == null) {
+            throw new IllegalStateException(partial ? "Sales rollup rebuild was abandoned"
+                    : "Sales rollups have already been rebuilt");
+        }
+        LocalDate firstDay = LocalDate.now(zone).minusDays(Granularity.DAY.buckets - 1);
+        int stripe = stripe();
+        int[] current = {0};
+        boolean[] counting = {false};
+        long scanned = orderDAO.scanOrderLines(Timestamp.valueOf(firstDay.atStartOfDay()),
+                (orderId, orderDate, orderTotalCents, pizzaId, size, quantity, lineCents) -> {
+                    long local = toLocal(orderDate);
+                    if (orderId != current[0]) {
+                        current[0] = orderId;
+                        counting[0] = seen.add(orderId);
+                        if (counting[0]) {
+                            add(stripe, local, ORDERS, 1);
+                            add(stripe, local, REVENUE, orderTotalCents);
+                        }
+                    }
+                    if (counting[0] && size != null) {
+                        Size parsed = parseSize(size);
+                        int slot = pizzaSlot(pizzaId);
+                        if (parsed != null) {
+                            add(stripe, local, QUANTITY + slot * SIZES + parsed.ordinal(), quantity);
+                        }
+                        add(stripe, local, pizzaRevenue + slot, lineCents);
+                    }
+                });
+        rebuildSeen = null;
+        return scanned;
+    }
+
+    /**
+     * Returns one bucket per period in a time range, oldest first. Periods
+     * older than the ring are reported as empty.
+     *
+     * @param granularity The bucket size.
+     * @param from The start of the range, in milliseconds.
+     * @param to The end of the range, exclusive, in milliseconds.
+     * @return The buckets overlapping the range.
+     */
+    public List<Bucket> series(Granularity granularity, long from, long to) {
+        long first = Math.floorDiv(toLocal(from), granularity.millis);
+        long last = Math.floorDiv(toLocal(to - 1), granularity.millis);
+        List<Bucket> series = new ArrayList<>((int) Math.max(0, Math.min(last - first + 1, granularity.buckets * 2L)));
+        long[] cells = new long[width];
+        for (long epoch = first; epoch <= last; epoch++) {
+            Arrays.fill(cells, 0);
+            sum(granularity, epoch, cells);
+            long pizzas = 0;
+            for (int i = QUANTITY; i < pizzaRevenue; i++) {
+                pizzas += cells[i];
+            }
+            series.add(new Bucket(toUtc(epoch * granularity.millis), cells[ORDERS], cells[REVENUE], pizzas));
+        }
+        return series;
+    }
+
+    /**
+     * Adds up the buckets of a time range.
+     *
+     * @param granularity The bucket size.
+     * @param from The start of the range, in milliseconds.
+     * @param to The end of the range, exclusive, in milliseconds.
+     * @return The totals of every bucket overlapping the range.
+     */
+    public Totals totals(Granularity granularity, long from, long to) {
+        long[] cells = new long[width];
+        long last = Math.floorDiv(toLocal(to - 1), granularity.millis);
+        for (long epoch = Math.floorDiv(toLocal(from), granularity.millis); epoch <= last; epoch++) {
+            sum(granularity, epoch, cells);
+        }
+        return new Totals(cells);
+    }
+
+    /**
+     * Returns the totals since local midnight.
+     *
+     * @return Today's totals.
+     */
+    public Totals today() {
+        long now = System.currentTimeMillis();
+        return totals(Granularity.DAY, now, now + 1);
+    }
+
+    /**
+     * Returns the number of orders in each of the last hours, oldest first,
+     * ending with the current hour.
+     *
+     * @param hours How many hours, at most {@link Granularity#HOUR}'s ring
+     * size.
+     * @return The hourly buckets.
+     */
+    public List<Bucket> ordersPerHour(int hours) {
+        long now = System.currentTimeMillis();
+        return series(Granularity.HOUR, now - (Math.min(hours, Granularity.HOUR.buckets) - 1) * Granularity.HOUR.millis, now + 1);
+    }
+
+    /**
+     * Returns the offset of a bucket's counters after making sure it holds
+     * the period containing a local time, or -1 if it has already moved on to
+     * a later period.
+     */
+    private int claim(Granularity g, int stripe, long local) {
+        long epoch = Math.floorDiv(local, g.millis);
+        int index = stripe * g.buckets + (int) Math.floorMod(epoch, (long) g.buckets);
+        AtomicLongArray t = tags[g.ordinal()];
+        while (true) {
+            long tag = t.get(index);
+            if (tag == epoch) {
+                return index * width;
+            }
+            if (tag == RESETTING) {
+                Thread.onSpinWait();
+            } else if (tag > epoch) {
+                return -1;
+            } else if (t.compareAndSet(index, tag, RESETTING)) {
+                AtomicLongArray c = counters[g.ordinal()];
+                int base = index * width;
+                for (int i = 0; i < width; i++) {
+                    c.set(base + i, 0);
+                }
+                t.set(index, epoch);
+                return base;
+            }
+        }
+    }
+
+    private void add(int stripe, long local, int cell, long delta) {
+        for (Granularity g : Granularity.values()) {
+            int base = claim(g, stripe, local);
+            if (base >= 0) {
+                counters[g.ordinal()].getAndAdd(base + cell, delta);
+            }
+        }
+    }
+
+    private void sum(Granularity g, long epoch, long[] into) {
+        AtomicLongArray t = tags[g.ordinal()];
+        AtomicLongArray c = counters[g.ordinal()];
+        int slot = (int) Math.floorMod(epoch, (long) g.buckets);
+        // Once any stripe has reused the bucket for a later period, the
+        // period has left the ring; stripes nobody wrote to since are stale
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            if (t.get(stripe * g.buckets + slot) > epoch) {
+                return;
+            }
+        }
+        for (int stripe = 0; stripe < stripes; stripe++) {
+            int index = stripe * g.buckets + slot;
+            if (t.get(index) != epoch) {
+                continue;
+            }
+            int base = index * width;
+            for (int i = 0; i < width; i++) {
+                into[i] += c.get(base + i);
+            }
+        }
+    }
+
+    private int stripe() {
+        long h = Thread.currentThread().threadId() * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 32) & (stripes - 1);
+    }
+
+    private int pizzaSlot(int pizzaId) {
+        return pizzaId > 0 && pizzaId < pizzaSlots ? pizzaId : 0;
+    }
+
+    private static Size parseSize(String label) {
+        try {
+            return Size.fromLabel(label);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private long toLocal(long utcMillis) {
+        return utcMillis + zone.getRules().getOffset(Instant.ofEpochMilli(utcMillis)).getTotalSeconds() * 1000L;
+    }
+
+    private long toUtc(long localMillis) {
+        LocalDateTime local = LocalDateTime.ofEpochSecond(Math.floorDiv(localMillis, 1000L), 0, ZoneOffset.UTC);
+        return local.atZone(zone).toInstant().toEpochMilli();
+    }
+
+    /**
+     * One period of a series.
+     *
+     * @param start When the period starts, in milliseconds.
+     * @param orders The number of orders placed.
+     * @param revenueCents The order totals, in cents.
+     * @param pizzas The number of pizzas ordered.
+     */
+    public record Bucket(long start, long orders, long revenueCents, long pizzas) {
+
+    }
+
+    /**
+     * Sales of one pizza over a range.
+     *
+     * @param pizzaId The pizza ID, or 0 for pizzas above the configured
+     * maximum ID.
+     * @param quantity The number ordered, all sizes.
+     * @param revenueCents Their value at list price, in cents.
+     */
+    public record PizzaSales(int pizzaId, long quantity, long revenueCents) {
+
+    }
+
+    /**
+     * The counters of a range, added up.
+     */
+    public final class Totals {
+
+        private final long[] cells;
+
+        private Totals(long[] cells) {
+            this.cells = cells;
+        }
+
+        public long getOrders() {
+            return cells[ORDERS];
+        }
+
+        public long getRevenueCents() {
+            return cells[REVENUE];
+        }
+
+        /**
+         * Returns how many of a pizza were ordered in a size.
+         *
+         * @param pizzaId The pizza ID.
+         * @param size The size.
+         * @return The quantity.
+         */
+        public long getQuantity(int pizzaId, Size size) {
+            return cells[QUANTITY + pizzaSlot(pizzaId) * SIZES + size.ordinal()];
+        }
+
+        /**
+         * Returns how many pizzas of a size were ordered.
+         *
+         * @param size The size.
+         * @return The quantity, all pizzas.
+         */
+        public long getQuantity(Size size) {
+            long total = 0;
+            for (int slot = 0; slot < pizzaSlots; slot++) {
+                total += cells[QUANTITY + slot * SIZES + size.ordinal()];
+            }
+            return total;
+        }
+
+        /**
+         * Returns the best-selling pizzas by quantity.
+         *
+         * @param limit The most pizzas to return.
+         * @return The pizzas, best-selling first; pizzas never ordered are
+         * left out.
+         */
+        public List<PizzaSales> topPizzas(int limit) {
+            List<PizzaSales> sales = new ArrayList<>();
+            for (int slot = 0; slot < pizzaSlots; slot++) {
+                long quantity = 0;
+                for (int size = 0; size < SIZES; size++) {
+                    quantity += cells[QUANTITY + slot * SIZES + size];
+                }
+                if (quantity > 0) {
+                    sales.add(new PizzaSales(slot, quantity, cells[pizzaRevenue + slot]));
+                }
+            }
+            sales.sort((a, b) -> a.quantity() != b.quantity() ? Long.compare(b.quantity(), a.quantity())
+                    : Long.compare(b.revenueCents(), a.revenueCents()));
+            return sales.size() > limit ? new ArrayList<>(sales.subList(0, Math.max(limit, 0))) : sales;
+        }
+    }
+}
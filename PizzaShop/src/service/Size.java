@@ -0,0 +1,62 @@
+package service;
+
+/**
+ * The sizes a pizza can be ordered in. The label is what the UI shows and
+ * what is stored in {@code order_items.size}.
+ */
+public enum Size {
+    SMALL("Small"),
+    MEDIUM("Medium"),
+    LARGE("Large"),
+    EXTRA_LARGE("Extra Large");
+
+    private static final Size[] VALUES = values();
+
+    private final String label;
+
+    Size(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    /**
+     * Parses a size label, ignoring case and spaces, so "Extra Large",
+     * "extra large" and "ExtraLarge" are all accepted. Does not allocate.
+     *
+     * @param label The size label.
+     * @return The matching size.
+     * @throws IllegalArgumentException If the label is not a known size.
+     */
+    public static Size fromLabel(String label) {
+        if (label != null) {
+            for (Size size : VALUES) {
+                if (matches(size.label, label)) {
+                    return size;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Invalid size: " + label);
+    }
+
+    private static boolean matches(String expected, String actual) {
+        int i = 0;
+        int j = 0;
+        while (true) {
+            while (i < expected.length() && expected.charAt(i) == ' ') {
+                i++;
+            }
+            while (j < actual.length() && actual.charAt(j) == ' ') {
+                j++;
+            }
+            if (i == expected.length() || j == actual.length()) {
+                return i == expected.length() && j == actual.length();
+            }
+            if (Character.toLowerCase(expected.charAt(i++)) != Character.toLowerCase(actual.charAt(j++))) {
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package util;
+
+import java.time.Duration;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Runs blocking service calls on virtual threads and exposes them as
+ * {@link CompletableFuture}s. Each call gets its own virtual thread, so many
+ * database calls can be in flight at once without sizing a platform thread
+ * pool; the number actually talking to the database is still bounded by the
+ * connection pool.
+ */
+public class AsyncExecutor {
+
+    private static final ExecutorService EXECUTOR = Executors.newThreadPerTaskExecutor(
+            Thread.ofVirtual().name("pizzashop-async-", 0).factory());
+
+    private AsyncExecutor() {
+    }
+
+    /**
+     * Runs a blocking task on a new virtual thread.
+     *
+     * <p>
+     * If the returned future is cancelled, or the deadline passes first, the
+     * virtual thread running the task is interrupted. A task still waiting for
+     * a pooled connection stops waiting; a statement already running on the
+     * server is abandoned rather than killed.</p>
+     *
+     * @param <T> The result type.
+     * @param task The blocking task to run.
+     * @param deadline How long the caller is willing to wait, or {@code null}
+     * for no deadline.
+     * @return A future completed with the task's result, or exceptionally with
+     * the task's exception, a {@link TimeoutException} or a
+     * {@link CancellationException}.
+     */
+    public static <T> CompletableFuture<T> supply(Callable<T> task, Duration deadline) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Future<?> running = EXECUTOR.submit(() -> {
+            try {
+                result.complete(task.call());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        result.whenComplete((value, failure) -> {
+            if (failure instanceof CancellationException || unwrap(failure) instanceof TimeoutException) {
+                running.cancel(true);
+            }
+        });
+        if (deadline != null) {
+            result.orTimeout(deadline.toMillis(), TimeUnit.MILLISECONDS);
+        }
+        return result;
+    }
+
+    /**
+     * Runs a blocking task on a new virtual thread and lets it finish
+     * whatever happens to the returned future: cancelling the future only
+     * stops waiting for it. For writes that must not be cut off half way,
+     * such as placing an order, where not knowing the outcome is worse than
+     * waiting for it.
+     *
+     * @param <T> The result type.
+     * @param task The blocking task to run.
+     * @return A future completed with the task's result, or exceptionally with
+     * the task's exception.
+     */
+    public static <T> CompletableFuture<T> supplyToCompletion(Callable<T> task) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        EXECUTOR.execute(() -> {
+            try {
+                result.complete(task.call());
+            } catch (Throwable t) {
+                result.completeExceptionally(t);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Returns the exception that caused a future to fail, without the
+     * {@link CompletionException} wrapper added by dependent stages.
+     *
+     * @param failure The exception passed to a completion handler.
+     * @return The underlying cause, or {@code failure} itself.
+     */
+    public static Throwable unwrap(Throwable failure) {
+        if (failure instanceof CompletionException && failure.getCause() != null) {
+            return failure.getCause();
+        }
+        return failure;
+    }
+}
@@ -0,0 +1,72 @@
+package util;
+
+import java.util.Arrays;
+
+/**
+ * The explicit column list of a query. The SQL is rendered from the same
+ * list that column indexes are taken from, so mappers can read by index,
+ * with each index resolved once when the list is defined, and a column added
+ * to the list cannot shift the others out of step with the mapper.
+ */
+public final class ColumnList {
+
+    private final String[] names;
+    private final String sql;
+
+    /**
+     * Creates a column list.
+     *
+     * @param names The column names, in select order.
+     */
+    public ColumnList(String... names) {
+        this.names = names.clone();
+        this.sql = String.join(", ", names);
+    }
+
+    /**
+     * Returns the result set index of a column.
+     *
+     * @param name The column name.
+     * @return The 1-based index.
+     * @throws IllegalArgumentException If the column is not in the list.
+     */
+    public int index(String name) {
+        for (int i = 0; i < names.length; i++) {
+            if (names[i].equals(name)) {
+                return i + 1;
+            }
+        }
+        throw new IllegalArgumentException("No column " + name + " in " + Arrays.toString(names));
+    }
+
+    public int size() {
+        return names.length;
+    }
+
+    /**
+     * Returns the columns qualified with a table alias, for joins.
+     *
+     * @param alias The table alias.
+     * @return The comma-separated columns, e.g. {@code "p.pizza_id, p.name"}.
+     */
+    public String qualified(String alias) {
+        StringBuilder sb = new StringBuilder();
+        for (String name : names) {
+            if (sb.length() > 0) {
+                sb.append(", ");
+            }
+            sb.append(alias).append('.').append(name);
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Returns the comma-separated columns, for a SELECT list.
+     *
+     * @return The columns, e.g. {@code "pizza_id, name"}.
+     */
+    @Override
+    public String toString() {
+        return sql;
+    }
+}
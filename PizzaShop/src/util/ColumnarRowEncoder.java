@@ -0,0 +1,273 @@
+package util;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.Arrays;
+
+/**
+ * Encodes rows into a compact columnar file. Rows are gathered into blocks of
+ * a fixed number of rows and each block is written column by column, so
+ * memory use is bounded by one block however many rows are exported.
+ *
+ * <p>
+ * The layout, where {@code varint} is an unsigned LEB128 number and
+ * {@code zigzag} maps signed values onto it:</p>
+ * <pre>
+ * file    = "PZCOL" version:u8 columnCount:varint column* block* 0:varint totalRows:i64
+ * column  = nameLength:varint name:utf8 type:u8 [scale:u8 if DECIMAL]
+ * block   = rowCount:varint chunk*            (one chunk per column, in order)
+ * chunk   = byteLength:varint nulls value*    (one value per non-null row)
+ * nulls   = ceil(rowCount / 8) bytes, bit i set when row i is NULL
+ * </pre>
+ * <p>
+ * Values by type: {@link #INT64} and {@link #TIMESTAMP} (epoch milliseconds)
+ * are zigzag varint deltas from the previous non-null value in the chunk,
+ * which keeps ascending IDs and dates to a byte or two; {@link #DECIMAL} is
+ * the zigzag varint unscaled value at the column's scale; {@link #STRING} is
+ * a varint length and UTF-8 bytes. Each chunk carries its length, so a
+ * reader can skip the columns it does not need.</p>
+ */
+public class ColumnarRowEncoder implements RowEncoder {
+
+    public static final byte VERSION = 1;
+    public static final byte INT64 = 1;
+    public static final byte DECIMAL = 2;
+    public static final byte TIMESTAMP = 3;
+    public static final byte STRING = 4;
+
+    private static final byte[] MAGIC = {'P', 'Z', 'C', 'O', 'L'};
+    private static final int DEFAULT_BLOCK_ROWS = 4096;
+
+    private final ExportSink sink;
+    private final int blockRows;
+    private Column[] columns;
+    private int rowsInBlock;
+    private long totalRows;
+
+    public ColumnarRowEncoder(ExportSink sink) {
+        this(sink, DEFAULT_BLOCK_ROWS);
+    }
+
+    /**
+     * Creates an encoder.
+     *
+     * @param sink The sink to write to.
+     * @param blockRows The number of rows per block.
+     */
+    public ColumnarRowEncoder(ExportSink sink, int blockRows) {
+        this.sink = sink;
+        this.blockRows = Math.max(blockRows, 1);
+    }
+
+    @Override
+    public void begin(ResultSetMetaData metaData) throws SQLException, IOException {
+        columns = new Column[metaData.getColumnCount()];
+        sink.putBytes(MAGIC);
+        sink.putByte(VERSION);
+        sink.putVarLong(columns.length);
+        for (int i = 0; i < columns.length; i++) {
+            Column column = new Column(typeOf(metaData.getColumnType(i + 1)), Math.max(metaData.getScale(i + 1), 0), blockRows);
+            columns[i] = column;
+            byte[] name = metaData.getColumnLabel(i + 1).getBytes(StandardCharsets.UTF_8);
+            sink.putVarLong(name.length);
+            sink.putBytes(name);
+            sink.putByte(column.type);
+            if (column.type == DECIMAL) {
+                sink.putByte(column.scale);
+            }
+        }
+    }
+
+    @Override
+    public void row(ResultSet rs) throws SQLException, IOException {
+        for (int i = 0; i < columns.length; i++) {
+            columns[i].read(rs, i + 1, rowsInBlock);
+        }
+        totalRows++;
+        if (++rowsInBlock == blockRows) {
+            flushBlock();
+        }
+    }
+
+    @Override
+    public void finish() throws IOException {
+        if (rowsInBlock > 0) {
+            flushBlock();
+        }
+        sink.putVarLong(0);
+        sink.putLong(totalRows);
+    }
+
+    public long getRowCount() {
+        return totalRows;
+    }
+
+    private void flushBlock() throws IOException {
+        sink.putVarLong(rowsInBlock);
+        for (Column column : columns) {
+            column.write(sink, rowsInBlock);
+        }
+        rowsInBlock = 0;
+    }
+
+    private static byte typeOf(int sqlType) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.BIT:
+            case Types.BOOLEAN:
+                return INT64;
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+                return DECIMAL;
+            case Types.DATE:
+            case Types.TIMESTAMP:
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                return TIMESTAMP;
+            default:
+                return STRING;
+        }
+    }
+
+    private static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    private static int varLongSize(long value) {
+        int size = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            size++;
+        }
+        return size;
+    }
+
+    /**
+     * One column of the current block. Arrays are sized once and reused, so
+     * a block costs no allocation beyond string values growing the byte
+     * area.
+     */
+    private static final class Column {
+
+        final byte type;
+        final byte scale;
+        final byte[] nulls;
+        final long[] values;
+        // STRING only: value i is bytes[offsets[i] .. offsets[i + 1])
+        int[] offsets;
+        byte[] bytes;
+
+        Column(byte type, int scale, int blockRows) {
+            this.type = type;
+            this.scale = (byte) scale;
+            this.nulls = new byte[(blockRows + 7) >>> 3];
+            this.values = type == STRING ? null : new long[blockRows];
+            if (type == STRING) {
+                offsets = new int[blockRows + 1];
+                bytes = new byte[blockRows * 16];
+            }
+        }
+
+        void read(ResultSet rs, int index, int row) throws SQLException {
+            boolean isNull;
+            switch (type) {
+                case INT64:
+                    values[row] = rs.getLong(index);
+                    isNull = rs.wasNull();
+                    break;
+                case DECIMAL:
+                    BigDecimal decimal = rs.getBigDecimal(index);
+                    isNull = decimal == null;
+                    if (!isNull) {
+                        values[row] = decimal.setScale(scale, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+                    }
+                    break;
+                case TIMESTAMP:
+                    Timestamp timestamp = rs.getTimestamp(index);
+                    isNull = timestamp == null;
+                    if (!isNull) {
+                        values[row] = timestamp.getTime();
+                    }
+                    break;
+                default:
+                    String text = rs.getString(index);
+                    isNull = text == null;
+                    int start = offsets[row];
+                    if (!isNull) {
+                        byte[] encoded = text.getBytes(StandardCharsets.UTF_8);
+                        if (start + encoded.length > bytes.length) {
+                            bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, start + encoded.length));
+                        }
+                        System.arraycopy(encoded, 0, bytes, start, encoded.length);
+                        start += encoded.length;
+                    }
+                    offsets[row + 1] = start;
+            }
+            if (row == 0) {
+                Arrays.fill(nulls, (byte) 0);
+            }
+            if (isNull) {
+                nulls[row >>> 3] |= (byte) (1 << (row & 7));
+            }
+        }
+
+        void write(ExportSink sink, int rows) throws IOException {
+            int nullBytes = (rows + 7) >>> 3;
+            // Size the chunk first so its length can lead it
+            long length = nullBytes;
+            long previous = 0;
+            for (int row = 0; row < rows; row++) {
+                if (isNull(row)) {
+                    continue;
+                }
+                switch (type) {
+                    case STRING:
+                        int size = offsets[row + 1] - offsets[row];
+                        length += varLongSize(size) + size;
+                        break;
+                    case DECIMAL:
+                        length += varLongSize(zigzag(values[row]));
+                        break;
+                    default:
+                        length += varLongSize(zigzag(values[row] - previous));
+                        previous = values[row];
+                }
+            }
+
+            sink.putVarLong(length);
+            sink.putBytes(nulls, 0, nullBytes);
+            previous = 0;
+            for (int row = 0; row < rows; row++) {
+                if (isNull(row)) {
+                    continue;
+                }
+                switch (type) {
+                    case STRING:
+                        int size = offsets[row + 1] - offsets[row];
+                        sink.putVarLong(size);
+                        sink.putBytes(bytes, offsets[row], size);
+                        break;
+                    case DECIMAL:
+                        sink.putVarLong(zigzag(values[row]));
+                        break;
+                    default:
+                        sink.putVarLong(zigzag(values[row] - previous));
+                        previous = values[row];
+                }
+            }
+        }
+
+        private boolean isNull(int row) {
+            return (nulls[row >>> 3] & (1 << (row & 7))) != 0;
+        }
+    }
+}
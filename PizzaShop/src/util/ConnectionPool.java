@@ -0,0 +1,386 @@
+package util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLTimeoutException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A small bounded JDBC connection pool. Physical connections are created
+ * lazily up to a maximum size, handed out as proxies whose {@code close()}
+ * returns them to the pool, validated on borrow, evicted when idle for too
+ * long (down to the minimum size), and watched for leaks. Each connection
+ * carries a {@link StatementCache} so repeated SQL is only prepared once per
+ * connection.
+ */
+public class ConnectionPool {
+
+    // Record where each connection was borrowed, for leak reports; off by
+    // default because capturing a stack on every borrow is expensive
+    private static final boolean LEAK_TRACE = Boolean.getBoolean("pizzashop.db.pool.leakTrace");
+
+    private final String url;
+    private final String user;
+    private final String password;
+    private final int minSize;
+    private final int maxSize;
+    private final long idleTimeoutMillis;
+    private final long borrowTimeoutMillis;
+    private final long leakThresholdMillis;
+    private final int statementCacheSize;
+
+    private final Semaphore permits;
+    private final LinkedBlockingDeque<PooledConnection> idle = new LinkedBlockingDeque<>();
+    private final Set<PooledConnection> borrowed = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService housekeeper;
+    private final LatencyHistogram waitHistogram = new LatencyHistogram();
+    private volatile boolean closed;
+
+    /**
+     * Creates a pool and starts its housekeeping thread.
+     *
+     * @param url The JDBC URL of the database.
+     * @param user The database user.
+     * @param password The database password.
+     * @param minSize The number of connections kept open while idle.
+     * @param maxSize The maximum number of open connections.
+     * @param idleTimeoutMillis How long a connection may sit idle before it is
+     * closed, as long as more than {@code minSize} are open.
+     * @param borrowTimeoutMillis How long a caller waits for a free connection
+     * before giving up.
+     * @param leakThresholdMillis How long a connection may be held before it
+     * is reported as a possible leak.
+     * @param statementCacheSize The number of prepared statements cached per
+     * connection, or 0 to disable statement caching.
+     */
+    public ConnectionPool(String url, String user, String password, int minSize, int maxSize,
+            long idleTimeoutMillis, long borrowTimeoutMillis, long leakThresholdMillis,
+            int statementCacheSize) {
+        if (minSize < 0 || maxSize < 1 || minSize > maxSize) {
+            throw new IllegalArgumentException("Invalid pool size: min=" + minSize + ", max=" + maxSize);
+        }
+        this.url = url;
+        this.user = user;
+        this.password = password;
+        this.minSize = minSize;
+        this.maxSize = maxSize;
+        this.idleTimeoutMillis = idleTimeoutMillis;
+        this.borrowTimeoutMillis = borrowTimeoutMillis;
+        this.leakThresholdMillis = leakThresholdMillis;
+        this.statementCacheSize = statementCacheSize;
+        this.permits = new Semaphore(maxSize, true);
+
+        this.housekeeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "db-pool-housekeeper");
+            t.setDaemon(true);
+            return t;
+        });
+        long period = Math.max(1000, Math.min(idleTimeoutMillis, leakThresholdMillis) / 2);
+        housekeeper.scheduleWithFixedDelay(this::houseKeep, 0, period, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Borrows a connection from the pool, waiting up to the borrow timeout for
+     * one to become free. Closing the returned connection gives it back to the
+     * pool.
+     *
+     * @return A validated connection.
+     * @throws SQLException If the pool is closed, the wait times out, or a new
+     * connection cannot be opened.
+     */
+    public Connection borrow() throws SQLException {
+        long start = System.nanoTime();
+        boolean borrowedOne = false;
+        try {
+            Connection conn = acquire();
+            borrowedOne = true;
+            return conn;
+        } finally {
+            waitHistogram.record(System.nanoTime() - start);
+            if (!borrowedOne) {
+                waitHistogram.recordError();
+            }
+        }
+    }
+
+    private Connection acquire() throws SQLException {
+        if (closed) {
+            throw new SQLException("Connection pool is closed.");
+        }
+        try {
+            if (!permits.tryAcquire(borrowTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                throw new SQLTimeoutException("Timed out after " + borrowTimeoutMillis
+                        + " ms waiting for a database connection (max " + maxSize + ").");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection.", e);
+        }
+
+        try {
+            PooledConnection pooled;
+            while ((pooled = idle.pollFirst()) != null) {
+                if (pooled.isUsable()) {
+                    break;
+                }
+                pooled.closePhysical();
+            }
+            if (pooled == null) {
+                pooled = new PooledConnection(DriverManager.getConnection(url, user, password));
+            }
+            pooled.markBorrowed();
+            borrowed.add(pooled);
+            return pooled.newHandle();
+        } catch (SQLException | RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * Returns the number of connections currently handed out.
+     *
+     * @return The number of borrowed connections.
+     */
+    public int getActiveCount() {
+        return borrowed.size();
+    }
+
+    /**
+     * Returns the number of open connections waiting in the pool.
+     *
+     * @return The number of idle connections.
+     */
+    public int getIdleCount() {
+        return idle.size();
+    }
+
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    /**
+     * Returns the histogram of how long {@link #borrow()} took, including
+     * waiting for a free connection and opening or validating one. Failed
+     * borrows are counted as errors.
+     *
+     * @return The live histogram.
+     */
+    public LatencyHistogram getWaitHistogram() {
+        return waitHistogram;
+    }
+
+    /**
+     * Closes every idle connection and stops housekeeping. Borrowed
+     * connections are closed when they are returned.
+     */
+    public void close() {
+        closed = true;
+        housekeeper.shutdownNow();
+        PooledConnection pooled;
+        while ((pooled = idle.pollFirst()) != null) {
+            pooled.closePhysical();
+        }
+    }
+
+    private void release(PooledConnection pooled) {
+        borrowed.remove(pooled);
+        try {
+            if (closed || idle.size() + borrowed.size() >= maxSize || !pooled.reset()) {
+                pooled.closePhysical();
+            } else {
+                // Most recently used first, so the tail ages out under low load
+                idle.offerFirst(pooled);
+            }
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void houseKeep() {
+        long now = System.currentTimeMillis();
+
+        // Evict connections idle for too long, oldest first, keeping minSize open
+        Iterator<PooledConnection> it = idle.descendingIterator();
+        while (it.hasNext() && idle.size() + borrowed.size() > minSize) {
+            PooledConnection pooled = it.next();
+            if (now - pooled.lastUsed > idleTimeoutMillis && idle.remove(pooled)) {
+                pooled.closePhysical();
+            }
+        }
+
+        for (PooledConnection pooled : borrowed) {
+            long held = now - pooled.borrowedAt;
+            if (held > leakThresholdMillis && !pooled.leakReported) {
+                pooled.leakReported = true;
+                if (pooled.borrowTrace != null) {
+                    SQLException trace = new SQLException("Connection held for " + held
+                            + " ms without being closed; borrowed at:");
+                    trace.setStackTrace(pooled.borrowTrace.getStackTrace());
+                    trace.printStackTrace();
+                } else {
+                    System.out.println("Connection held for " + held + " ms without being closed"
+                            + " (run with -Dpizzashop.db.pool.leakTrace=true to see where it was borrowed)");
+                }
+            }
+        }
+
+        // Top up to the minimum so the first queries after a quiet period are fast
+        List<PooledConnection> created = new ArrayList<>();
+        while (!closed && idle.size() + borrowed.size() + created.size() < minSize) {
+            try {
+                created.add(new PooledConnection(DriverManager.getConnection(url, user, password)));
+            } catch (SQLException e) {
+                System.out.println(e);
+                break;
+            }
+        }
+        for (PooledConnection pooled : created) {
+            idle.offerLast(pooled);
+        }
+    }
+
+    /**
+     * A physical connection together with its pool bookkeeping.
+     */
+    private final class PooledConnection {
+
+        private static final long VALIDATE_AFTER_IDLE_MILLIS = 500;
+        private static final int VALIDATION_TIMEOUT_SECONDS = 2;
+
+        private final Connection physical;
+        private final StatementCache statementCache;
+        private volatile long lastUsed = System.currentTimeMillis();
+        private volatile long borrowedAt;
+        // Filled in lazily: the stack is only walked if a leak is reported
+        private volatile Throwable borrowTrace;
+        private volatile boolean leakReported;
+
+        PooledConnection(Connection physical) {
+            this.physical = physical;
+            this.statementCache = statementCacheSize > 0 ? new StatementCache(physical, statementCacheSize) : null;
+        }
+
+        boolean isUsable() {
+            try {
+                if (physical.isClosed()) {
+                    return false;
+                }
+                // Skip the round trip for connections that were just in use
+                return System.currentTimeMillis() - lastUsed < VALIDATE_AFTER_IDLE_MILLIS
+                        || physical.isValid(VALIDATION_TIMEOUT_SECONDS);
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        void markBorrowed() {
+            borrowedAt = System.currentTimeMillis();
+            borrowTrace = LEAK_TRACE ? new Throwable() : null;
+            leakReported = false;
+        }
+
+        boolean reset() {
+            try {
+                if (physical.isClosed()) {
+                    return false;
+                }
+                if (!physical.getAutoCommit()) {
+                    physical.rollback();
+                    physical.setAutoCommit(true);
+                }
+                physical.clearWarnings();
+                if (statementCache != null) {
+                    statementCache.releaseAll();
+                }
+                lastUsed = System.currentTimeMillis();
+                return true;
+            } catch (SQLException e) {
+                return false;
+            }
+        }
+
+        void closePhysical() {
+            if (statementCache != null) {
+                statementCache.closeAll();
+            }
+            try {
+                physical.close();
+            } catch (SQLException e) {
+                System.out.println(e);
+            }
+        }
+
+        Connection newHandle() {
+            return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                    new Class<?>[]{Connection.class}, new Handle());
+        }
+
+        /**
+         * The view of the connection given to one borrower. Closing it returns
+         * the physical connection; any use after that fails.
+         */
+        private final class Handle implements InvocationHandler {
+
+            private boolean released;
+
+            @Override
+            public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+                switch (method.getName()) {
+                    case "close":
+                        if (!released) {
+                            released = true;
+                            release(PooledConnection.this);
+                        }
+                        return null;
+                    case "isClosed":
+                        return released || physical.isClosed();
+                    case "unwrap":
+                        if (((Class<?>) args[0]).isInstance(proxy)) {
+                            return proxy;
+                        }
+                        break;
+                    case "equals":
+                        return proxy == args[0];
+                    case "hashCode":
+                        return System.identityHashCode(proxy);
+                    case "toString":
+                        return "Pooled[" + physical + "]";
+                    default:
+                        break;
+                }
+                if (released) {
+                    throw new SQLException("Connection has already been returned to the pool.");
+                }
+                if (statementCache != null && method.getName().equals("prepareStatement")) {
+                    if (args.length == 1) {
+                        return statementCache.prepare((String) args[0], Statement.NO_GENERATED_KEYS);
+                    }
+                    if (args.length == 2 && args[1] instanceof Integer keys) {
+                        return statementCache.prepare((String) args[0], keys);
+                    }
+                }
+                try {
+                    return method.invoke(physical, args);
+                } catch (InvocationTargetException e) {
+                    throw e.getCause();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package util;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * Encodes rows as RFC 4180 CSV with a header line of column labels. Values
+ * are written as the driver renders them as text; NULL is an empty field, and
+ * fields containing a comma, quote or line break are quoted.
+ *
+ * <p>
+ * Text that starts with {@code =}, {@code +}, {@code -}, {@code @}, a tab or
+ * a carriage return is prefixed with {@code '}, so a spreadsheet opening the
+ * file shows it as text instead of evaluating it as a formula. Numeric and
+ * date columns are written unchanged, so negative numbers stay numbers.</p>
+ */
+public class CsvRowEncoder implements RowEncoder {
+
+    private final ExportSink sink;
+    private int columnCount;
+    private boolean[] textColumns;
+
+    public CsvRowEncoder(ExportSink sink) {
+        this.sink = sink;
+    }
+
+    @Override
+    public void begin(ResultSetMetaData metaData) throws SQLException, IOException {
+        columnCount = metaData.getColumnCount();
+        textColumns = new boolean[columnCount + 1];
+        for (int i = 1; i <= columnCount; i++) {
+            textColumns[i] = isText(metaData.getColumnType(i));
+            field(i, metaData.getColumnLabel(i), true);
+        }
+        sink.putByte('\r');
+        sink.putByte('\n');
+    }
+
+    @Override
+    public void row(ResultSet rs) throws SQLException, IOException {
+        for (int i = 1; i <= columnCount; i++) {
+            field(i, rs.getString(i), textColumns[i]);
+        }
+        sink.putByte('\r');
+        sink.putByte('\n');
+    }
+
+    @Override
+    public void finish() {
+    }
+
+    private void field(int column, String value, boolean text) throws IOException {
+        if (column > 1) {
+            sink.putByte(',');
+        }
+        if (value == null) {
+            return;
+        }
+        if (text && startsLikeFormula(value)) {
+            value = "'" + value;
+        }
+        if (!needsQuotes(value)) {
+            sink.putUtf8(value);
+            return;
+        }
+        sink.putByte('"');
+        int start = 0;
+        for (int quote = value.indexOf('"'); quote >= 0; quote = value.indexOf('"', start)) {
+            sink.putUtf8(value.substring(start, quote + 1));
+            sink.putByte('"');
+            start = quote + 1;
+        }
+        sink.putUtf8(value.substring(start));
+        sink.putByte('"');
+    }
+
+    private static boolean startsLikeFormula(String value) {
+        if (value.isEmpty()) {
+            return false;
+        }
+        char c = value.charAt(0);
+        return c == '=' || c == '+' || c == '-' || c == '@' || c == '\t' || c == '\r';
+    }
+
+    private static boolean isText(int sqlType) {
+        switch (sqlType) {
+            case Types.TINYINT:
+            case Types.SMALLINT:
+            case Types.INTEGER:
+            case Types.BIGINT:
+            case Types.BIT:
+            case Types.BOOLEAN:
+            case Types.REAL:
+            case Types.FLOAT:
+            case Types.DOUBLE:
+            case Types.DECIMAL:
+            case Types.NUMERIC:
+            case Types.DATE:
+            case Types.TIME:
+            case Types.TIMESTAMP:
+            case Types.TIMESTAMP_WITH_TIMEZONE:
+                return false;
+            default:
+                return true;
+        }
+    }
+
+    private static boolean needsQuotes(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+}
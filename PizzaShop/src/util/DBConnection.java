@@ -5,17 +5,39 @@ import java.sql.DriverManager;
 import java.sql.SQLException;
 
 /**
- * Utility class for managing database connections. Provides a method to
- * establish a connection to the database.
+ * Utility class for managing database connections. Connections are handed out
+ * from a shared {@link ConnectionPool}, so callers keep using
+ * try-with-resources and closing a connection returns it to the pool instead
+ * of tearing down the session to the database.
  */
 public class DBConnection {
 
-    private static final String DB_URL = "jdbc:mysql://pizza-shop-db.cxsiso6sojyh.us-east-2.rds.amazonaws.com:3306/pizza_shop";
-    private static final String DB_USER = "app_user";
-    private static final String DB_PASSWORD = "securepassword123";
+    // The shop's database unless overridden, e.g. with -Dpizzashop.db.url for a test database
+    private static final String DB_URL = System.getProperty("pizzashop.db.url",
+            "jdbc:mysql://pizza-shop-db.cxsiso6sojyh.us-east-2.rds.amazonaws.com:3306/pizza_shop?useServerPrepStmts=true&rewriteBatchedStatements=true");
+    private static final String DB_USER = System.getProperty("pizzashop.db.user", "app_user");
+    private static final String DB_PASSWORD = System.getProperty("pizzashop.db.password", "securepassword123");
+
+    // Pool sizing, overridable with -Dpizzashop.db.pool.* system properties
+    private static final int POOL_MIN_SIZE = Integer.getInteger("pizzashop.db.pool.minSize", 2);
+    private static final int POOL_MAX_SIZE = Integer.getInteger("pizzashop.db.pool.maxSize", 10);
+    private static final long POOL_IDLE_TIMEOUT_MILLIS = Long.getLong("pizzashop.db.pool.idleTimeoutMillis", 300_000L);
+    private static final long POOL_BORROW_TIMEOUT_MILLIS = Long.getLong("pizzashop.db.pool.borrowTimeoutMillis", 5_000L);
+    private static final long POOL_LEAK_THRESHOLD_MILLIS = Long.getLong("pizzashop.db.pool.leakThresholdMillis", 60_000L);
+    private static final int STATEMENT_CACHE_SIZE = Integer.getInteger("pizzashop.db.pool.statementCacheSize", 32);
+
+    private static final ConnectionPool POOL = new ConnectionPool(DB_URL, DB_USER, DB_PASSWORD,
+            POOL_MIN_SIZE, POOL_MAX_SIZE, POOL_IDLE_TIMEOUT_MILLIS, POOL_BORROW_TIMEOUT_MILLIS,
+            POOL_LEAK_THRESHOLD_MILLIS, STATEMENT_CACHE_SIZE);
+
+    static {
+        Runtime.getRuntime().addShutdownHook(new Thread(POOL::close, "db-pool-shutdown"));
+        DaoMetrics.install(POOL);
+    }
 
     /**
-     * Establishes a connection to the database.
+     * Borrows a connection to the database from the pool. Closing the
+     * connection returns it to the pool.
      *
      * @return A Connection object that represents the established connection to
      * the database.
@@ -24,10 +46,32 @@ public class DBConnection {
      */
     public static Connection getConnection() throws SQLException {
         try {
-            return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+            return POOL.borrow();
         } catch (SQLException e) {
             e.printStackTrace();
-            throw new SQLException("Unable to establish a database connection.");
+            throw new SQLException("Unable to establish a database connection.", e);
         }
     }
+
+    /**
+     * Opens a connection outside the pool for long-running work such as
+     * exports, so it never holds a pooled connection the order path needs.
+     * Closing the connection disconnects it.
+     *
+     * @return A new connection to the database.
+     * @throws SQLException If there is an issue with establishing the database
+     * connection.
+     */
+    public static Connection openDedicatedConnection() throws SQLException {
+        return DriverManager.getConnection(DB_URL, DB_USER, DB_PASSWORD);
+    }
+
+    /**
+     * Returns the shared connection pool.
+     *
+     * @return The pool backing {@link #getConnection()}.
+     */
+    public static ConnectionPool getPool() {
+        return POOL;
+    }
 }
@@ -0,0 +1,96 @@
+package util;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Records the latency and failures of every DAO operation run through
+ * {@link JdbcTemplate}, one {@link OperationMetrics} per operation name, and
+ * publishes them together with the connection pool's gauges as platform
+ * MBeans under the {@code pizzashop} domain, where JConsole, VisualVM or a
+ * JMX exporter can read them.
+ *
+ * <p>
+ * Installed by {@link DBConnection} when the pool is created; set
+ * {@code -Dpizzashop.metrics.enabled=false} to turn it off.</p>
+ */
+public class DaoMetrics implements QueryListener {
+
+    private static final String DOMAIN = "pizzashop";
+    private static volatile DaoMetrics installed;
+
+    private final Map<String, OperationMetrics> operations = new ConcurrentHashMap<>();
+    private final MBeanServer server;
+
+    private DaoMetrics(MBeanServer server) {
+        this.server = server;
+    }
+
+    /**
+     * Starts recording DAO operations and publishes the pool, once per JVM.
+     *
+     * @param pool The pool whose gauges and wait times to publish.
+     */
+    public static synchronized void install(ConnectionPool pool) {
+        if (installed != null || "false".equalsIgnoreCase(System.getProperty("pizzashop.metrics.enabled"))) {
+            return;
+        }
+        DaoMetrics metrics = new DaoMetrics(ManagementFactory.getPlatformMBeanServer());
+        metrics.register(DOMAIN + ":type=ConnectionPool", new PoolMetrics(pool));
+        JdbcTemplate.addListener(metrics);
+        installed = metrics;
+    }
+
+    /**
+     * Returns the installed metrics.
+     *
+     * @return The metrics, or null if they are not installed.
+     */
+    public static DaoMetrics get() {
+        return installed;
+    }
+
+    /**
+     * Returns the metrics of one operation.
+     *
+     * @param operation The DAO operation, e.g. {@code "OrderDAO.placeOrder"}.
+     * @return The metrics, or null if the operation has not run yet.
+     */
+    public OperationMetrics getOperation(String operation) {
+        return operations.get(operation);
+    }
+
+    public Map<String, OperationMetrics> getOperations() {
+        return Map.copyOf(operations);
+    }
+
+    @Override
+    public void queryCompleted(String operation, long elapsedNanos, Exception failure) {
+        OperationMetrics metrics = operations.get(operation);
+        if (metrics == null) {
+            metrics = operations.computeIfAbsent(operation, name -> {
+                OperationMetrics created = new OperationMetrics(name);
+                register(DOMAIN + ":type=DaoOperation,name=" + name, created);
+                return created;
+            });
+        }
+        metrics.record(elapsedNanos, failure);
+    }
+
+    private void register(String name, Object mbean) {
+        try {
+            ObjectName objectName = new ObjectName(name);
+            if (server.isRegistered(objectName)) {
+                server.unregisterMBean(objectName);
+            }
+            server.registerMBean(mbean, objectName);
+        } catch (JMException e) {
+            // Metrics still record; they are just not visible over JMX
+            System.out.println("Unable to register " + name + ": " + e);
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Writes an export file through a channel and one fixed-size buffer. Encoders
+ * put bytes into the buffer and it is drained to the channel whenever it
+ * fills, so memory use stays the same however many rows are written.
+ */
+public class ExportSink implements AutoCloseable {
+
+    private final WritableByteChannel channel;
+    private final ByteBuffer buffer;
+    private long bytesWritten;
+
+    /**
+     * Creates a sink over an open channel.
+     *
+     * @param channel The channel to write to; closed with the sink.
+     * @param bufferSize The size of the buffer in bytes.
+     */
+    public ExportSink(WritableByteChannel channel, int bufferSize) {
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocateDirect(Math.max(bufferSize, 64));
+    }
+
+    /**
+     * Creates or truncates a file and opens a sink on it.
+     *
+     * @param file The file.
+     * @param gzip Whether to gzip the output.
+     * @param bufferSize The size of the buffer in bytes.
+     * @return The sink.
+     * @throws IOException If the file cannot be opened.
+     */
+    public static ExportSink open(Path file, boolean gzip, int bufferSize) throws IOException {
+        FileChannel fileChannel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        if (!gzip) {
+            return new ExportSink(fileChannel, bufferSize);
+        }
+        try {
+            GZIPOutputStream out = new GZIPOutputStream(Channels.newOutputStream(fileChannel), bufferSize);
+            return new ExportSink(Channels.newChannel(out), bufferSize);
+        } catch (IOException | RuntimeException e) {
+            fileChannel.close();
+            throw e;
+        }
+    }
+
+    public void putByte(int b) throws IOException {
+        ensure(1);
+        buffer.put((byte) b);
+    }
+
+    public void putInt(int value) throws IOException {
+        ensure(4);
+        buffer.putInt(value);
+    }
+
+    public void putLong(long value) throws IOException {
+        ensure(8);
+        buffer.putLong(value);
+    }
+
+    /**
+     * Writes an unsigned LEB128 varint: seven bits per byte, low bits first.
+     *
+     * @param value The value, treated as unsigned.
+     * @throws IOException If the channel cannot be written.
+     */
+    public void putVarLong(long value) throws IOException {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            buffer.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        buffer.put((byte) value);
+    }
+
+    public void putBytes(byte[] bytes) throws IOException {
+        putBytes(bytes, 0, bytes.length);
+    }
+
+    /**
+     * Writes a range of bytes, draining the buffer as often as needed, so the
+     * range may be larger than the buffer.
+     *
+     * @param bytes The bytes.
+     * @param offset The first byte to write.
+     * @param length The number of bytes to write.
+     * @throws IOException If the channel cannot be written.
+     */
+    public void putBytes(byte[] bytes, int offset, int length) throws IOException {
+        while (length > 0) {
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            int n = Math.min(length, buffer.remaining());
+            buffer.put(bytes, offset, n);
+            offset += n;
+            length -= n;
+        }
+    }
+
+    /**
+     * Writes a string as UTF-8 with no terminator or length.
+     *
+     * @param text The text.
+     * @throws IOException If the channel cannot be written.
+     */
+    public void putUtf8(String text) throws IOException {
+        // ASCII, the common case, needs no intermediate array
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                putBytes(text.substring(i).getBytes(StandardCharsets.UTF_8));
+                return;
+            }
+            if (!buffer.hasRemaining()) {
+                drain();
+            }
+            buffer.put((byte) c);
+        }
+    }
+
+    /**
+     * Returns how many bytes have been handed to the channel or are waiting
+     * in the buffer. With gzip this counts bytes before compression.
+     *
+     * @return The byte count.
+     */
+    public long getBytesWritten() {
+        return bytesWritten + buffer.position();
+    }
+
+    /**
+     * Drains the buffer and closes the channel.
+     *
+     * @throws IOException If the channel cannot be written or closed.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            drain();
+        } finally {
+            channel.close();
+        }
+    }
+
+    private void ensure(int bytes) throws IOException {
+        if (buffer.remaining() < bytes) {
+            drain();
+        }
+    }
+
+    private void drain() throws IOException {
+        buffer.flip();
+        bytesWritten += buffer.remaining();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+}
@@ -0,0 +1,75 @@
+package util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.text.ParseException;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.Map;
+import jdk.jfr.Configuration;
+import jdk.jfr.Recording;
+
+/**
+ * Starts an always-on Java Flight Recorder recording with the JDK's
+ * low-overhead {@code default} settings plus the {@link OrderEvents} enabled
+ * by the bundled {@code pizzashop/pizzashop.jfc}. The recording keeps a
+ * rolling window on disk and is dumped when the JVM exits, or on demand with
+ * {@code jcmd <pid> JFR.dump name=pizzashop}.
+ *
+ * <p>
+ * Enabled with {@code -Dpizzashop.jfr.enabled=true}; the window is set with
+ * {@code pizzashop.jfr.maxAgeMinutes} (30) and the dump file with
+ * {@code pizzashop.jfr.file} (pizzashop.jfr). The profile can also be used
+ * directly:
+ * {@code -XX:StartFlightRecording:settings=default,settings=pizzashop.jfc}.</p>
+ */
+public class FlightRecording {
+
+    private static final String PROFILE = "/pizzashop/pizzashop.jfc";
+
+    private static Recording recording;
+
+    /**
+     * Starts the recording if it is enabled and not already running.
+     */
+    public static synchronized void startIfEnabled() {
+        if (recording != null || !Boolean.getBoolean("pizzashop.jfr.enabled")) {
+            return;
+        }
+        try {
+            Map<String, String> settings = new HashMap<>(Configuration.getConfiguration("default").getSettings());
+            settings.putAll(loadProfile().getSettings());
+            Recording started = new Recording(settings);
+            started.setName("pizzashop");
+            started.setToDisk(true);
+            started.setMaxAge(Duration.ofMinutes(Long.getLong("pizzashop.jfr.maxAgeMinutes", 30L)));
+            started.setDestination(Path.of(System.getProperty("pizzashop.jfr.file", "pizzashop.jfr")));
+            started.start();
+            recording = started;
+        } catch (IOException | ParseException | RuntimeException e) {
+            // The application runs the same without a recording
+            System.out.println("Unable to start the flight recording: " + e);
+        }
+    }
+
+    /**
+     * Reads the bundled profile.
+     *
+     * @return The pizzashop event settings.
+     * @throws IOException If the profile is missing from the classpath.
+     * @throws ParseException If the profile is not a valid .jfc file.
+     */
+    public static Configuration loadProfile() throws IOException, ParseException {
+        InputStream in = FlightRecording.class.getResourceAsStream(PROFILE);
+        if (in == null) {
+            throw new IOException(PROFILE + " not found on the classpath");
+        }
+        try (Reader reader = new InputStreamReader(in, StandardCharsets.UTF_8)) {
+            return Configuration.create(reader);
+        }
+    }
+}
@@ -0,0 +1,397 @@
+package util;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Runs the DAOs' statements: prepares, binds, executes and maps results, and
+ * always closes what it opened. Every statement is named after the DAO
+ * operation running it and reported to the registered
+ * {@link QueryListener}s with its duration, so all queries share one
+ * instrumented path.
+ *
+ * <p>
+ * Methods taking a {@link Connection} run on the caller's connection and
+ * transaction; the others borrow one from {@link DBConnection} for the one
+ * statement. Templates are immutable; {@link #withFetchSize(int)} derives one
+ * with a different fetch size, and {@link #STREAMING} makes Connector/J
+ * stream rows one at a time instead of buffering the whole result.</p>
+ */
+public final class JdbcTemplate {
+
+    /**
+     * The fetch size that makes Connector/J stream a forward-only result
+     * set. The connection can run nothing else until the result is read.
+     */
+    public static final int STREAMING = Integer.MIN_VALUE;
+
+    /**
+     * The template the DAOs share, with the fetch size from
+     * {@code pizzashop.jdbc.fetchSize} (0, the driver default, if unset).
+     */
+    public static final JdbcTemplate DEFAULT = new JdbcTemplate(Integer.getInteger("pizzashop.jdbc.fetchSize", 0));
+
+    private static final List<QueryListener> LISTENERS = new CopyOnWriteArrayList<>();
+
+    private final int fetchSize;
+
+    private JdbcTemplate(int fetchSize) {
+        this.fetchSize = fetchSize;
+    }
+
+    /**
+     * Returns a template that sets a fetch size on its queries.
+     *
+     * @param fetchSize The fetch size, 0 for the driver default or
+     * {@link #STREAMING}.
+     * @return The template.
+     */
+    public JdbcTemplate withFetchSize(int fetchSize) {
+        return fetchSize == this.fetchSize ? this : new JdbcTemplate(fetchSize);
+    }
+
+    public int getFetchSize() {
+        return fetchSize;
+    }
+
+    /**
+     * Registers a listener for every statement run by any template.
+     *
+     * @param listener The listener.
+     */
+    public static void addListener(QueryListener listener) {
+        LISTENERS.add(listener);
+    }
+
+    public static void removeListener(QueryListener listener) {
+        LISTENERS.remove(listener);
+    }
+
+    /**
+     * Runs a query on a pooled connection and maps every row.
+     *
+     * @param <T> The row type.
+     * @param operation The DAO operation, for listeners.
+     * @param sql The query.
+     * @param binder Sets the parameters.
+     * @param mapper Maps each row.
+     * @return The mapped rows.
+     * @throws SQLException If a database error occurs.
+     */
+    public <T> List<T> query(String operation, String sql, Binder binder, RowMapper<T> mapper) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            return query(conn, operation, sql, binder, mapper);
+        }
+    }
+
+    /**
+     * Runs a query on the caller's connection and maps every row.
+     *
+     * @param <T> The row type.
+     * @param conn The connection.
+     * @param operation The DAO operation, for listeners.
+     * @param sql The query.
+     * @param binder Sets the parameters.
+     * @param mapper Maps each row.
+     * @return The mapped rows.
+     * @throws SQLException If a database error occurs.
+     */
+    public <T> List<T> query(Connection conn, String operation, String sql, Binder binder, RowMapper<T> mapper) throws SQLException {
+        return read(conn, operation, sql, binder, rs -> {
+            List<T> rows = new ArrayList<>();
+            while (rs.next()) {
+                rows.add(mapper.mapRow(rs));
+            }
+            return rows;
+        });
+    }
+
+    /**
+     * Runs a query on a pooled connection and maps its first row.
+     *
+     * @param <T> The row type.
+     * @param operation The DAO operation, for listeners.
+     * @param sql The query.
+     * @param binder Sets the parameters.
+     * @param mapper Maps the row.
+     * @return The mapped row, or null if there is none.
+     * @throws SQLException If a database error occurs.
+     */
+    public <T> T queryFirst(String operation, String sql, Binder binder, RowMapper<T> mapper) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            return queryFirst(conn, operation, sql, binder, mapper);
+        }
+    }
+
+    /**
+     * Runs a query on the caller's connection and maps its first row.
+     *
+     * @param <T> The row type.
+     * @param conn The connection.
+     * @param operation The DAO operation, for listeners.
+     * @param sql The query.
+     * @param binder Sets the parameters.
+     * @param mapper Maps the row.
+     * @return The mapped row, or null if there is none.
+     * @throws SQLException If a database error occurs.
+     */
+    public <T> T queryFirst(Connection conn, String operation, String sql, Binder binder, RowMapper<T> mapper) throws SQLException {
+        return read(conn, operation, sql, binder, rs -> rs.next() ? mapper.mapRow(rs) : null);
+    }
+
+    /**
+     * Runs a query on a pooled connection and hands the whole result set to
+     * a reader, for results that are not one object per row.
+     *
+     * @param <R> The result type.
+     * @param operation The DAO operation, for listeners.
+     * @param sql The query.
+     * @param binder Sets the parameters.
+     * @param reader Reads the result set.
+     * @return What the reader returned.
+     * @throws SQLException If a database error occurs.
+     */
+    public <R> R read(String operation, String sql, Binder binder, ResultSetReader<R> reader) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            return read(conn, operation, sql, binder, reader);
+        }
+    }
+
+    /**
+     * Runs a query on the caller's connection and hands the whole result set
+     * to a reader. With {@link #STREAMING} the reader sees rows as they
+     * arrive.
+     *
+     * @param <R> The result type.
+     * @param conn The connection.
+     * @param operation The DAO operation, for listeners.
+     * @param sql The query.
+     * @param binder Sets the parameters.
+     * @param reader Reads the result set.
+     * @return What the reader returned.
+     * @throws SQLException If a database error occurs.
+     */
+    public <R> R read(Connection conn, String operation, String sql, Binder binder, ResultSetReader<R> reader) throws SQLException {
+        return execute(conn, operation, sql, false, stmt -> {
+            binder.bind(stmt);
+            // Always set: a cached statement keeps the fetch size of its last user
+            stmt.setFetchSize(fetchSize);
+            try (ResultSet rs = stmt.executeQuery()) {
+                return reader.read(rs);
+            }
+        });
+    }
+
+    /**
+     * Runs an INSERT, UPDATE or DELETE on a pooled connection.
+     *
+     * @param operation The DAO operation, for listeners.
+     * @param sql The statement.
+     * @param binder Sets the parameters.
+     * @return The number of rows affected.
+     * @throws SQLException If a database error occurs.
+     */
+    public int update(String operation, String sql, Binder binder) throws SQLException {
+        try (Connection conn = DBConnection.getConnection()) {
+            return update(conn, operation, sql, binder);
+        }
+    }
+
+    /**
+     * Runs an INSERT, UPDATE or DELETE on the caller's connection.
+     *
+     * @param conn The connection.
+     * @param operation The DAO operation, for listeners.
+     * @param sql The statement.
+     * @param binder Sets the parameters.
+     * @return The number of rows affected.
+     * @throws SQLException If a database error occurs.
+     */
+    public int update(Connection conn, String operation, String sql, Binder binder) throws SQLException {
+        return execute(conn, operation, sql, false, stmt -> {
+            binder.bind(stmt);
+            return stmt.executeUpdate();
+        });
+    }
+
+    /**
+     * Runs an INSERT on the caller's connection and returns the first
+     * generated key.
+     *
+     * @param conn The connection.
+     * @param operation The DAO operation, for listeners.
+     * @param sql The statement.
+     * @param binder Sets the parameters.
+     * @return The generated key, or -1 if none was returned.
+     * @throws SQLException If a database error occurs.
+     */
+    public int insert(Connection conn, String operation, String sql, Binder binder) throws SQLException {
+        return execute(conn, operation, sql, true, stmt -> {
+            binder.bind(stmt);
+            stmt.executeUpdate();
+            try (ResultSet rs = stmt.getGeneratedKeys()) {
+                return rs.next() ? rs.getInt(1) : -1;
+            }
+        });
+    }
+
+    /**
+     * Runs one statement per item as a JDBC batch on the caller's connection.
+     * With {@code rewriteBatchedStatements} INSERTs go out as one multi-row
+     * INSERT.
+     *
+     * @param <T> The item type.
+     * @param conn The connection.
+     * @param operation The DAO operation, for listeners.
+     * @param sql The statement.
+     * @param items The items.
+     * @param binder Sets the parameters for one item.
+     * @return The update counts.
+     * @throws SQLException If a database error occurs.
+     */
+    public <T> int[] batch(Connection conn, String operation, String sql, Iterable<T> items, ItemBinder<T> binder) throws SQLException {
+        return execute(conn, operation, sql, false, stmt -> {
+            for (T item : items) {
+                binder.bind(stmt, item);
+                stmt.addBatch();
+            }
+            return stmt.executeBatch();
+        });
+    }
+
+    /**
+     * Prepares a statement on the caller's connection and hands it to a
+     * callback, for anything the other methods do not cover, such as
+     * multi-row inserts returning several keys.
+     * The statement is closed and the call reported to listeners afterwards.
+     *
+     * @param <R> The result type.
+     * @param conn The connection.
+     * @param operation The DAO operation, for listeners.
+     * @param sql The statement.
+     * @param returnKeys Whether to prepare the statement to return generated
+     * keys.
+     * @param callback Uses the statement.
+     * @return What the callback returned.
+     * @throws SQLException If a database error occurs.
+     */
+    public <R> R execute(Connection conn, String operation, String sql, boolean returnKeys,
+            StatementCallback<R> callback) throws SQLException {
+        long start = System.nanoTime();
+        Exception failure = null;
+        try (PreparedStatement stmt = returnKeys
+                ? conn.prepareStatement(sql, Statement.RETURN_GENERATED_KEYS)
+                : conn.prepareStatement(sql)) {
+            return callback.doInStatement(stmt);
+        } catch (SQLException e) {
+            failure = e;
+            throw e;
+        } catch (RuntimeException e) {
+            // A mapper or callback bug is still a failed call
+            failure = e;
+            throw e;
+        } finally {
+            report(operation, System.nanoTime() - start, failure);
+        }
+    }
+
+    /**
+     * Times a DAO operation that is more than one statement, e.g. one that
+     * may be answered from a cache or by a query shared with other callers,
+     * and reports it to listeners under its own name. The statements it runs
+     * are still reported under theirs.
+     *
+     * @param <R> The result type.
+     * @param operation The DAO operation, for listeners.
+     * @param work The operation.
+     * @return What the operation returned.
+     * @throws SQLException If a database error occurs.
+     */
+    public static <R> R timed(String operation, Operation<R> work) throws SQLException {
+        long start = System.nanoTime();
+        Exception failure = null;
+        try {
+            return work.run();
+        } catch (SQLException | RuntimeException e) {
+            failure = e;
+            throw e;
+        } finally {
+            report(operation, System.nanoTime() - start, failure);
+        }
+    }
+
+    private static void report(String operation, long elapsedNanos, Exception failure) {
+        for (QueryListener listener : LISTENERS) {
+            try {
+                listener.queryCompleted(operation, elapsedNanos, failure);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * A DAO operation timed by {@link #timed}.
+     *
+     * @param <R> The result type.
+     */
+    @FunctionalInterface
+    public interface Operation<R> {
+
+        R run() throws SQLException;
+    }
+
+    /**
+     * Sets the parameters of a statement.
+     */
+    @FunctionalInterface
+    public interface Binder {
+
+        /**
+         * Binds nothing, for statements without parameters.
+         */
+        Binder NONE = stmt -> {
+        };
+
+        void bind(PreparedStatement stmt) throws SQLException;
+    }
+
+    /**
+     * Sets the parameters of a batched statement for one item.
+     *
+     * @param <T> The item type.
+     */
+    @FunctionalInterface
+    public interface ItemBinder<T> {
+
+        void bind(PreparedStatement stmt, T item) throws SQLException;
+    }
+
+    /**
+     * Reads a whole result set.
+     *
+     * @param <R> The result type.
+     */
+    @FunctionalInterface
+    public interface ResultSetReader<R> {
+
+        R read(ResultSet rs) throws SQLException;
+    }
+
+    /**
+     * Uses a prepared statement.
+     *
+     * @param <R> The result type.
+     */
+    @FunctionalInterface
+    public interface StatementCallback<R> {
+
+        R doInStatement(PreparedStatement stmt) throws SQLException;
+    }
+}
@@ -0,0 +1,142 @@
+package util;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of durations in nanoseconds. Buckets are log-linear:
+ * every power of two is split into 32 equal buckets, so a percentile is
+ * reported within about 3% of the true value, from 1 ns up to about 18
+ * minutes, in a fixed 9 KB array. Recording is a few atomic increments and
+ * never blocks; reads walk the buckets and may see a recording half done,
+ * which only matters to the last digit.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 5;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+    // Durations are clamped below 2^40 ns, about 18 minutes
+    private static final long MAX_VALUE = (1L << 40) - 1;
+    private static final int BUCKETS = bucketIndex(MAX_VALUE) + 1;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder totalNanos = new LongAdder();
+    private final LongAdder errors = new LongAdder();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * Records a duration.
+     *
+     * @param nanos The duration in nanoseconds; negative values count as 0.
+     */
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        counts.incrementAndGet(bucketIndex(value));
+        count.increment();
+        totalNanos.add(value);
+        long max = maxNanos.get();
+        while (value > max && !maxNanos.compareAndSet(max, value)) {
+            max = maxNanos.get();
+        }
+    }
+
+    /**
+     * Records a failed call. Its duration is recorded separately, if at all.
+     */
+    public void recordError() {
+        errors.increment();
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    public long getMaxNanos() {
+        return maxNanos.get();
+    }
+
+    /**
+     * Returns the mean duration.
+     *
+     * @return The mean in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getMeanNanos() {
+        long n = count.sum();
+        return n == 0 ? 0 : totalNanos.sum() / n;
+    }
+
+    /**
+     * Returns the duration at or below which a fraction of the recorded
+     * durations fall, rounded up to the top of its bucket.
+     *
+     * @param quantile The fraction, e.g. 0.99 for the 99th percentile.
+     * @return The duration in nanoseconds, or 0 if nothing was recorded.
+     */
+    public long getPercentileNanos(double quantile) {
+        long[] snapshot = new long[BUCKETS];
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(Math.min(Math.max(quantile, 0), 1) * total));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(bucketTop(i), maxNanos.get());
+            }
+        }
+        return maxNanos.get();
+    }
+
+    /**
+     * Returns a percentile in milliseconds, for display.
+     *
+     * @param quantile The fraction, e.g. 0.99 for the 99th percentile.
+     * @return The duration in milliseconds.
+     */
+    public double getPercentileMillis(double quantile) {
+        return toMillis(getPercentileNanos(quantile));
+    }
+
+    /**
+     * Clears every count. Recordings made while clearing may survive it.
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        totalNanos.reset();
+        errors.reset();
+        maxNanos.set(0);
+    }
+
+    public static double toMillis(long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    private static int bucketIndex(long value) {
+        // Values below SUB_BUCKETS get a bucket each; above that, the top
+        // SUB_BUCKET_BITS bits after the leading one pick the bucket
+        int shift = Math.max(0, 64 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS - 1);
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    private static long bucketTop(int index) {
+        int shift = Math.max(0, (index >> SUB_BUCKET_BITS) - 1);
+        long mantissa = index - ((long) shift << SUB_BUCKET_BITS);
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
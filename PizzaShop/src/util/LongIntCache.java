@@ -0,0 +1,235 @@
+package util;
+
+import java.util.Arrays;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded cache from non-negative {@code long} keys to {@code int} values,
+ * stored in parallel primitive arrays so lookups neither box keys nor keep
+ * key objects alive. Entries expire after a fixed time-to-live; when the cache
+ * is full, the least recently used of a small random sample of entries is
+ * evicted, which approximates LRU without a linked list per entry.
+ */
+public class LongIntCache {
+
+    /**
+     * Returned by {@link #get(long)} when the key is not cached.
+     */
+    public static final int MISSING = -1;
+
+    private static final long EMPTY = -1L;
+    private static final int EVICTION_SAMPLE = 8;
+
+    private final long[] keys;
+    private final int[] values;
+    private final long[] writtenAt;
+    private final long[] accessedAt;
+    private final int mask;
+    private final int maxSize;
+    private final long ttlNanos;
+    private int size;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maxSize The maximum number of entries.
+     * @param ttlMillis How long an entry stays valid after it is written.
+     */
+    public LongIntCache(int maxSize, long ttlMillis) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        // Keep the table at most half full so probe sequences stay short
+        int capacity = Integer.highestOneBit(maxSize * 2 - 1) << 1;
+        this.keys = new long[capacity];
+        this.values = new int[capacity];
+        this.writtenAt = new long[capacity];
+        this.accessedAt = new long[capacity];
+        this.mask = capacity - 1;
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        Arrays.fill(keys, EMPTY);
+    }
+
+    /**
+     * Returns the value cached for a key.
+     *
+     * @param key The key, which must not be negative.
+     * @return The cached value, or {@link #MISSING} if the key is absent or
+     * its entry has expired.
+     */
+    public synchronized int get(long key) {
+        int slot = find(key);
+        long now = System.nanoTime();
+        if (slot < 0 || now - writtenAt[slot] > ttlNanos) {
+            if (slot >= 0) {
+                deleteAt(slot);
+            }
+            misses.increment();
+            return MISSING;
+        }
+        accessedAt[slot] = now;
+        hits.increment();
+        return values[slot];
+    }
+
+    /**
+     * Caches a value for a key, replacing any previous value and evicting an
+     * entry if the cache is full.
+     *
+     * @param key The key, which must not be negative.
+     * @param value The value to cache.
+     */
+    public synchronized void put(long key, int value) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Negative keys are not supported: " + key);
+        }
+        long now = System.nanoTime();
+        int slot = find(key);
+        if (slot < 0) {
+            if (size >= maxSize) {
+                evictOne(now);
+            }
+            slot = probe(key);
+            keys[slot] = key;
+            size++;
+        }
+        values[slot] = value;
+        writtenAt[slot] = now;
+        accessedAt[slot] = now;
+    }
+
+    /**
+     * Removes a key from the cache, if present.
+     *
+     * @param key The key to remove.
+     */
+    public synchronized void remove(long key) {
+        int slot = find(key);
+        if (slot >= 0) {
+            deleteAt(slot);
+        }
+    }
+
+    /**
+     * Returns the number of entries currently cached, including expired ones
+     * that have not been touched since they expired.
+     *
+     * @return The number of entries.
+     */
+    public synchronized int size() {
+        return size;
+    }
+
+    /**
+     * Returns the number of lookups served from the cache.
+     *
+     * @return The hit count.
+     */
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the number of lookups that found no live entry.
+     *
+     * @return The miss count.
+     */
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the number of entries evicted to make room for new ones.
+     *
+     * @return The eviction count.
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the fraction of lookups that were served from the cache.
+     *
+     * @return The hit rate between 0 and 1, or 0 if there were no lookups.
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0.0 : (double) h / total;
+    }
+
+    private int find(long key) {
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY) {
+            if (keys[slot] == key) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return -1;
+    }
+
+    private int probe(long key) {
+        int slot = hash(key) & mask;
+        while (keys[slot] != EMPTY) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    private void evictOne(long now) {
+        int slot = ThreadLocalRandom.current().nextInt(keys.length);
+        int victim = -1;
+        for (int seen = 0, scanned = 0; seen < EVICTION_SAMPLE && scanned < keys.length; scanned++) {
+            if (keys[slot] != EMPTY) {
+                if (now - writtenAt[slot] > ttlNanos) {
+                    victim = slot; // Expired entries go first
+                    break;
+                }
+                if (victim < 0 || accessedAt[slot] < accessedAt[victim]) {
+                    victim = slot;
+                }
+                seen++;
+            }
+            slot = (slot + 1) & mask;
+        }
+        deleteAt(victim);
+        evictions.increment();
+    }
+
+    /**
+     * Removes the entry at a slot and shifts later entries of the same probe
+     * run back, so lookups never stop early at the hole.
+     */
+    private void deleteAt(int slot) {
+        keys[slot] = EMPTY;
+        size--;
+        int next = (slot + 1) & mask;
+        while (keys[next] != EMPTY) {
+            int home = hash(keys[next]) & mask;
+            // Move the entry into the hole if the hole lies on its probe path
+            if (((next - home) & mask) >= ((next - slot) & mask)) {
+                keys[slot] = keys[next];
+                values[slot] = values[next];
+                writtenAt[slot] = writtenAt[next];
+                accessedAt[slot] = accessedAt[next];
+                keys[next] = EMPTY;
+                slot = next;
+            }
+            next = (next + 1) & mask;
+        }
+    }
+
+    private static int hash(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        return (int) key;
+    }
+}
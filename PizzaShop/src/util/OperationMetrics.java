@@ -0,0 +1,90 @@
+package util;
+
+/**
+ * The latency histogram and error count of one DAO operation.
+ */
+public class OperationMetrics implements OperationMetricsMBean {
+
+    private final String operation;
+    private final LatencyHistogram histogram = new LatencyHistogram();
+    private volatile String lastError;
+
+    public OperationMetrics(String operation) {
+        this.operation = operation;
+    }
+
+    /**
+     * Records one call.
+     *
+     * @param elapsedNanos How long the call took.
+     * @param failure The failure, or null if it succeeded.
+     */
+    public void record(long elapsedNanos, Exception failure) {
+        histogram.record(elapsedNanos);
+        if (failure != null) {
+            histogram.recordError();
+            lastError = failure.toString();
+        }
+    }
+
+    public LatencyHistogram getHistogram() {
+        return histogram;
+    }
+
+    @Override
+    public String getOperation() {
+        return operation;
+    }
+
+    @Override
+    public long getCount() {
+        return histogram.getCount();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return histogram.getErrorCount();
+    }
+
+    @Override
+    public String getLastError() {
+        return lastError;
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return LatencyHistogram.toMillis(histogram.getMeanNanos());
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return LatencyHistogram.toMillis(histogram.getMaxNanos());
+    }
+
+    @Override
+    public double getP50Millis() {
+        return histogram.getPercentileMillis(0.5);
+    }
+
+    @Override
+    public double getP99Millis() {
+        return histogram.getPercentileMillis(0.99);
+    }
+
+    @Override
+    public double getP999Millis() {
+        return histogram.getPercentileMillis(0.999);
+    }
+
+    @Override
+    public void reset() {
+        histogram.reset();
+        lastError = null;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%s: %d calls, %d errors, p50 %.2f ms, p99 %.2f ms, p999 %.2f ms, max %.2f ms", operation,
+                getCount(), getErrorCount(), getP50Millis(), getP99Millis(), getP999Millis(), getMaxMillis());
+    }
+}
@@ -0,0 +1,30 @@
+package util;
+
+/**
+ * The JMX view of one DAO operation's latency, published by
+ * {@link DaoMetrics} as {@code pizzashop:type=DaoOperation,name=<operation>}.
+ * Durations are in milliseconds and cover every call since start or the last
+ * {@link #reset()}.
+ */
+public interface OperationMetricsMBean {
+
+    String getOperation();
+
+    long getCount();
+
+    long getErrorCount();
+
+    String getLastError();
+
+    double getMeanMillis();
+
+    double getMaxMillis();
+
+    double getP50Millis();
+
+    double getP99Millis();
+
+    double getP999Millis();
+
+    void reset();
+}
@@ -0,0 +1,104 @@
+package util;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/**
+ * Java Flight Recorder events for the stages of placing an order, so a
+ * recording shows which stage stalled when orders are slow. Each event is
+ * timed from {@code begin()} to {@link Stage#complete} and carries the order
+ * ID and item count; stages written for a batch of orders carry the first
+ * order's ID, the items of the whole batch and the number of orders.
+ *
+ * <p>
+ * The events are enabled by {@code pizzashop/pizzashop.jfc}; see
+ * {@link FlightRecording}. While no recording has them enabled, beginning
+ * and completing one does next to nothing.</p>
+ */
+public final class OrderEvents {
+
+    private OrderEvents() {
+    }
+
+    /**
+     * The fields every stage carries.
+     */
+    @Category({"PizzaShop", "Order Placement"})
+    @StackTrace(false)
+    public abstract static class Stage extends Event {
+
+        @Label("Order ID")
+        @Description("The ID of the order, or of the first order of a batch; 0 if not assigned yet")
+        int orderId;
+
+        @Label("Item Count")
+        @Description("The number of order items written")
+        int itemCount;
+
+        @Label("Order Count")
+        @Description("The number of orders written together")
+        int orderCount;
+
+        @Label("Succeeded")
+        boolean succeeded;
+
+        /**
+         * Ends the stage and commits the event if a recording wants it.
+         *
+         * @param orderId The order ID, or 0 if not assigned yet.
+         * @param itemCount The number of order items.
+         * @param orderCount The number of orders.
+         * @param succeeded Whether the stage completed without an error.
+         */
+        public void complete(int orderId, int itemCount, int orderCount, boolean succeeded) {
+            end();
+            if (shouldCommit()) {
+                this.orderId = orderId;
+                this.itemCount = itemCount;
+                this.orderCount = orderCount;
+                this.succeeded = succeeded;
+                commit();
+            }
+        }
+    }
+
+    @Name("pizzashop.OrderPlaced")
+    @Label("Order Placed")
+    @Description("A call to OrderService.placeOrder, from pricing to the order being stored or queued")
+    public static final class OrderPlaced extends Stage {
+    }
+
+    @Name("pizzashop.CustomerResolve")
+    @Label("Customer Resolve")
+    @Description("Finding or creating the customer by phone number")
+    public static final class CustomerResolve extends Stage {
+    }
+
+    @Name("pizzashop.OrderInsert")
+    @Label("Order Insert")
+    @Description("Inserting order rows")
+    public static final class OrderInsert extends Stage {
+    }
+
+    @Name("pizzashop.ItemsBatch")
+    @Label("Items Batch")
+    @Description("Inserting the order items of one or more orders")
+    public static final class ItemsBatch extends Stage {
+    }
+
+    @Name("pizzashop.TotalUpdate")
+    @Label("Total Update")
+    @Description("Updating the stored total of an order")
+    public static final class TotalUpdate extends Stage {
+    }
+
+    @Name("pizzashop.OrderCommit")
+    @Label("Order Commit")
+    @Description("Committing the transaction that stored one or more orders")
+    public static final class OrderCommit extends Stage {
+    }
+}
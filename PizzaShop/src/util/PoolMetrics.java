@@ -0,0 +1,68 @@
+package util;
+
+/**
+ * Exposes a {@link ConnectionPool}'s gauges and borrow wait histogram.
+ */
+public class PoolMetrics implements PoolMetricsMBean {
+
+    private final ConnectionPool pool;
+
+    public PoolMetrics(ConnectionPool pool) {
+        this.pool = pool;
+    }
+
+    @Override
+    public int getActiveCount() {
+        return pool.getActiveCount();
+    }
+
+    @Override
+    public int getIdleCount() {
+        return pool.getIdleCount();
+    }
+
+    @Override
+    public int getMaxSize() {
+        return pool.getMaxSize();
+    }
+
+    @Override
+    public long getBorrowCount() {
+        return pool.getWaitHistogram().getCount();
+    }
+
+    @Override
+    public long getBorrowFailureCount() {
+        return pool.getWaitHistogram().getErrorCount();
+    }
+
+    @Override
+    public double getWaitMeanMillis() {
+        return LatencyHistogram.toMillis(pool.getWaitHistogram().getMeanNanos());
+    }
+
+    @Override
+    public double getWaitMaxMillis() {
+        return LatencyHistogram.toMillis(pool.getWaitHistogram().getMaxNanos());
+    }
+
+    @Override
+    public double getWaitP50Millis() {
+        return pool.getWaitHistogram().getPercentileMillis(0.5);
+    }
+
+    @Override
+    public double getWaitP99Millis() {
+        return pool.getWaitHistogram().getPercentileMillis(0.99);
+    }
+
+    @Override
+    public double getWaitP999Millis() {
+        return pool.getWaitHistogram().getPercentileMillis(0.999);
+    }
+
+    @Override
+    public void reset() {
+        pool.getWaitHistogram().reset();
+    }
+}
@@ -0,0 +1,32 @@
+package util;
+
+/**
+ * The JMX view of the shared {@link ConnectionPool}, published by
+ * {@link DaoMetrics} as {@code pizzashop:type=ConnectionPool}. Wait times are
+ * how long {@link DBConnection#getConnection()} took to hand out a
+ * connection, in milliseconds, since start or the last {@link #reset()}.
+ */
+public interface PoolMetricsMBean {
+
+    int getActiveCount();
+
+    int getIdleCount();
+
+    int getMaxSize();
+
+    long getBorrowCount();
+
+    long getBorrowFailureCount();
+
+    double getWaitMeanMillis();
+
+    double getWaitMaxMillis();
+
+    double getWaitP50Millis();
+
+    double getWaitP99Millis();
+
+    double getWaitP999Millis();
+
+    void reset();
+}
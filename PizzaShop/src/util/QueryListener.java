@@ -0,0 +1,21 @@
+package util;
+
+/**
+ * Observes every statement run through {@link JdbcTemplate}, and every DAO
+ * operation timed with {@link JdbcTemplate#timed}, e.g. to record timings.
+ * Listeners are called on the calling thread after each one and must return
+ * quickly.
+ */
+public interface QueryListener {
+
+    /**
+     * Called when a statement or timed operation has run, successfully or not.
+     *
+     * @param operation The DAO operation, e.g. {@code "OrderDAO.placeOrder"}.
+     * @param elapsedNanos How long the statement took, including reading its
+     * results.
+     * @param failure The failure, a {@link java.sql.SQLException} or an
+     * unchecked exception from a mapper or callback, or null if it succeeded.
+     */
+    void queryCompleted(String operation, long elapsedNanos, Exception failure);
+}
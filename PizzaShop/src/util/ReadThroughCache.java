@@ -0,0 +1,314 @@
+package util;
+
+import java.sql.SQLException;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A bounded, time-limited cache that loads missing values itself. Concurrent
+ * misses for the same key share a single load, so a burst of identical
+ * lookups costs one database call, and {@link #getAll} loads every missing key
+ * of a bulk lookup with one call. When the cache is full the least recently
+ * used entry is evicted.
+ *
+ * <p>
+ * {@link #invalidate(Object)} drops a key at once, including any load already
+ * in flight for it: that load still answers its waiting callers, but its
+ * result is not cached, so a value read before a write can never be cached
+ * after it. Null results are never cached.</p>
+ *
+ * @param <K> The key type.
+ * @param <V> The value type; values are shared between callers and should be
+ * immutable.
+ */
+public class ReadThroughCache<K, V> {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final LinkedHashMap<K, Entry<V>> entries;
+    private final ConcurrentHashMap<K, CompletableFuture<V>> loading = new ConcurrentHashMap<>();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Creates an empty cache.
+     *
+     * @param maxSize The maximum number of entries.
+     * @param ttlMillis How long an entry stays valid after it is loaded.
+     */
+    public ReadThroughCache(int maxSize, long ttlMillis) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("maxSize must be positive: " + maxSize);
+        }
+        this.maxSize = maxSize;
+        this.ttlNanos = ttlMillis * 1_000_000L;
+        // Access order, so the eldest entry is the least recently used
+        this.entries = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns the cached value for a key, loading it if it is absent or has
+     * expired. If another thread is already loading the key, waits for that
+     * load instead of starting a second one.
+     *
+     * @param key The key.
+     * @param loader Loads the value on a miss.
+     * @return The value, or null if the loader found none.
+     * @throws SQLException If the load fails.
+     */
+    public V get(K key, Loader<K, V> loader) throws SQLException {
+        synchronized (entries) {
+            Entry<V> entry = entries.get(key);
+            if (entry != null) {
+                if (System.nanoTime() - entry.loadedAt() < ttlNanos) {
+                    hits.increment();
+                    return entry.value();
+                }
+                entries.remove(key);
+            }
+        }
+        misses.increment();
+
+        CompletableFuture<V> load = new CompletableFuture<>();
+        CompletableFuture<V> existing = loading.putIfAbsent(key, load);
+        if (existing != null) {
+            return await(existing);
+        }
+
+        long loadedAt = System.nanoTime();
+        V value;
+        try {
+            value = loader.load(key);
+        } catch (SQLException | RuntimeException e) {
+            loading.remove(key, load);
+            load.completeExceptionally(e);
+            throw e;
+        }
+        synchronized (entries) {
+            // Not in the map any more means the key was invalidated mid-load
+            if (loading.remove(key, load) && value != null) {
+                entries.put(key, new Entry<>(value, loadedAt));
+                evictOverflow();
+            }
+        }
+        load.complete(value);
+        return value;
+    }
+
+    /**
+     * Returns the values for several keys, loading every absent or expired
+     * key with one call to the loader. Keys another thread is already loading
+     * are waited for rather than loaded again.
+     *
+     * @param keys The keys.
+     * @param loader Loads the missing keys in bulk.
+     * @return The values found, in the iteration order of {@code keys}; keys
+     * without a value are left out.
+     * @throws SQLException If the load fails.
+     */
+    public Map<K, V> getAll(Collection<K> keys, BulkLoader<K, V> loader) throws SQLException {
+        Map<K, V> found = new HashMap<>();
+        Map<K, CompletableFuture<V>> owned = new LinkedHashMap<>();
+        Map<K, CompletableFuture<V>> awaited = new HashMap<>();
+        synchronized (entries) {
+            long now = System.nanoTime();
+            for (K key : keys) {
+                Entry<V> entry = entries.get(key);
+                if (entry != null && now - entry.loadedAt() < ttlNanos) {
+                    hits.increment();
+                    found.put(key, entry.value());
+                    continue;
+                }
+                if (entry != null) {
+                    entries.remove(key);
+                }
+                if (owned.containsKey(key) || awaited.containsKey(key)) {
+                    continue; // Duplicate key in the request
+                }
+                misses.increment();
+                CompletableFuture<V> load = new CompletableFuture<>();
+                CompletableFuture<V> existing = loading.putIfAbsent(key, load);
+                if (existing != null) {
+                    awaited.put(key, existing);
+                } else {
+                    owned.put(key, load);
+                }
+            }
+        }
+
+        if (!owned.isEmpty()) {
+            long loadedAt = System.nanoTime();
+            Map<K, V> loaded;
+            try {
+                loaded = loader.loadAll(owned.keySet());
+            } catch (SQLException | RuntimeException e) {
+                for (Map.Entry<K, CompletableFuture<V>> load : owned.entrySet()) {
+                    loading.remove(load.getKey(), load.getValue());
+                    load.getValue().completeExceptionally(e);
+                }
+                throw e;
+            }
+            synchronized (entries) {
+                for (Map.Entry<K, CompletableFuture<V>> load : owned.entrySet()) {
+                    V value = loaded.get(load.getKey());
+                    if (loading.remove(load.getKey(), load.getValue()) && value != null) {
+                        entries.put(load.getKey(), new Entry<>(value, loadedAt));
+                    }
+                }
+                evictOverflow();
+            }
+            for (Map.Entry<K, CompletableFuture<V>> load : owned.entrySet()) {
+                V value = loaded.get(load.getKey());
+                load.getValue().complete(value);
+                if (value != null) {
+                    found.put(load.getKey(), value);
+                }
+            }
+        }
+        for (Map.Entry<K, CompletableFuture<V>> load : awaited.entrySet()) {
+            V value = await(load.getValue());
+            if (value != null) {
+                found.put(load.getKey(), value);
+            }
+        }
+
+        Map<K, V> result = new LinkedHashMap<>();
+        for (K key : keys) {
+            V value = found.get(key);
+            if (value != null) {
+                result.put(key, value);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Drops a key so the next lookup reads it again. Call after every write
+     * that changes the cached value.
+     *
+     * @param key The key.
+     */
+    public void invalidate(K key) {
+        synchronized (entries) {
+            entries.remove(key);
+            loading.remove(key);
+        }
+    }
+
+    /**
+     * Drops every entry.
+     */
+    public void invalidateAll() {
+        synchronized (entries) {
+            entries.clear();
+            loading.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the fraction of lookups served from the cache.
+     *
+     * @return The hit rate, or 0 if there have been no lookups.
+     */
+    public double getHitRate() {
+        long h = hits.sum();
+        long total = h + misses.sum();
+        return total == 0 ? 0 : (double) h / total;
+    }
+
+    private void evictOverflow() {
+        Iterator<Map.Entry<K, Entry<V>>> eldest = entries.entrySet().iterator();
+        while (entries.size() > maxSize && eldest.hasNext()) {
+            eldest.next();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private static <V> V await(CompletableFuture<V> load) throws SQLException {
+        try {
+            return load.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a cache load.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof SQLException sqlException) {
+                throw sqlException;
+            }
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new SQLException("Cache load failed.", e.getCause());
+        }
+    }
+
+    /**
+     * Loads a value on a cache miss.
+     *
+     * @param <K> The key type.
+     * @param <V> The value type.
+     */
+    @FunctionalInterface
+    public interface Loader<K, V> {
+
+        /**
+         * Loads the value for a key.
+         *
+         * @param key The key.
+         * @return The value, or null if there is none.
+         * @throws SQLException If the value cannot be read.
+         */
+        V load(K key) throws SQLException;
+    }
+
+    /**
+     * Loads several values at once on cache misses.
+     *
+     * @param <K> The key type.
+     * @param <V> The value type.
+     */
+    @FunctionalInterface
+    public interface BulkLoader<K, V> {
+
+        /**
+         * Loads the values for a set of keys.
+         *
+         * @param keys The keys to load.
+         * @return The values found; keys without a value may be left out.
+         * @throws SQLException If the values cannot be read.
+         */
+        Map<K, V> loadAll(Set<K> keys) throws SQLException;
+    }
+
+    private record Entry<V>(V value, long loadedAt) {
+
+    }
+}
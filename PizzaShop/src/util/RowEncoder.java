@@ -0,0 +1,39 @@
+package util;
+
+import java.io.IOException;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+
+/**
+ * Encodes a result set into an {@link ExportSink} one row at a time, so rows
+ * can be streamed from the database straight to a file.
+ */
+public interface RowEncoder {
+
+    /**
+     * Writes whatever precedes the rows, e.g. a header.
+     *
+     * @param metaData The columns of the result set.
+     * @throws SQLException If the metadata cannot be read.
+     * @throws IOException If the sink cannot be written.
+     */
+    void begin(ResultSetMetaData metaData) throws SQLException, IOException;
+
+    /**
+     * Encodes the current row.
+     *
+     * @param rs The result set, positioned on the row.
+     * @throws SQLException If a column cannot be read.
+     * @throws IOException If the sink cannot be written.
+     */
+    void row(ResultSet rs) throws SQLException, IOException;
+
+    /**
+     * Writes any buffered rows and whatever follows them. The sink is left
+     * open.
+     *
+     * @throws IOException If the sink cannot be written.
+     */
+    void finish() throws IOException;
+}
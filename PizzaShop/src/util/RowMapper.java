@@ -0,0 +1,24 @@
+package util;
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+
+/**
+ * Maps the current row of a result set to an object. Mappers read columns by
+ * index, normally the constants of the query's {@link ColumnList}, so no
+ * column label is looked up per row.
+ *
+ * @param <T> The type each row is mapped to.
+ */
+@FunctionalInterface
+public interface RowMapper<T> {
+
+    /**
+     * Maps the current row.
+     *
+     * @param rs The result set, positioned on the row.
+     * @return The mapped object.
+     * @throws SQLException If a column cannot be read.
+     */
+    T mapRow(ResultSet rs) throws SQLException;
+}
@@ -0,0 +1,314 @@
+package util;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.zip.CRC32C;
+
+/**
+ * An append-only log of byte records stored in fixed-size, memory-mapped
+ * segment files. Every record is framed as {@code [length][crc][payload]} so
+ * a torn write at the tail is detected and discarded on recovery.
+ *
+ * <p>
+ * Records are addressed by a global position, {@code segment * segmentSize +
+ * offset}. {@link #append(byte[])} only copies into the mapped file;
+ * {@link #sync(long)} makes everything up to a position durable. Concurrent
+ * callers of {@code sync} share one {@code force} per round, so a burst of
+ * appends costs a single disk flush. A consumer tracks its progress with
+ * {@link #saveCheckpoint(long)} and drops consumed segments with
+ * {@link #trim(long)}.</p>
+ */
+public class SegmentedJournal implements AutoCloseable {
+
+    private static final int HEADER_BYTES = 8;
+    private static final String SEGMENT_SUFFIX = ".seg";
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final Path directory;
+    private final int segmentSize;
+    private final TreeMap<Long, MappedByteBuffer> segments = new TreeMap<>();
+    private final Object flushLock = new Object();
+
+    private long currentSegment;
+    private MappedByteBuffer current;
+    private long appendPosition;
+    private volatile long durablePosition;
+
+    /**
+     * Opens the journal in a directory, creating it if needed. The tail of the
+     * last segment is scanned to find where the last complete record ends.
+     *
+     * @param directory The directory holding segment files.
+     * @param segmentSize The size of each segment file in bytes.
+     * @throws IOException If the directory or segments cannot be opened.
+     */
+    public SegmentedJournal(Path directory, int segmentSize) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SEGMENT_SUFFIX)) {
+            for (Path file : files) {
+                String name = file.getFileName().toString();
+                long index = Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+                segments.put(index, map(file));
+            }
+        }
+
+        if (segments.isEmpty()) {
+            long start = loadCheckpoint(0) / segmentSize;
+            segments.put(start, map(segmentPath(start)));
+        }
+        currentSegment = segments.lastKey();
+        current = segments.get(currentSegment);
+
+        int end = scanEnd(current);
+        // Zero whatever a torn write left behind so it can't be misread later
+        for (int i = end; i < segmentSize; i++) {
+            current.put(i, (byte) 0);
+        }
+        current.force();
+        appendPosition = currentSegment * segmentSize + end;
+        durablePosition = appendPosition;
+    }
+
+    /**
+     * Appends a record. The record is not durable until a {@link #sync(long)}
+     * covering the returned position completes.
+     *
+     * @param payload The record bytes.
+     * @return The position just past the record.
+     * @throws IOException If a new segment is needed and cannot be created.
+     */
+    public synchronized long append(byte[] payload) throws IOException {
+        int frameLength = HEADER_BYTES + payload.length;
+        if (frameLength > segmentSize) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes exceeds the segment size");
+        }
+        int offset = (int) (appendPosition - currentSegment * segmentSize);
+        if (offset + frameLength > segmentSize) {
+            current.force(); // Seal the full segment before moving on
+            currentSegment++;
+            current = map(segmentPath(currentSegment));
+            synchronized (segments) {
+                segments.put(currentSegment, current);
+            }
+            offset = 0;
+        }
+
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        current.put(offset + HEADER_BYTES, payload);
+        current.putInt(offset + 4, (int) crc.getValue());
+        // Length last, so a reader never sees a length without its payload
+        current.putInt(offset, payload.length);
+
+        appendPosition = currentSegment * segmentSize + offset + frameLength;
+        return appendPosition;
+    }
+
+    /**
+     * Blocks until every record up to a position has been flushed to disk.
+     * If another thread's flush already covered the position, returns
+     * without touching the disk.
+     *
+     * @param position A position returned by {@link #append(byte[])}.
+     */
+    public void sync(long position) {
+        if (durablePosition >= position) {
+            return;
+        }
+        synchronized (flushLock) {
+            if (durablePosition >= position) {
+                return; // Flushed by the thread we were waiting behind
+            }
+            MappedByteBuffer target;
+            long targetPosition;
+            synchronized (this) {
+                target = current;
+                targetPosition = appendPosition;
+            }
+            target.force();
+            durablePosition = targetPosition;
+        }
+    }
+
+    /**
+     * Returns the position up to which records are known to be on disk.
+     *
+     * @return The durable position.
+     */
+    public long getDurablePosition() {
+        return durablePosition;
+    }
+
+    /**
+     * Reads durable records starting at a position.
+     *
+     * @param from The position to start at, normally the last checkpoint.
+     * @param maxRecords The most records to read.
+     * @param consumer Receives each record's payload and the position just
+     * past it.
+     * @return The position after the last record read.
+     */
+    public long read(long from, int maxRecords, RecordConsumer consumer) {
+        long position = from;
+        long limit = durablePosition;
+        CRC32C crc = new CRC32C();
+        int read = 0;
+        while (read < maxRecords && position < limit) {
+            long segment = position / segmentSize;
+            int offset = (int) (position % segmentSize);
+            MappedByteBuffer buffer;
+            synchronized (segments) {
+                buffer = segments.get(segment);
+            }
+            int length = buffer == null || offset + HEADER_BYTES > segmentSize ? 0 : buffer.getInt(offset);
+            if (length <= 0) {
+                // End of this segment's records; continue in the next one
+                position = (segment + 1) * segmentSize;
+                continue;
+            }
+            byte[] payload = new byte[length];
+            buffer.get(offset + HEADER_BYTES, payload);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                System.out.println("Corrupt journal record at " + position + "; skipping to the next segment");
+                position = (segment + 1) * segmentSize;
+                continue;
+            }
+            position += HEADER_BYTES + length;
+            consumer.accept(payload, position);
+            read++;
+        }
+        return Math.min(position, Math.max(from, limit));
+    }
+
+    /**
+     * Durably records how far a consumer has got.
+     *
+     * @param position The position up to which records have been consumed.
+     * @throws IOException If the checkpoint cannot be written.
+     */
+    public void saveCheckpoint(long position) throws IOException {
+        Path temp = directory.resolve(CHECKPOINT_FILE + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, position));
+            channel.force(true);
+        }
+        Files.move(temp, directory.resolve(CHECKPOINT_FILE), StandardCopyOption.REPLACE_EXISTING,
+                StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Returns the last saved checkpoint.
+     *
+     * @return The checkpointed position, or the start of the oldest segment
+     * if no checkpoint has been saved.
+     * @throws IOException If the checkpoint cannot be read.
+     */
+    public long readCheckpoint() throws IOException {
+        long oldest;
+        synchronized (segments) {
+            oldest = segments.firstKey() * segmentSize;
+        }
+        return loadCheckpoint(oldest);
+    }
+
+    /**
+     * Deletes every segment that lies entirely before a position.
+     *
+     * @param position A position that has been consumed and checkpointed.
+     * @throws IOException If a segment file cannot be deleted.
+     */
+    public void trim(long position) throws IOException {
+        // Never delete the segment being appended to
+        long keepFrom = Math.min(position / segmentSize, currentSegmentIndex());
+        synchronized (segments) {
+            Map<Long, MappedByteBuffer> consumed = segments.headMap(keepFrom);
+            for (Long index : consumed.keySet()) {
+                Files.deleteIfExists(segmentPath(index));
+            }
+            consumed.clear();
+        }
+    }
+
+    /**
+     * Flushes the current segment.
+     */
+    @Override
+    public void close() {
+        sync(Long.MAX_VALUE);
+    }
+
+    private long loadCheckpoint(long defaultPosition) throws IOException {
+        Path file = directory.resolve(CHECKPOINT_FILE);
+        if (!Files.exists(file)) {
+            return defaultPosition;
+        }
+        return ByteBuffer.wrap(Files.readAllBytes(file)).getLong();
+    }
+
+    private synchronized long currentSegmentIndex() {
+        return currentSegment;
+    }
+
+    private Path segmentPath(long index) {
+        return directory.resolve(String.format("%020d%s", index, SEGMENT_SUFFIX));
+    }
+
+    private MappedByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.CREATE,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            // The mapping stays valid after the channel is closed
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        }
+    }
+
+    /**
+     * Returns the offset just past the last record with a valid checksum.
+     */
+    private int scanEnd(MappedByteBuffer buffer) {
+        int offset = 0;
+        CRC32C crc = new CRC32C();
+        while (offset + HEADER_BYTES <= segmentSize) {
+            int length = buffer.getInt(offset);
+            if (length <= 0 || offset + HEADER_BYTES + length > segmentSize) {
+                break;
+            }
+            crc.reset();
+            crc.update(buffer.slice(offset + HEADER_BYTES, length));
+            if ((int) crc.getValue() != buffer.getInt(offset + 4)) {
+                break;
+            }
+            offset += HEADER_BYTES + length;
+        }
+        return offset;
+    }
+
+    /**
+     * Receives records read from the journal.
+     */
+    @FunctionalInterface
+    public interface RecordConsumer {
+
+        /**
+         * Handles one record.
+         *
+         * @param payload The record bytes.
+         * @param nextPosition The position just past the record.
+         */
+        void accept(byte[] payload, long nextPosition);
+    }
+}
@@ -0,0 +1,32 @@
+package util;
+
+import java.sql.SQLException;
+import java.sql.SQLRecoverableException;
+import java.sql.SQLTransientException;
+
+/**
+ * Classifies database failures for the background writers, which retry a
+ * failure that may go away on its own and set aside one that never will.
+ */
+public final class SqlErrors {
+
+    private SqlErrors() {
+    }
+
+    /**
+     * Returns whether a failure is worth retrying unchanged: the connection
+     * was lost, timed out or could not be borrowed.
+     *
+     * @param e The failure.
+     * @return True if the same statements may succeed later.
+     */
+    public static boolean isTransient(SQLException e) {
+        for (Throwable t = e; t != null; t = t.getCause()) {
+            if (t instanceof SQLTransientException || t instanceof SQLRecoverableException) {
+                return true;
+            }
+        }
+        // Borrowing failed without a more specific cause
+        return e.getSQLState() != null && e.getSQLState().startsWith("08");
+    }
+}
@@ -0,0 +1,236 @@
+package util;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Least-recently-used cache of prepared statements for one physical
+ * connection, keyed by SQL text. Statements handed out by the cache are
+ * proxies: closing them clears their parameters and parks them for the next
+ * caller preparing the same SQL instead of closing them on the server.
+ *
+ * <p>
+ * A connection is used by one borrower at a time, so a cache is only touched
+ * by one thread at a time and needs no locking of its own.</p>
+ */
+public class StatementCache {
+
+    private static final LongAdder HITS = new LongAdder();
+    private static final LongAdder MISSES = new LongAdder();
+    private static final LongAdder EVICTIONS = new LongAdder();
+
+    private final Connection physical;
+    private final int capacity;
+    private final LinkedHashMap<Key, CachedStatement> statements;
+
+    /**
+     * Creates an empty cache for the given physical connection.
+     *
+     * @param physical The connection statements are prepared on.
+     * @param capacity The maximum number of statements kept open.
+     */
+    StatementCache(Connection physical, int capacity) {
+        this.physical = physical;
+        this.capacity = capacity;
+        this.statements = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Returns a prepared statement for the given SQL, reusing a cached one
+     * when it is not already in use.
+     *
+     * @param sql The SQL text.
+     * @param autoGeneratedKeys {@link Statement#RETURN_GENERATED_KEYS} or
+     * {@link Statement#NO_GENERATED_KEYS}.
+     * @return A statement whose {@code close()} returns it to the cache.
+     * @throws SQLException If the statement cannot be prepared.
+     */
+    PreparedStatement prepare(String sql, int autoGeneratedKeys) throws SQLException {
+        Key key = new Key(sql, autoGeneratedKeys);
+        CachedStatement cached = statements.get(key);
+        if (cached != null && !cached.inUse) {
+            HITS.increment();
+            cached.inUse = true;
+            return cached.proxy;
+        }
+        MISSES.increment();
+        PreparedStatement stmt = physical.prepareStatement(sql, autoGeneratedKeys);
+        if (cached != null) {
+            // Same SQL prepared twice before the first was closed; don't cache the second
+            return stmt;
+        }
+        try {
+            cached = new CachedStatement(stmt);
+        } catch (SQLException e) {
+            stmt.close();
+            throw e;
+        }
+        cached.inUse = true;
+        statements.put(key, cached);
+        evictOverflow();
+        return cached.proxy;
+    }
+
+    /**
+     * Closes every cached statement. Called when the physical connection is
+     * closed.
+     */
+    void closeAll() {
+        for (CachedStatement cached : statements.values()) {
+            cached.closePhysical();
+        }
+        statements.clear();
+    }
+
+    /**
+     * Marks every statement as free again, for statements a borrower forgot to
+     * close before returning the connection.
+     */
+    void releaseAll() {
+        for (CachedStatement cached : statements.values()) {
+            cached.inUse = false;
+        }
+    }
+
+    private void evictOverflow() {
+        Iterator<CachedStatement> it = statements.values().iterator();
+        while (statements.size() > capacity && it.hasNext()) {
+            CachedStatement eldest = it.next();
+            if (!eldest.inUse) {
+                it.remove();
+                eldest.closePhysical();
+                EVICTIONS.increment();
+            }
+        }
+    }
+
+    /**
+     * Returns the number of prepares served from a cache, across all
+     * connections.
+     *
+     * @return The total cache hit count.
+     */
+    public static long getHitCount() {
+        return HITS.sum();
+    }
+
+    /**
+     * Returns the number of prepares that went to the driver, across all
+     * connections.
+     *
+     * @return The total cache miss count.
+     */
+    public static long getMissCount() {
+        return MISSES.sum();
+    }
+
+    /**
+     * Returns the number of statements closed to make room for others.
+     *
+     * @return The total eviction count.
+     */
+    public static long getEvictionCount() {
+        return EVICTIONS.sum();
+    }
+
+    private record Key(String sql, int autoGeneratedKeys) {
+
+    }
+
+    /**
+     * A cached statement and the proxy handed to callers.
+     */
+    private final class CachedStatement implements InvocationHandler {
+
+        private final PreparedStatement stmt;
+        private final PreparedStatement proxy;
+        // Driver defaults, restored when the statement is parked
+        private final int defaultFetchSize;
+        private final int defaultMaxRows;
+        private final int defaultQueryTimeout;
+        private boolean inUse;
+
+        CachedStatement(PreparedStatement stmt) throws SQLException {
+            this.stmt = stmt;
+            this.defaultFetchSize = stmt.getFetchSize();
+            this.defaultMaxRows = stmt.getMaxRows();
+            this.defaultQueryTimeout = stmt.getQueryTimeout();
+            this.proxy = (PreparedStatement) Proxy.newProxyInstance(PreparedStatement.class.getClassLoader(),
+                    new Class<?>[]{PreparedStatement.class}, this);
+        }
+
+        @Override
+        public Object invoke(Object p, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (inUse) {
+                        inUse = false;
+                        try {
+                            park();
+                        } catch (SQLException e) {
+                            statements.values().remove(this);
+                            closePhysical();
+                        }
+                    }
+                    return null;
+                case "isClosed":
+                    return !inUse || stmt.isClosed();
+                case "equals":
+                    return p == args[0];
+                case "hashCode":
+                    return System.identityHashCode(p);
+                default:
+                    break;
+            }
+            if (!inUse) {
+                throw new SQLException("Statement has already been closed.");
+            }
+            try {
+                return method.invoke(stmt, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+        }
+
+        /**
+         * Returns the statement to the state a fresh one would be in, so
+         * nothing a caller set or left open reaches the next caller.
+         */
+        private void park() throws SQLException {
+            ResultSet rs = stmt.getResultSet();
+            if (rs != null) {
+                rs.close();
+            }
+            stmt.clearParameters();
+            stmt.clearBatch();
+            stmt.clearWarnings();
+            if (stmt.getFetchSize() != defaultFetchSize) {
+                stmt.setFetchSize(defaultFetchSize);
+            }
+            if (stmt.getMaxRows() != defaultMaxRows) {
+                stmt.setMaxRows(defaultMaxRows);
+            }
+            if (stmt.getQueryTimeout() != defaultQueryTimeout) {
+                stmt.setQueryTimeout(defaultQueryTimeout);
+            }
+        }
+
+        void closePhysical() {
+            try {
+                stmt.close();
+            } catch (SQLException e) {
+                System.out.println(e);
+            }
+        }
+    }
+}
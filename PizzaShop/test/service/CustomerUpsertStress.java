@@ -0,0 +1,245 @@
+package service;
+
+import dao.CustomerDAO;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+import model.Customer;
+import model.OrderItem;
+import model.Pizza;
+import util.DBConnection;
+
+/**
+ * Stress check for race-free customer resolution. Many threads resolve the
+ * same handful of new phone numbers at the same moment, through
+ * {@link CustomerDAO#upsertByPhone(Customer)} or by placing orders, with the
+ * phone cache cleared before every call so each one reaches the database.
+ * Afterwards every phone number must have exactly one customer row, and
+ * every call for it must have returned that customer's ID.
+ *
+ * <p>
+ * The phone numbers are written in several formats, so the check also
+ * covers their canonical form. It refuses to run unless the database is
+ * named with {@code -Dpizzashop.db.url} (and {@code pizzashop.db.user},
+ * {@code pizzashop.db.password}), so it never touches the shop's own
+ * database. The customers it creates, and with {@code --orders} their
+ * orders, are deleted afterwards unless {@code --keep} is given; their phone
+ * numbers all start with the run prefix it prints.</p>
+ *
+ * <p>
+ * Usage: {@code java -Dpizzashop.db.url=jdbc:mysql://... service.CustomerUpsertStress
+ * [--threads=N] [--phones=N] [--rounds=N] [--orders] [--keep]}. Fails with
+ * an {@link AssertionError} if a duplicate or a mismatched ID is found.</p>
+ */
+public class CustomerUpsertStress {
+
+    private final int threads;
+    private final int phones;
+    private final int rounds;
+    private final boolean placeOrders;
+    private final boolean keep;
+
+    /**
+     * Creates a stress run.
+     *
+     * @param threads The number of threads resolving customers at once.
+     * @param phones The number of new phone numbers they share, up to 10,000.
+     * @param rounds The number of calls each thread makes.
+     * @param placeOrders Whether to place an order per call instead of only
+     * resolving the customer.
+     * @param keep Whether to leave the rows the run created in the database.
+     */
+    public CustomerUpsertStress(int threads, int phones, int rounds, boolean placeOrders, boolean keep) {
+        this.threads = Math.max(threads, 1);
+        this.phones = Math.min(Math.max(phones, 1), 10_000);
+        this.rounds = Math.max(rounds, 1);
+        this.placeOrders = placeOrders;
+        this.keep = keep;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int threads = 16;
+        int phones = 20;
+        int rounds = 50;
+        boolean orders = false;
+        boolean keep = false;
+        for (String arg : args) {
+            if (arg.startsWith("--threads=")) {
+                threads = Integer.parseInt(arg.substring("--threads=".length()));
+            } else if (arg.startsWith("--phones=")) {
+                phones = Integer.parseInt(arg.substring("--phones=".length()));
+            } else if (arg.startsWith("--rounds=")) {
+                rounds = Integer.parseInt(arg.substring("--rounds=".length()));
+            } else if (arg.equals("--orders")) {
+                orders = true;
+            } else if (arg.equals("--keep")) {
+                keep = true;
+            } else {
+                System.out.println("Usage: java -Dpizzashop.db.url=jdbc:mysql://... service.CustomerUpsertStress"
+                        + " [--threads=N] [--phones=N] [--rounds=N] [--orders] [--keep]");
+                return;
+            }
+        }
+        if (System.getProperty("pizzashop.db.url") == null) {
+            throw new IllegalStateException("Set -Dpizzashop.db.url to a test database; this check writes customers and orders");
+        }
+
+        List<String> problems = new CustomerUpsertStress(threads, phones, rounds, orders, keep).run();
+        for (String problem : problems) {
+            System.out.println("  " + problem);
+        }
+        if (!problems.isEmpty()) {
+            throw new AssertionError(problems.size() + " problems");
+        }
+        System.out.println("PASSED");
+    }
+
+    /**
+     * Runs the threads and checks the customers they created.
+     *
+     * @return A description of every duplicate or mismatch, empty if none.
+     * @throws Exception If the run cannot be set up or checked.
+     */
+    public List<String> run() throws Exception {
+        CustomerDAO customerDAO = new CustomerDAO();
+        PizzaService pizzaService = new PizzaService();
+        OrderService orderService = placeOrders ? new OrderService(pizzaService) : null;
+        OrderItem[] items = placeOrders ? sampleOrder(pizzaService) : null;
+
+        // Ten-digit phones: a per-run prefix and a four-digit number
+        String prefix = String.format("%06d", (System.currentTimeMillis() / 1000) % 1_000_000);
+        System.out.println("Run prefix " + prefix + ": " + threads + " threads, " + phones + " phones, "
+                + rounds + " calls each" + (placeOrders ? ", placing orders" : ""));
+
+        Map<String, Set<Integer>> idsByPhone = new ConcurrentHashMap<>();
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> workers = new ArrayList<>(threads);
+        long began = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int worker = t;
+            workers.add(Thread.ofPlatform().name("upsert-stress-" + t).start(() -> {
+                try {
+                    start.await();
+                    for (int round = 0; round < rounds; round++) {
+                        int n = (round + worker) % phones;
+                        String digits = prefix + String.format("%04d", n);
+                        // Each phone is sent in three formats that must resolve alike
+                        Customer customer = new Customer(0, "Stress " + n, format(digits, worker + round),
+                                "1 Test Street", "stress@example.com");
+                        customerDAO.evictCachedPhone(customer.getPhone());
+                        int customerId = placeOrders ? placeAndFindCustomer(orderService, customerDAO, customer, items)
+                                : customerDAO.upsertByPhone(customer);
+                        idsByPhone.computeIfAbsent(digits, k -> ConcurrentHashMap.newKeySet()).add(customerId);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (SQLException | RuntimeException e) {
+                    failures.incrementAndGet();
+                    e.printStackTrace();
+                }
+            }));
+        }
+        start.countDown();
+        for (Thread worker : workers) {
+            worker.join();
+        }
+        System.out.printf("%d calls in %.1f s%n", threads * rounds, (System.nanoTime() - began) / 1e9);
+
+        List<String> problems = new ArrayList<>();
+        if (failures.get() > 0) {
+            problems.add(failures.get() + " threads failed");
+        }
+        for (int n = 0; n < phones; n++) {
+            String digits = prefix + String.format("%04d", n);
+            int rows = customerDAO.countByPhone(digits);
+            Set<Integer> ids = idsByPhone.getOrDefault(digits, Set.of());
+            if (rows != 1) {
+                problems.add(digits + ": " + rows + " customer rows");
+            }
+            if (ids.size() != 1 || ids.contains(-1)) {
+                problems.add(digits + ": calls returned customer IDs " + ids);
+            }
+        }
+        if (!keep) {
+            deleteRun(prefix);
+        }
+        return problems;
+    }
+
+    /**
+     * Deletes the customers of a run and everything hanging off their orders.
+     */
+    private static void deleteRun(String prefix) throws SQLException {
+        String customers = "SELECT customer_id FROM customers WHERE phone LIKE ?";
+        String orders = "SELECT order_id FROM orders WHERE customer_id IN (" + customers + ")";
+        String[] deletes = {
+            "DELETE FROM order_status_updates WHERE order_id IN (" + orders + ")",
+            "DELETE FROM order_items WHERE order_id IN (" + orders + ")",
+            "DELETE FROM orders WHERE customer_id IN (" + customers + ")",
+            "DELETE FROM customers WHERE phone LIKE ?"
+        };
+        int deleted = 0;
+        try (Connection conn = DBConnection.getConnection()) {
+            for (String delete : deletes) {
+                try (PreparedStatement stmt = conn.prepareStatement(delete)) {
+                    stmt.setString(1, prefix + "%");
+                    deleted += stmt.executeUpdate();
+                }
+            }
+        }
+        System.out.println("Deleted " + deleted + " rows of run " + prefix);
+    }
+
+    private static int placeAndFindCustomer(OrderService orderService, CustomerDAO customerDAO, Customer customer,
+            OrderItem[] items) throws SQLException {
+        orderService.placeOrder(customer, copy(items), "stress test", null);
+        // Read back through the database, not the cache the order just filled
+        customerDAO.evictCachedPhone(customer.getPhone());
+        return customerDAO.customerExistsByPhone(customer.getPhone());
+    }
+
+    private static OrderItem[] sampleOrder(PizzaService pizzaService) throws SQLException {
+        List<Pizza> pizzas = pizzaService.getMenu().getPizzas();
+        if (pizzas.isEmpty()) {
+            throw new IllegalStateException("The menu is empty; cannot place test orders");
+        }
+        OrderItem item = new OrderItem();
+        item.setPizzaId(pizzas.get(0).getPizzaId());
+        item.setSize(Size.MEDIUM.getLabel());
+        item.setQuantity(1);
+        return new OrderItem[]{item};
+    }
+
+    private static OrderItem[] copy(OrderItem[] items) {
+        OrderItem[] copies = new OrderItem[items.length];
+        for (int i = 0; i < items.length; i++) {
+            copies[i] = new OrderItem();
+            copies[i].setPizzaId(items[i].getPizzaId());
+            copies[i].setSize(items[i].getSize());
+            copies[i].setQuantity(items[i].getQuantity());
+        }
+        return copies;
+    }
+
+    /**
+     * Writes ten digits in one of three formats.
+     */
+    private static String format(String digits, int variant) {
+        switch (variant % 3) {
+            case 0:
+                return digits;
+            case 1:
+                return "(" + digits.substring(0, 3) + ") " + digits.substring(3, 6) + "-" + digits.substring(6);
+            default:
+                return digits.substring(0, 3) + "-" + digits.substring(3, 6) + "-" + digits.substring(6);
+        }
+    }
+}